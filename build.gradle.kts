@@ -1,5 +1,6 @@
 plugins {
     id("java")
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "org.example"
@@ -16,8 +17,24 @@ dependencies {
     annotationProcessor("info.picocli:picocli-codegen:4.7.5")
 }
 
+// The vector kernel is built on the incubating Vector API
+val vectorModuleArgs = listOf("--add-modules", "jdk.incubator.vector")
+
+tasks.withType<JavaCompile> {
+    options.compilerArgs.addAll(vectorModuleArgs)
+}
+
+jmh {
+    jmhVersion.set("1.37")
+    jvmArgsAppend.addAll(vectorModuleArgs)
+    // JSON results can be compared between runs and engine variants
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
+}
+
 tasks.test {
     useJUnitPlatform()
+    jvmArgs(vectorModuleArgs)
 }
 
 tasks.withType<Jar> {
@@ -0,0 +1,58 @@
+package edu.oswego.cs;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures mapping a temperature to the rgb values of a region across every band of the color thresholds, both by
+ * interpolating between the thresholds and through the precomputed lookup table used when rendering.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColorMappingBenchmark {
+
+    private static final int NUM_TEMPERATURES = 4096;
+
+    private double[] temperatures;
+
+    @Setup
+    public void setup() {
+        // spread the temperatures past the last threshold so every branch is taken
+        temperatures = new double[NUM_TEMPERATURES];
+        for (int i = 0; i < NUM_TEMPERATURES; i++) {
+            temperatures[i] = i * (MetalAlloyRegion.TEMPTHRESHOLD3 * 1.25) / NUM_TEMPERATURES;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_TEMPERATURES)
+    public void calcRGB(Blackhole blackhole) {
+        for (double temperature : temperatures) {
+            blackhole.consume(MetalAlloyRegion.calcRGB(temperature));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_TEMPERATURES)
+    public void lookupARGB(Blackhole blackhole) {
+        for (double temperature : temperatures) {
+            blackhole.consume(TemperatureColorMap.toARGB(temperature));
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package edu.oswego.cs;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building a metal alloy and copying its temperatures into the second buffer of the simulation, which shares
+ * its composition.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetalAlloyBenchmark {
+
+    @Param({"100x400", "1000x1000", "4000x4000"})
+    public String alloySize;
+
+    private int height;
+    private int width;
+    private MetalAlloy alloyA;
+    private MetalAlloy alloyB;
+
+    @Setup
+    public void setup() {
+        LeafShape size = LeafShape.parse(alloySize);
+        height = size.getRows();
+        width = size.getCols();
+        alloyA = new MetalAlloy(height, width, 0.75, 1.0, 1.25);
+        alloyB = new MetalAlloy(alloyA.getComposition());
+    }
+
+    @Benchmark
+    public MetalAlloy construct() {
+        return new MetalAlloy(height, width, 0.75, 1.0, 1.25);
+    }
+
+    @Benchmark
+    public MetalAlloy deepCopyRegionsTo() {
+        alloyA.deepCopyRegionsTo(alloyB);
+        return alloyB;
+    }
+}
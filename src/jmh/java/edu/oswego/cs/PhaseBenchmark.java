@@ -0,0 +1,68 @@
+package edu.oswego.cs;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a full phase of the simulation for a number of alloy sizes, fork join leaf shapes, kernels and precisions,
+ * once one step at a time and once with temporal blocking four steps deep. The blocked benchmark counts every step as
+ * an operation, so both report the time of a single step.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PhaseBenchmark {
+
+    @Param({"100x400", "1000x1000", "4000x4000"})
+    public String alloySize;
+
+    @Param({"16x16", "64x64", "8x4000"})
+    public String leafShape;
+
+    @Param({"scalar", "vector"})
+    public String kernel;
+
+    @Param({"double", "float"})
+    public String precision;
+
+    private HeatPropagationEngine engine;
+
+    @Setup
+    public void setup() {
+        LeafShape size = LeafShape.parse(alloySize);
+        MetalAlloy alloyA = new MetalAlloy(size.getRows(), size.getCols(), 0.75, 1.0, 1.25);
+        alloyA.setTempOfRegion(6000, 0, 0);
+        alloyA.setTempOfRegion(6000, size.getRows() - 1, size.getCols() - 1);
+        MetalAlloy alloyB = new MetalAlloy(alloyA.getComposition());
+        alloyA.deepCopyRegionsTo(alloyB);
+        engine = new HeatPropagationEngine(alloyA, alloyB, ForkJoinPool.commonPool(), LeafShape.parse(leafShape),
+                RelaxationKernel.select(kernel.equals("vector")), precision.equals("float"));
+    }
+
+    @Benchmark
+    public double runPhase() {
+        return engine.runPhases(1, false);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(4)
+    public double runBlockOfFourPhases() {
+        return engine.runPhases(4, false);
+    }
+}
@@ -0,0 +1,68 @@
+package edu.oswego.cs;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of calculating the temperature of a single region, both through the per region method and through
+ * the scalar and vector row kernels used by the fork join leaves.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegionCalculationBenchmark {
+
+    private static final int SIZE = 256;
+
+    private MetalAlloy alloy;
+    private MetalAlloy results;
+    private RelaxationKernel vectorKernel;
+
+    @Setup
+    public void setup() {
+        alloy = new MetalAlloy(SIZE, SIZE, 0.75, 1.0, 1.25);
+        for (int index = 0; index < SIZE * SIZE; index++) {
+            alloy.setTemperature(index, index % 1500);
+        }
+        results = new MetalAlloy(alloy.getComposition());
+        alloy.deepCopyRegionsTo(results);
+        vectorKernel = RelaxationKernel.select(true);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE * SIZE)
+    public void calculateNewTempForRegion(Blackhole blackhole) {
+        for (int row = 0; row < SIZE; row++) {
+            for (int col = 0; col < SIZE; col++) {
+                blackhole.consume(alloy.calculateNewTempForRegion(row, col));
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE * SIZE)
+    public void calculateNewTempsForRegions() {
+        alloy.calculateNewTempsForRegions(results, 0, SIZE, 0, SIZE);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE * SIZE)
+    public void vectorCalculateNewTempsForRegions() {
+        vectorKernel.calculateNewTempsForRegions(alloy, results, 0, SIZE, 0, SIZE);
+    }
+}
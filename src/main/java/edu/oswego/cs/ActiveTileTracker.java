@@ -0,0 +1,134 @@
+package edu.oswego.cs;
+
+import java.util.Arrays;
+
+public class ActiveTileTracker {
+
+    private final int leafRows;
+    private final int leafCols;
+    private final int tileRows;
+    private final int tileCols;
+    private final double activityThreshold;
+
+    // Whether the tile changed by more than the threshold in the previous phase, written by the leaf of the tile
+    private final boolean[] changed;
+    // Whether the tile is recalculated in the current phase
+    private final boolean[] active;
+    // Whether both alloys hold the same temperatures for the tile, a tile that is not active then needs no work at all
+    private final boolean[] synced;
+    // Summed area table of the tiles that need work in the current phase, one row and column larger than the tiles
+    private final int[] tilesNeedingWork;
+
+    /**
+     * Tracks which tiles of the alloy need to be recalculated. The tiles are the leaves of the engine's task tree, which
+     * tile the alloy in a regular grid of the leaf shape. A tile is recalculated if it or one of its four neighboring
+     * tiles changed by more than the threshold in the previous phase, other tiles keep their temperatures. Tiles whose
+     * alloys disagree are copied forward once, after that they are skipped entirely until they become active again.
+     * A threshold of 0 only skips tiles that did not change at all, so the results are exactly those of a full phase.
+     * @param height the height of the metal alloy
+     * @param width the width of the metal alloy
+     * @param leafShape the leaf shape of the engine's task tree
+     * @param activityThreshold the largest temperature change of a tile that still counts as unchanged
+     */
+    public ActiveTileTracker(int height, int width, LeafShape leafShape, double activityThreshold) {
+        this.leafRows = leafShape.getRows();
+        this.leafCols = leafShape.getCols();
+        this.tileRows = (height + leafRows - 1) / leafRows;
+        this.tileCols = (width + leafCols - 1) / leafCols;
+        this.activityThreshold = activityThreshold;
+        int numTiles = tileRows * tileCols;
+        changed = new boolean[numTiles];
+        active = new boolean[numTiles];
+        synced = new boolean[numTiles];
+        tilesNeedingWork = new int[(tileRows + 1) * (tileCols + 1)];
+        // nothing is known about the initial temperatures, so every tile starts out active
+        Arrays.fill(changed, true);
+    }
+
+    /**
+     * Decides which tiles are active in the next phase from the changes of the previous one, called before the task
+     * tree is invoked.
+     */
+    void preparePhase() {
+        int stride = tileCols + 1;
+        for (int tileRow = 0; tileRow < tileRows; tileRow++) {
+            int rowSum = 0;
+            for (int tileCol = 0; tileCol < tileCols; tileCol++) {
+                int tile = tileRow * tileCols + tileCol;
+                active[tile] = changed[tile]
+                        || (tileRow > 0 && changed[tile - tileCols])
+                        || (tileRow < tileRows - 1 && changed[tile + tileCols])
+                        || (tileCol > 0 && changed[tile - 1])
+                        || (tileCol < tileCols - 1 && changed[tile + 1]);
+                rowSum += active[tile] || !synced[tile] ? 1 : 0;
+                tilesNeedingWork[(tileRow + 1) * stride + tileCol + 1] = tilesNeedingWork[tileRow * stride + tileCol + 1] + rowSum;
+            }
+        }
+    }
+
+    /**
+     * @return Whether any tile overlapping the given regions needs to be calculated or copied in the current phase.
+     */
+    boolean needsWork(int rowStart, int rowEnd, int colStart, int colEnd) {
+        int stride = tileCols + 1;
+        int tileRowStart = rowStart / leafRows;
+        int tileRowEnd = (rowEnd + leafRows - 1) / leafRows;
+        int tileColStart = colStart / leafCols;
+        int tileColEnd = (colEnd + leafCols - 1) / leafCols;
+        return tilesNeedingWork[tileRowEnd * stride + tileColEnd] - tilesNeedingWork[tileRowStart * stride + tileColEnd]
+                - tilesNeedingWork[tileRowEnd * stride + tileColStart] + tilesNeedingWork[tileRowStart * stride + tileColStart] > 0;
+    }
+
+    int tileOf(int row, int col) {
+        return (row / leafRows) * tileCols + col / leafCols;
+    }
+
+    boolean isActive(int tile) {
+        return active[tile];
+    }
+
+    boolean isSynced(int tile) {
+        return synced[tile];
+    }
+
+    /**
+     * Records the largest temperature change of a tile that was recalculated.
+     */
+    void markCalculated(int tile, double change) {
+        changed[tile] = change > activityThreshold;
+        // a tile that did not change at all holds the same temperatures in both alloys
+        synced[tile] = change == 0;
+    }
+
+    /**
+     * Records that the temperatures of a tile were changed from outside the phases, so it and its neighbors are
+     * recalculated in the next phase.
+     */
+    void markChanged(int tile) {
+        changed[tile] = true;
+        synced[tile] = false;
+    }
+
+    /**
+     * Records that a tile which was not recalculated holds the same temperatures in both alloys.
+     */
+    void markCopied(int tile) {
+        changed[tile] = false;
+        synced[tile] = true;
+    }
+
+    /**
+     * @return The number of tiles recalculated in the current phase.
+     */
+    public int getNumActiveTiles() {
+        int numActive = 0;
+        for (boolean tileActive : active) {
+            numActive += tileActive ? 1 : 0;
+        }
+        return numActive;
+    }
+
+    public int getNumTiles() {
+        return active.length;
+    }
+}
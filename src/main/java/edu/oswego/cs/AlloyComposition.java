@@ -0,0 +1,223 @@
+package edu.oswego.cs;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+public class AlloyComposition {
+
+    // The rows generated by a single random number generator, fixed so that a seed produces the same composition no
+    // matter how many threads generate it
+    static final int ROWS_PER_BLOCK = 64;
+
+    private final int height;
+    private final int width;
+
+    // Thermal Constants
+    private final double c1;
+    private final double c2;
+    private final double c3;
+
+    // Row-major planes, never written after construction so any number of metal alloys can share them
+    private final double[] percentsOfMetal1;
+    private final double[] percentsOfMetal2;
+    private final double[] percentsOfMetal3;
+
+    // Precomputed effective conductance of each neighbor divided by the region's number of neighbors, a missing
+    // neighbor has a weight of zero.
+    private final double[] northWeights;
+    private final double[] southWeights;
+    private final double[] westWeights;
+    private final double[] eastWeights;
+
+    /**
+     * Creates the read-only composition of a metal alloy from the given percentages and precomputes the neighbor
+     * weights of every region in parallel. The percentages are used as is and must not be modified afterwards.
+     * @param height the height of the metal alloy
+     * @param width the width of the metal alloy
+     * @param c1 the first metal of the alloy's thermal constant
+     * @param c2 the second metal of the alloy's thermal constant
+     * @param c3 the third metal of the alloy's thermal constant
+     * @param percentsOfMetal1 the row-major percentages of the first metal
+     * @param percentsOfMetal2 the row-major percentages of the second metal
+     * @param percentsOfMetal3 the row-major percentages of the third metal
+     */
+    public AlloyComposition(int height, int width, double c1, double c2, double c3, double[] percentsOfMetal1, double[] percentsOfMetal2, double[] percentsOfMetal3) {
+        this.height = height;
+        this.width = width;
+        this.c1 = c1;
+        this.c2 = c2;
+        this.c3 = c3;
+        this.percentsOfMetal1 = percentsOfMetal1;
+        this.percentsOfMetal2 = percentsOfMetal2;
+        this.percentsOfMetal3 = percentsOfMetal3;
+        int numRegions = height * width;
+        northWeights = new double[numRegions];
+        southWeights = new double[numRegions];
+        westWeights = new double[numRegions];
+        eastWeights = new double[numRegions];
+        forEachRowBlock(height, block -> calculateNeighborWeights(block * ROWS_PER_BLOCK, Math.min(height, (block + 1) * ROWS_PER_BLOCK)));
+    }
+
+    /**
+     * Generates a randomly varied composition in parallel over blocks of rows. Every block draws from its own
+     * generator split off the seed, so a seed always produces the same composition.
+     * @param height the height of the metal alloy
+     * @param width the width of the metal alloy
+     * @param c1 the first metal of the alloy's thermal constant
+     * @param c2 the second metal of the alloy's thermal constant
+     * @param c3 the third metal of the alloy's thermal constant
+     * @param seed the seed of the composition
+     * @return The generated composition.
+     */
+    public static AlloyComposition generate(int height, int width, double c1, double c2, double c3, long seed) {
+        int numRegions = height * width;
+        double[] percentsOfMetal1 = new double[numRegions];
+        double[] percentsOfMetal2 = new double[numRegions];
+        double[] percentsOfMetal3 = new double[numRegions];
+        SplittableRandom[] randoms = splitRandoms(seed, height);
+        forEachRowBlock(height, block -> {
+            SplittableRandom random = randoms[block];
+            int indexEnd = Math.min(height, (block + 1) * ROWS_PER_BLOCK) * width;
+            for (int index = block * ROWS_PER_BLOCK * width; index < indexEnd; index++) {
+                MetalAlloyRegion region = new MetalAlloyRegion(random);
+                percentsOfMetal1[index] = region.getPercentOfMetal1();
+                percentsOfMetal2[index] = region.getPercentOfMetal2();
+                percentsOfMetal3[index] = region.getPercentOfMetal3();
+            }
+        });
+        return new AlloyComposition(height, width, c1, c2, c3, percentsOfMetal1, percentsOfMetal2, percentsOfMetal3);
+    }
+
+    /**
+     * Splits a generator off the seed for every block of rows. The splits happen in order on the calling thread, so
+     * every block gets the same generator no matter which thread later draws from it.
+     */
+    static SplittableRandom[] splitRandoms(long seed, int height) {
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] randoms = new SplittableRandom[numRowBlocks(height)];
+        for (int block = 0; block < randoms.length; block++) {
+            randoms[block] = root.split();
+        }
+        return randoms;
+    }
+
+    static int numRowBlocks(int height) {
+        return (height + ROWS_PER_BLOCK - 1) / ROWS_PER_BLOCK;
+    }
+
+    /**
+     * Runs the action for the index of every block of rows and waits for all of them, on the pool of the calling fork
+     * join worker or else on the calling thread and the common fork join pool.
+     */
+    static void forEachRowBlock(int height, IntConsumer blockAction) {
+        int numBlocks = numRowBlocks(height);
+        if (numBlocks > 0) {
+            new RowBlockTask(0, numBlocks, blockAction).invoke();
+        }
+    }
+
+    /**
+     * Composition never changes after construction, so the metal summations of the jacobi relaxation collapse into a
+     * single weight per neighbor: (c1 * p1 + c2 * p2 + c3 * p3) of the neighbor divided by the number of neighbors of
+     * the region. Regions on the edge of the alloy get a weight of zero for the neighbors they are missing.
+     */
+    private void calculateNeighborWeights(int rowStart, int rowEnd) {
+        for (int row = rowStart; row < rowEnd; row++) {
+            for (int col = 0; col < width; col++) {
+                int index = row * width + col;
+                boolean hasNorth = row > 0;
+                boolean hasSouth = row < height - 1;
+                boolean hasWest = col > 0;
+                boolean hasEast = col < width - 1;
+                int numNeighbors = (hasNorth ? 1 : 0) + (hasSouth ? 1 : 0) + (hasWest ? 1 : 0) + (hasEast ? 1 : 0);
+                northWeights[index] = hasNorth ? getConductance(index - width) / numNeighbors : 0;
+                southWeights[index] = hasSouth ? getConductance(index + width) / numNeighbors : 0;
+                westWeights[index] = hasWest ? getConductance(index - 1) / numNeighbors : 0;
+                eastWeights[index] = hasEast ? getConductance(index + 1) / numNeighbors : 0;
+            }
+        }
+    }
+
+    /**
+     * @return The effective thermal conductance of the region at the given index.
+     */
+    double getConductance(int index) {
+        return c1 * percentsOfMetal1[index] + c2 * percentsOfMetal2[index] + c3 * percentsOfMetal3[index];
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public double getC1() {
+        return c1;
+    }
+
+    public double getC2() {
+        return c2;
+    }
+
+    public double getC3() {
+        return c3;
+    }
+
+    // The planes themselves, shared by every metal alloy of this composition and never to be written
+    double[] getPercentsOfMetal1() {
+        return percentsOfMetal1;
+    }
+
+    double[] getPercentsOfMetal2() {
+        return percentsOfMetal2;
+    }
+
+    double[] getPercentsOfMetal3() {
+        return percentsOfMetal3;
+    }
+
+    double[] getNorthWeights() {
+        return northWeights;
+    }
+
+    double[] getSouthWeights() {
+        return southWeights;
+    }
+
+    double[] getWestWeights() {
+        return westWeights;
+    }
+
+    double[] getEastWeights() {
+        return eastWeights;
+    }
+
+    /**
+     * Splits the blocks of rows in half until a task holds a single block.
+     */
+    private static class RowBlockTask extends RecursiveAction {
+
+        private final int blockStart;
+        private final int blockEnd;
+        private final IntConsumer blockAction;
+
+        RowBlockTask(int blockStart, int blockEnd, IntConsumer blockAction) {
+            this.blockStart = blockStart;
+            this.blockEnd = blockEnd;
+            this.blockAction = blockAction;
+        }
+
+        @Override
+        protected void compute() {
+            if (blockEnd - blockStart == 1) {
+                blockAction.accept(blockStart);
+            } else {
+                int blockMidpoint = (blockStart + blockEnd) >>> 1;
+                invokeAll(new RowBlockTask(blockStart, blockMidpoint, blockAction), new RowBlockTask(blockMidpoint, blockEnd, blockAction));
+            }
+        }
+    }
+}
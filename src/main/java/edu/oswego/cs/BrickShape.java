@@ -0,0 +1,72 @@
+package edu.oswego.cs;
+
+public class BrickShape {
+
+    private final int layers;
+    private final int rows;
+    private final int cols;
+
+    /**
+     * The dimensions of the regions of a metal volume a single fork join leaf calculates.
+     * @param layers The maximum number of layers of a leaf.
+     * @param rows The maximum number of rows of a leaf.
+     * @param cols The maximum number of columns of a leaf.
+     */
+    public BrickShape(int layers, int rows, int cols) {
+        if (layers < 1 || rows < 1 || cols < 1) {
+            throw new IllegalArgumentException("Brick dimensions must be positive: " + layers + "x" + rows + "x" + cols);
+        }
+        this.layers = layers;
+        this.rows = rows;
+        this.cols = cols;
+    }
+
+    /**
+     * Parses a brick shape written as LAYERSxROWSxCOLS, for example 8x16x128.
+     */
+    public static BrickShape parse(String shape) {
+        String[] dimensions = shape.toLowerCase().split("x");
+        if (dimensions.length != 3) {
+            throw new IllegalArgumentException("Brick shape must be written as LAYERSxROWSxCOLS: " + shape);
+        }
+        return new BrickShape(Integer.parseInt(dimensions[0].trim()), Integer.parseInt(dimensions[1].trim()), Integer.parseInt(dimensions[2].trim()));
+    }
+
+    /**
+     * @return This shape with its dimensions limited to the dimensions of the metal volume.
+     */
+    public BrickShape clampTo(int depth, int height, int width) {
+        return new BrickShape(Math.min(layers, depth), Math.min(rows, height), Math.min(cols, width));
+    }
+
+    public int getLayers() {
+        return layers;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof BrickShape)) {
+            return false;
+        }
+        BrickShape shape = (BrickShape) other;
+        return layers == shape.layers && rows == shape.rows && cols == shape.cols;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * layers + rows) + cols;
+    }
+
+    @Override
+    public String toString() {
+        return layers + "x" + rows + "x" + cols;
+    }
+}
@@ -0,0 +1,96 @@
+package edu.oswego.cs;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Blocking transfers of primitive planes over socket channels through a reused direct buffer, shared by the
+ * coordinator and the workers of a distributed simulation.
+ */
+final class ChannelIO {
+
+    private ChannelIO() {
+    }
+
+    static void writeFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    static void readFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("The peer closed the connection");
+            }
+        }
+    }
+
+    /**
+     * Writes a range of a plane, as many doubles at a time as fit in the buffer.
+     */
+    static void writeDoubles(SocketChannel channel, ByteBuffer buffer, double[] plane, int offset, int length) throws IOException {
+        int doublesPerTransfer = buffer.capacity() / Double.BYTES;
+        for (int end = offset + length; offset < end; ) {
+            int transferLength = Math.min(end - offset, doublesPerTransfer);
+            buffer.clear();
+            buffer.asDoubleBuffer().put(plane, offset, transferLength);
+            buffer.limit(transferLength * Double.BYTES);
+            writeFully(channel, buffer);
+            offset += transferLength;
+        }
+    }
+
+    /**
+     * Reads a range of a plane, as many doubles at a time as fit in the buffer.
+     */
+    static void readDoubles(SocketChannel channel, ByteBuffer buffer, double[] plane, int offset, int length) throws IOException {
+        int doublesPerTransfer = buffer.capacity() / Double.BYTES;
+        for (int end = offset + length; offset < end; ) {
+            int transferLength = Math.min(end - offset, doublesPerTransfer);
+            buffer.clear();
+            buffer.limit(transferLength * Double.BYTES);
+            readFully(channel, buffer);
+            buffer.flip();
+            DoubleBuffer values = buffer.asDoubleBuffer();
+            values.get(plane, offset, transferLength);
+            offset += transferLength;
+        }
+    }
+
+    /**
+     * Writes a range of an array of ints, as many at a time as fit in the buffer.
+     */
+    static void writeInts(SocketChannel channel, ByteBuffer buffer, int[] values, int offset, int length) throws IOException {
+        int intsPerTransfer = buffer.capacity() / Integer.BYTES;
+        for (int end = offset + length; offset < end; ) {
+            int transferLength = Math.min(end - offset, intsPerTransfer);
+            buffer.clear();
+            buffer.asIntBuffer().put(values, offset, transferLength);
+            buffer.limit(transferLength * Integer.BYTES);
+            writeFully(channel, buffer);
+            offset += transferLength;
+        }
+    }
+
+    /**
+     * Reads a range of an array of ints, as many at a time as fit in the buffer.
+     */
+    static void readInts(SocketChannel channel, ByteBuffer buffer, int[] values, int offset, int length) throws IOException {
+        int intsPerTransfer = buffer.capacity() / Integer.BYTES;
+        for (int end = offset + length; offset < end; ) {
+            int transferLength = Math.min(end - offset, intsPerTransfer);
+            buffer.clear();
+            buffer.limit(transferLength * Integer.BYTES);
+            readFully(channel, buffer);
+            buffer.flip();
+            IntBuffer transferred = buffer.asIntBuffer();
+            transferred.get(values, offset, transferLength);
+            offset += transferLength;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package edu.oswego.cs;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class CheckpointWriter {
+
+    private final Path checkpoint;
+    private final MetalAlloy composition;
+    private final BlockingQueue<Snapshot> freeSnapshots = new ArrayBlockingQueue<>(1);
+    private final BlockingQueue<Snapshot> pendingSnapshots = new ArrayBlockingQueue<>(2);
+    private final Snapshot endOfSnapshots = new Snapshot(0);
+    private final Thread writerThread;
+    private final AtomicLong checkpointsWritten = new AtomicLong();
+    private final AtomicLong checkpointsSkipped = new AtomicLong();
+    private volatile IOException failure;
+
+    /**
+     * Writes checkpoints of the simulation on a background thread so the phases keep running while the file is
+     * written. The compute thread only copies the temperatures into a single pre-allocated snapshot, the composition
+     * never changes and is read straight from the metal alloy by the writer.
+     * @param checkpoint The path of the checkpoint file, replaced by every checkpoint.
+     * @param composition A metal alloy of the simulation, its dimensions, thermal constants and composition are written
+     *                    with every checkpoint.
+     */
+    public CheckpointWriter(Path checkpoint, MetalAlloy composition) {
+        this.checkpoint = checkpoint;
+        this.composition = composition;
+        freeSnapshots.add(new Snapshot(composition.getHeight() * composition.getWidth()));
+        writerThread = new Thread(this::writeCheckpoints, "checkpoint-writer");
+        // a simulation that failed before closing the writer must still be able to exit
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Hands the current temperatures of the metal alloy to the writer, never waiting on it.
+     * @param alloy The metal alloy holding the temperatures of the phase.
+     * @param phase The number of phases completed.
+     * @return Whether the checkpoint was captured, false if it was skipped because the previous one is still being
+     * written.
+     */
+    public boolean offer(MetalAlloy alloy, long phase) throws IOException {
+        throwIfFailed();
+        Snapshot snapshot = freeSnapshots.poll();
+        if (snapshot == null) {
+            checkpointsSkipped.incrementAndGet();
+            return false;
+        }
+        alloy.copyTemperaturesTo(snapshot.temperatures);
+        snapshot.phase = phase;
+        pendingSnapshots.add(snapshot);
+        return true;
+    }
+
+    private void writeCheckpoints() {
+        try {
+            Snapshot snapshot;
+            while ((snapshot = pendingSnapshots.take()) != endOfSnapshots) {
+                try {
+                    SimulationCheckpoint.write(checkpoint, composition, snapshot.temperatures, snapshot.phase);
+                    checkpointsWritten.incrementAndGet();
+                } catch (IOException e) {
+                    failure = e;
+                }
+                freeSnapshots.add(snapshot);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void throwIfFailed() throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    public long getCheckpointsWritten() {
+        return checkpointsWritten.get();
+    }
+
+    public long getCheckpointsSkipped() {
+        return checkpointsSkipped.get();
+    }
+
+    /**
+     * Waits for the final checkpoint to be captured and written, then stops the writer.
+     * @param alloy The metal alloy holding the final temperatures.
+     * @param phase The number of phases completed.
+     */
+    public void close(MetalAlloy alloy, long phase) throws IOException, InterruptedException {
+        Snapshot snapshot = freeSnapshots.take();
+        alloy.copyTemperaturesTo(snapshot.temperatures);
+        snapshot.phase = phase;
+        pendingSnapshots.add(snapshot);
+        stop();
+    }
+
+    /**
+     * Waits for the checkpoint that is being written, if any, then stops the writer without capturing a final one.
+     * Used when the simulation failed and its latest temperatures can not be trusted.
+     */
+    public void stop() throws IOException, InterruptedException {
+        pendingSnapshots.add(endOfSnapshots);
+        writerThread.join();
+        throwIfFailed();
+    }
+
+    private static class Snapshot {
+        private final double[] temperatures;
+        private long phase;
+
+        private Snapshot(int numRegions) {
+            temperatures = new double[numRegions];
+        }
+    }
+}
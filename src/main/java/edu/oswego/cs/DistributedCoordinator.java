@@ -0,0 +1,334 @@
+package edu.oswego.cs;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class DistributedCoordinator implements HeatPropagationSolver {
+
+    // Commands sent from the coordinator to the workers
+    static final int RUN = 1;
+    static final int GATHER = 2;
+    static final int STOP = 3;
+    static final int SET = 4;
+
+    // Planes are sent through a direct buffer of this size
+    static final int TRANSFER_BYTES = 1 << 20;
+
+    // How long the workers get to start and connect, and how often the coordinator checks that they are still alive
+    private static final long CONNECT_TIMEOUT_MILLIS = 60_000;
+    private static final long CONNECT_POLL_MILLIS = 100;
+    // How long stopped workers get to exit before they are destroyed
+    private static final long EXIT_TIMEOUT_MILLIS = 10_000;
+
+    private final MetalAlloy alloy;
+    private final int numWorkers;
+    private final int[] bandStarts;
+    private final List<Process> workerProcesses = new ArrayList<>();
+    private final SocketChannel[] workerChannels;
+    private final ByteBuffer commandBuffer = ByteBuffer.allocateDirect(3 * Integer.BYTES);
+    private final ByteBuffer residualBuffer = ByteBuffer.allocateDirect(Double.BYTES);
+    private final ByteBuffer transferBuffer = ByteBuffer.allocateDirect(TRANSFER_BYTES);
+    // Destroys the workers if this JVM exits without closing the coordinator
+    private final Thread workerReaper = new Thread(this::destroyWorkers);
+    private boolean published = true;
+    private long phasesCompleted;
+
+    /**
+     * Splits the alloy into one band of rows per worker and launches the workers as separate JVMs on this machine.
+     * Every worker receives the composition and temperatures of its band plus the halo rows around it, runs the
+     * fork join engine on its band and exchanges its edge rows with the workers of the neighboring bands after every
+     * phase. The coordinator only keeps the phases of the workers in step, combines their residuals and gathers the
+     * bands back into the alloy when the results are needed. If a worker exits or does not connect in time the workers
+     * are destroyed and an IOException is thrown.
+     * @param alloy The metal alloy holding the initial temperatures, it receives the gathered results.
+     * @param numWorkers The number of worker processes.
+     * @param leafShape The leaf shape of the workers' engines, or null for every worker to calibrate its own.
+     * @param useVector Whether the workers use the vector kernel.
+     */
+    public DistributedCoordinator(MetalAlloy alloy, int numWorkers, LeafShape leafShape, boolean useVector) throws IOException {
+        int height = alloy.getHeight();
+        int width = alloy.getWidth();
+        if (numWorkers < 1 || numWorkers > height) {
+            throw new IllegalArgumentException("The number of workers must be between 1 and the height of the alloy, got " + numWorkers);
+        }
+        this.alloy = alloy;
+        this.numWorkers = numWorkers;
+        bandStarts = new int[numWorkers + 1];
+        for (int worker = 0; worker <= numWorkers; worker++) {
+            bandStarts[worker] = (int) ((long) worker * height / numWorkers);
+        }
+        workerChannels = new SocketChannel[numWorkers];
+        try (ServerSocketChannel server = ServerSocketChannel.open(); Selector selector = Selector.open()) {
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+            int port = ((InetSocketAddress) server.getLocalAddress()).getPort();
+            Runtime.getRuntime().addShutdownHook(workerReaper);
+            launchWorkers(port, useVector);
+            // workers introduce themselves in any order with their index and the port they accept halos on
+            int[] haloPorts = new int[numWorkers];
+            ByteBuffer hello = ByteBuffer.allocateDirect(2 * Integer.BYTES);
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CONNECT_TIMEOUT_MILLIS);
+            for (int accepted = 0; accepted < numWorkers; ) {
+                SocketChannel channel = server.accept();
+                if (channel == null) {
+                    checkWorkersAlive();
+                    if (System.nanoTime() - deadline > 0) {
+                        throw new IOException("Only " + accepted + " of " + numWorkers + " workers connected within " + CONNECT_TIMEOUT_MILLIS + " ms");
+                    }
+                    selector.select(CONNECT_POLL_MILLIS);
+                    selector.selectedKeys().clear();
+                    continue;
+                }
+                channel.configureBlocking(true);
+                channel.socket().setTcpNoDelay(true);
+                hello.clear();
+                ChannelIO.readFully(channel, hello);
+                int worker = hello.getInt(0);
+                haloPorts[worker] = hello.getInt(Integer.BYTES);
+                workerChannels[worker] = channel;
+                accepted++;
+            }
+            ByteBuffer setup = ByteBuffer.allocateDirect(9 * Integer.BYTES + 3 * Double.BYTES);
+            for (int worker = 0; worker < numWorkers; worker++) {
+                int localStart = Math.max(0, bandStarts[worker] - 1);
+                int localEnd = Math.min(height, bandStarts[worker + 1] + 1);
+                setup.clear();
+                setup.putInt(numWorkers)
+                        .putInt(height)
+                        .putInt(width)
+                        .putInt(bandStarts[worker])
+                        .putInt(bandStarts[worker + 1])
+                        .putInt(leafShape != null ? leafShape.getRows() : 0)
+                        .putInt(leafShape != null ? leafShape.getCols() : 0)
+                        .putInt(useVector ? 1 : 0)
+                        .putInt(worker < numWorkers - 1 ? haloPorts[worker + 1] : 0)
+                        .putDouble(alloy.getC1())
+                        .putDouble(alloy.getC2())
+                        .putDouble(alloy.getC3());
+                setup.flip();
+                SocketChannel channel = workerChannels[worker];
+                ChannelIO.writeFully(channel, setup);
+                int offset = localStart * width;
+                int length = (localEnd - localStart) * width;
+                ChannelIO.writeDoubles(channel, transferBuffer, alloy.getPercentsOfMetal1(), offset, length);
+                ChannelIO.writeDoubles(channel, transferBuffer, alloy.getPercentsOfMetal2(), offset, length);
+                ChannelIO.writeDoubles(channel, transferBuffer, alloy.getPercentsOfMetal3(), offset, length);
+                ChannelIO.writeDoubles(channel, transferBuffer, alloy.getTemperatures(), offset, length);
+            }
+            // every worker reports back once it is connected to the worker below it
+            for (SocketChannel channel : workerChannels) {
+                residualBuffer.clear();
+                ChannelIO.readFully(channel, residualBuffer);
+            }
+        } catch (IOException | RuntimeException e) {
+            destroyWorkers();
+            throw e;
+        }
+    }
+
+    /**
+     * @throws IOException If a worker process has already exited.
+     */
+    private void checkWorkersAlive() throws IOException {
+        for (int worker = 0; worker < workerProcesses.size(); worker++) {
+            Process process = workerProcesses.get(worker);
+            if (!process.isAlive()) {
+                throw new IOException("Worker " + worker + " exited with code " + process.exitValue() + " before connecting");
+            }
+        }
+    }
+
+
+    private void launchWorkers(int port, boolean useVector) throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        // the workers share the cores of this machine
+        int workerParallelism = Math.max(1, Runtime.getRuntime().availableProcessors() / numWorkers);
+        for (int worker = 0; worker < numWorkers; worker++) {
+            List<String> command = new ArrayList<>();
+            command.add(java);
+            if (useVector) {
+                command.add("--add-modules");
+                command.add("jdk.incubator.vector");
+            }
+            command.add("-Djava.util.concurrent.ForkJoinPool.common.parallelism=" + workerParallelism);
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(DistributedWorker.class.getName());
+            command.add(InetAddress.getLoopbackAddress().getHostAddress());
+            command.add(Integer.toString(port));
+            command.add(Integer.toString(worker));
+            workerProcesses.add(new ProcessBuilder(command).inheritIO().start());
+        }
+    }
+
+    /**
+     * Runs the given number of phases on every worker, the workers exchange halos between phases without involving
+     * the coordinator.
+     * @return The largest temperature change of the last phase over all bands, or NaN if it was not measured.
+     */
+    @Override
+    public double runPhases(int steps, boolean measureResidual) throws IOException {
+        double residual = 0;
+        try {
+            for (SocketChannel channel : workerChannels) {
+                sendCommand(channel, RUN, steps, measureResidual ? 1 : 0);
+            }
+            for (SocketChannel channel : workerChannels) {
+                residualBuffer.clear();
+                ChannelIO.readFully(channel, residualBuffer);
+                residual = Math.max(residual, residualBuffer.getDouble(0));
+            }
+        } catch (IOException e) {
+            // the workers can not continue in step once one of them is lost
+            destroyWorkers();
+            throw e;
+        }
+        published = false;
+        phasesCompleted += steps;
+        return measureResidual ? residual : Double.NaN;
+    }
+
+    /**
+     * Gathers the bands of the most recent phase from every worker into the alloy.
+     */
+    @Override
+    public void publishLatest() throws IOException {
+        if (published) {
+            return;
+        }
+        int width = alloy.getWidth();
+        try {
+            for (int worker = 0; worker < numWorkers; worker++) {
+                SocketChannel channel = workerChannels[worker];
+                sendCommand(channel, GATHER, 0, 0);
+                ChannelIO.readDoubles(channel, transferBuffer, alloy.getTemperatures(), bandStarts[worker] * width,
+                        (bandStarts[worker + 1] - bandStarts[worker]) * width);
+            }
+        } catch (IOException e) {
+            destroyWorkers();
+            throw e;
+        }
+        published = true;
+    }
+
+    private void sendCommand(SocketChannel channel, int command, int firstArgument, int secondArgument) throws IOException {
+        commandBuffer.clear();
+        commandBuffer.putInt(command).putInt(firstArgument).putInt(secondArgument).flip();
+        ChannelIO.writeFully(channel, commandBuffer);
+    }
+
+    /**
+     * @return The metal alloy holding the most recently gathered results.
+     */
+    @Override
+    public MetalAlloy getLatestAlloy() {
+        return alloy;
+    }
+
+    /**
+     * The workers only know the fixed corners of the alloy.
+     */
+    @Override
+    public boolean supportsFixedRegions() {
+        return false;
+    }
+
+    /**
+     * Sets the temperatures in the alloy and in the bands of every worker that holds the regions, including the halo
+     * rows, so the next phase is calculated from them.
+     */
+    @Override
+    public void setTemperatures(int[] indices, double[] temperatures) throws IOException {
+        int width = alloy.getWidth();
+        for (int i = 0; i < indices.length; i++) {
+            alloy.setTemperature(indices[i], temperatures[i]);
+        }
+        int[] workerIndices = new int[indices.length];
+        double[] workerTemperatures = new double[indices.length];
+        try {
+            for (int worker = 0; worker < numWorkers; worker++) {
+                int localStart = Math.max(0, bandStarts[worker] - 1) * width;
+                int localEnd = Math.min(alloy.getHeight(), bandStarts[worker + 1] + 1) * width;
+                int count = 0;
+                for (int i = 0; i < indices.length; i++) {
+                    if (indices[i] >= localStart && indices[i] < localEnd) {
+                        workerIndices[count] = indices[i] - localStart;
+                        workerTemperatures[count++] = temperatures[i];
+                    }
+                }
+                if (count > 0) {
+                    SocketChannel channel = workerChannels[worker];
+                    sendCommand(channel, SET, count, 0);
+                    ChannelIO.writeInts(channel, transferBuffer, workerIndices, 0, count);
+                    ChannelIO.writeDoubles(channel, transferBuffer, workerTemperatures, 0, count);
+                }
+            }
+        } catch (IOException e) {
+            destroyWorkers();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean publishesOnRequest() {
+        return true;
+    }
+
+    @Override
+    public long getPhasesCompleted() {
+        return phasesCompleted;
+    }
+
+    /**
+     * Stops the workers and waits for their processes to exit, destroying any worker that does not exit in time.
+     */
+    public void close() throws IOException, InterruptedException {
+        try {
+            for (SocketChannel channel : workerChannels) {
+                if (channel.isOpen()) {
+                    sendCommand(channel, STOP, 0, 0);
+                    channel.close();
+                }
+            }
+            for (Process process : workerProcesses) {
+                process.waitFor(EXIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            destroyWorkers();
+        }
+    }
+
+    /**
+     * Forcibly destroys every worker process that is still running and closes the connections to the workers.
+     */
+    private void destroyWorkers() {
+        try {
+            Runtime.getRuntime().removeShutdownHook(workerReaper);
+        } catch (IllegalStateException e) {
+            // the JVM is already shutting down, this is the hook
+        }
+        for (Process process : workerProcesses) {
+            process.destroyForcibly();
+        }
+        for (SocketChannel channel : workerChannels) {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    // the worker is gone either way
+                }
+            }
+        }
+    }
+}
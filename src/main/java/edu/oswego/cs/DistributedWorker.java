@@ -0,0 +1,180 @@
+package edu.oswego.cs;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ForkJoinPool;
+
+public class DistributedWorker {
+
+    private final SocketChannel coordinator;
+    private final SocketChannel upperNeighbor;
+    private final SocketChannel lowerNeighbor;
+    private final HeatPropagationEngine engine;
+    private final int width;
+    // Local rows of the band, the halo rows owned by the neighbors sit directly above and below them
+    private final int bandStart;
+    private final int bandEnd;
+    private final ByteBuffer commandBuffer = ByteBuffer.allocateDirect(3 * Integer.BYTES);
+    private final ByteBuffer residualBuffer = ByteBuffer.allocateDirect(Double.BYTES);
+    private final ByteBuffer transferBuffer = ByteBuffer.allocateDirect(DistributedCoordinator.TRANSFER_BYTES);
+    private final ByteBuffer haloBuffer;
+    private final DoubleBuffer haloValues;
+
+    /**
+     * Connects to the coordinator, receives the band of the alloy this worker calculates and connects to the workers of
+     * the neighboring bands. Every worker accepts the worker above it and connects to the worker below it.
+     * @param coordinatorAddress The address the coordinator accepts workers on.
+     * @param workerIndex The index of the band of this worker, counted from the top of the alloy.
+     */
+    public DistributedWorker(InetSocketAddress coordinatorAddress, int workerIndex) throws IOException {
+        try (ServerSocketChannel haloServer = ServerSocketChannel.open()) {
+            haloServer.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            coordinator = SocketChannel.open(coordinatorAddress);
+            coordinator.socket().setTcpNoDelay(true);
+            ByteBuffer hello = ByteBuffer.allocateDirect(2 * Integer.BYTES);
+            hello.putInt(workerIndex).putInt(((InetSocketAddress) haloServer.getLocalAddress()).getPort()).flip();
+            ChannelIO.writeFully(coordinator, hello);
+            ByteBuffer setup = ByteBuffer.allocateDirect(9 * Integer.BYTES + 3 * Double.BYTES);
+            ChannelIO.readFully(coordinator, setup);
+            setup.flip();
+            int numWorkers = setup.getInt();
+            int height = setup.getInt();
+            width = setup.getInt();
+            int globalBandStart = setup.getInt();
+            int globalBandEnd = setup.getInt();
+            int leafRows = setup.getInt();
+            int leafCols = setup.getInt();
+            boolean useVector = setup.getInt() == 1;
+            int lowerNeighborPort = setup.getInt();
+            double c1 = setup.getDouble();
+            double c2 = setup.getDouble();
+            double c3 = setup.getDouble();
+            int localStart = Math.max(0, globalBandStart - 1);
+            int localEnd = Math.min(height, globalBandEnd + 1);
+            int numRegions = (localEnd - localStart) * width;
+            bandStart = globalBandStart - localStart;
+            bandEnd = globalBandEnd - localStart;
+            double[] percentsOfMetal1 = new double[numRegions];
+            double[] percentsOfMetal2 = new double[numRegions];
+            double[] percentsOfMetal3 = new double[numRegions];
+            double[] temperatures = new double[numRegions];
+            ChannelIO.readDoubles(coordinator, transferBuffer, percentsOfMetal1, 0, numRegions);
+            ChannelIO.readDoubles(coordinator, transferBuffer, percentsOfMetal2, 0, numRegions);
+            ChannelIO.readDoubles(coordinator, transferBuffer, percentsOfMetal3, 0, numRegions);
+            ChannelIO.readDoubles(coordinator, transferBuffer, temperatures, 0, numRegions);
+            // the halo rows make the neighbor weights of the band's edge rows match those of the whole alloy
+            MetalAlloy alloyA = new MetalAlloy(localEnd - localStart, width, c1, c2, c3, percentsOfMetal1, percentsOfMetal2, percentsOfMetal3);
+            MetalAlloy alloyB = new MetalAlloy(alloyA.getComposition());
+            alloyA.copyTemperaturesFrom(temperatures);
+            alloyB.copyTemperaturesFrom(temperatures);
+            lowerNeighbor = workerIndex < numWorkers - 1
+                    ? SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), lowerNeighborPort))
+                    : null;
+            upperNeighbor = workerIndex > 0 ? haloServer.accept() : null;
+            for (SocketChannel neighbor : new SocketChannel[] {lowerNeighbor, upperNeighbor}) {
+                if (neighbor != null) {
+                    neighbor.socket().setTcpNoDelay(true);
+                }
+            }
+            ForkJoinPool pool = ForkJoinPool.commonPool();
+            RelaxationKernel kernel = RelaxationKernel.select(useVector);
+            LeafShape leafShape = leafRows > 0
+                    ? new LeafShape(leafRows, leafCols)
+                    : GranularityTuner.calibrate(alloyA, alloyB, pool, 1,
+                            shape -> new HeatPropagationEngine(alloyA, alloyB, pool, shape, kernel, false, bandStart, bandEnd));
+            engine = new HeatPropagationEngine(alloyA, alloyB, pool, leafShape, kernel, false, bandStart, bandEnd);
+            haloBuffer = ByteBuffer.allocateDirect(width * Double.BYTES);
+            haloValues = haloBuffer.asDoubleBuffer();
+            System.out.println("Worker " + workerIndex + " calculates rows " + globalBandStart + " to " + globalBandEnd + " with fork join leaves of " + engine.getLeafShape() + " regions");
+        }
+        residualBuffer.putDouble(0, 0);
+        ChannelIO.writeFully(coordinator, residualBuffer);
+    }
+
+    /**
+     * Serves commands of the coordinator until it stops the worker.
+     */
+    public void serve() throws IOException {
+        while (true) {
+            commandBuffer.clear();
+            ChannelIO.readFully(coordinator, commandBuffer);
+            int command = commandBuffer.getInt(0);
+            if (command == DistributedCoordinator.RUN) {
+                int steps = commandBuffer.getInt(Integer.BYTES);
+                boolean measureResidual = commandBuffer.getInt(2 * Integer.BYTES) == 1;
+                double residual = Double.NaN;
+                for (int step = 0; step < steps; step++) {
+                    residual = engine.runPhase(measureResidual && step == steps - 1);
+                    exchangeHalos();
+                }
+                residualBuffer.clear();
+                residualBuffer.putDouble(0, residual);
+                ChannelIO.writeFully(coordinator, residualBuffer);
+            } else if (command == DistributedCoordinator.GATHER) {
+                double[] temperatures = engine.getLatestAlloy().getTemperatures();
+                ChannelIO.writeDoubles(coordinator, transferBuffer, temperatures, bandStart * width, (bandEnd - bandStart) * width);
+            } else if (command == DistributedCoordinator.SET) {
+                int count = commandBuffer.getInt(Integer.BYTES);
+                int[] indices = new int[count];
+                double[] temperatures = new double[count];
+                ChannelIO.readInts(coordinator, transferBuffer, indices, 0, count);
+                ChannelIO.readDoubles(coordinator, transferBuffer, temperatures, 0, count);
+                engine.setTemperatures(indices, temperatures);
+            } else {
+                break;
+            }
+        }
+        coordinator.close();
+        if (lowerNeighbor != null) {
+            lowerNeighbor.close();
+        }
+        if (upperNeighbor != null) {
+            upperNeighbor.close();
+        }
+    }
+
+    /**
+     * Sends the edge rows of the band to the neighbors and receives theirs into the halo rows of the latest alloy.
+     * The bottom worker receives before it sends, so the chain of blocking transfers always drains.
+     */
+    private void exchangeHalos() throws IOException {
+        double[] temperatures = engine.getLatestAlloy().getTemperatures();
+        if (lowerNeighbor != null) {
+            sendRow(lowerNeighbor, temperatures, bandEnd - 1);
+        }
+        if (upperNeighbor != null) {
+            receiveRow(upperNeighbor, temperatures, bandStart - 1);
+            sendRow(upperNeighbor, temperatures, bandStart);
+        }
+        if (lowerNeighbor != null) {
+            receiveRow(lowerNeighbor, temperatures, bandEnd);
+        }
+    }
+
+    private void sendRow(SocketChannel neighbor, double[] temperatures, int row) throws IOException {
+        haloValues.clear();
+        haloValues.put(temperatures, row * width, width);
+        haloBuffer.clear();
+        ChannelIO.writeFully(neighbor, haloBuffer);
+    }
+
+    private void receiveRow(SocketChannel neighbor, double[] temperatures, int row) throws IOException {
+        haloBuffer.clear();
+        ChannelIO.readFully(neighbor, haloBuffer);
+        haloValues.clear();
+        haloValues.get(temperatures, row * width, width);
+    }
+
+    /**
+     * Started by the coordinator with its address and the index of the worker's band.
+     */
+    public static void main(String... args) throws IOException {
+        InetSocketAddress coordinatorAddress = new InetSocketAddress(args[0], Integer.parseInt(args[1]));
+        new DistributedWorker(coordinatorAddress, Integer.parseInt(args[2])).serve();
+    }
+}
@@ -0,0 +1,150 @@
+package edu.oswego.cs;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+public class FieldStreamWriter {
+
+    static final int MAGIC = 0x48504653; // "HPFS"
+    static final int VERSION = 1;
+    private static final long MAX_RECORD_BYTES = Integer.MAX_VALUE - 8;
+
+    private final OutputStream output;
+    private final boolean blockWhenFull;
+    private final BlockingQueue<Snapshot> freeSnapshots;
+    private final BlockingQueue<Snapshot> pendingSnapshots;
+    private final Snapshot endOfSnapshots = new Snapshot(0);
+    private final Thread writerThread;
+    private final AtomicLong snapshotsWritten = new AtomicLong();
+    private final AtomicLong snapshotsDropped = new AtomicLong();
+    private volatile IOException failure;
+
+    /**
+     * Streams temperature fields of the simulation to a little endian time-series file:
+     * <pre>
+     * int magic, int version, int height, int width, then per snapshot: long phase, double[height * width] temperatures
+     * </pre>
+     * optionally gzip compressed as a whole. The compute thread only copies the temperatures into one of a fixed ring
+     * of pre-allocated snapshots, encoding and writing happen on a background thread.
+     * @param height the height of the metal alloy
+     * @param width the width of the metal alloy
+     * @param streamFile the file the snapshots are appended to, replaced if it exists
+     * @param numSnapshots the number of snapshots that can be waiting to be written at once
+     * @param blockWhenFull whether capturing a snapshot waits for the writer when every snapshot is waiting to be
+     *                      written, otherwise the snapshot is dropped
+     * @param compress whether to gzip the stream
+     */
+    public FieldStreamWriter(int height, int width, Path streamFile, int numSnapshots, boolean blockWhenFull, boolean compress) throws IOException {
+        if (numSnapshots < 1) {
+            throw new IllegalArgumentException("At least 1 snapshot buffer is needed, got " + numSnapshots);
+        }
+        // a record is encoded into a single byte buffer, which holds at most a little under 2GB
+        long recordBytes = Long.BYTES + (long) height * width * Double.BYTES;
+        if (recordBytes > MAX_RECORD_BYTES) {
+            throw new IllegalArgumentException("A " + height + "x" + width + " field does not fit in a stream record of at most " + MAX_RECORD_BYTES + " bytes");
+        }
+        this.blockWhenFull = blockWhenFull;
+        OutputStream fileOutput = Files.newOutputStream(streamFile);
+        output = compress ? new GZIPOutputStream(fileOutput, 1 << 16) : new BufferedOutputStream(fileOutput, 1 << 16);
+        ByteBuffer header = ByteBuffer.allocate(4 * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN)
+                .putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(height)
+                .putInt(width);
+        output.write(header.array());
+        freeSnapshots = new ArrayBlockingQueue<>(numSnapshots);
+        pendingSnapshots = new ArrayBlockingQueue<>(numSnapshots + 1);
+        for (int i = 0; i < numSnapshots; i++) {
+            freeSnapshots.add(new Snapshot(height * width));
+        }
+        writerThread = new Thread(() -> writeSnapshots((int) recordBytes), "field-stream-writer");
+        // close waits for the snapshots, a simulation that failed before closing the writer must still be able to exit
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Hands the current temperatures of the metal alloy to the writer with a single bulk copy.
+     * @param alloy The metal alloy to capture.
+     * @param phase The phase the temperatures belong to.
+     * @return Whether the snapshot was captured, false if it was dropped because the writer has fallen behind.
+     */
+    public boolean offer(MetalAlloy alloy, long phase) throws IOException, InterruptedException {
+        if (failure != null) {
+            throw failure;
+        }
+        Snapshot snapshot = blockWhenFull ? freeSnapshots.take() : freeSnapshots.poll();
+        if (snapshot == null) {
+            snapshotsDropped.incrementAndGet();
+            return false;
+        }
+        alloy.copyTemperaturesTo(snapshot.temperatures);
+        snapshot.phase = phase;
+        pendingSnapshots.add(snapshot);
+        return true;
+    }
+
+    private void writeSnapshots(int recordBytes) {
+        // a single encoding buffer reused for every snapshot
+        ByteBuffer record = ByteBuffer.allocate(recordBytes).order(ByteOrder.LITTLE_ENDIAN);
+        DoubleBuffer temperatures = record.position(Long.BYTES).slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+        try {
+            Snapshot snapshot;
+            while ((snapshot = pendingSnapshots.take()) != endOfSnapshots) {
+                record.putLong(0, snapshot.phase);
+                temperatures.clear();
+                temperatures.put(snapshot.temperatures);
+                freeSnapshots.add(snapshot);
+                if (failure == null) {
+                    try {
+                        output.write(record.array(), 0, recordBytes);
+                        snapshotsWritten.incrementAndGet();
+                    } catch (IOException e) {
+                        failure = e;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getSnapshotsWritten() {
+        return snapshotsWritten.get();
+    }
+
+    public long getSnapshotsDropped() {
+        return snapshotsDropped.get();
+    }
+
+    /**
+     * Waits for every captured snapshot to be written, stops the writer and closes the file.
+     */
+    public void close() throws IOException, InterruptedException {
+        pendingSnapshots.add(endOfSnapshots);
+        writerThread.join();
+        output.close();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static class Snapshot {
+        private final double[] temperatures;
+        private long phase;
+
+        private Snapshot(int numRegions) {
+            temperatures = new double[numRegions];
+        }
+    }
+}
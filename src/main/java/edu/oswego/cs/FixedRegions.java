@@ -0,0 +1,134 @@
+package edu.oswego.cs;
+
+import java.util.Arrays;
+
+public class FixedRegions {
+
+    private final int height;
+    private final int width;
+    // Row-major indices of the fixed regions in ascending order, without duplicates
+    private final int[] indices;
+
+    /**
+     * The regions of a metal alloy whose temperatures are held fixed, heat sources, sinks and fixed temperature edges.
+     * The kernels calculate every region without checking whether it is fixed and restore the fixed ones afterwards,
+     * or skip over them row segment by row segment when they update in place, so fixed regions cost nothing per
+     * interior region no matter how many of them there are.
+     * @param height the height of the metal alloy
+     * @param width the width of the metal alloy
+     * @param indices the row-major indices of the fixed regions, in any order and possibly repeated
+     */
+    public FixedRegions(int height, int width, int[] indices) {
+        this.height = height;
+        this.width = width;
+        this.indices = Arrays.stream(indices).sorted().distinct().toArray();
+        for (int index : this.indices) {
+            if (index < 0 || index >= height * width) {
+                throw new IllegalArgumentException("Region " + index + " lies outside a " + height + "x" + width + " alloy");
+            }
+        }
+    }
+
+    /**
+     * @return The top left and bottom right corners, the fixed regions of the simulation without a scenario.
+     */
+    public static FixedRegions corners(int height, int width) {
+        return new FixedRegions(height, width, new int[] {0, height * width - 1});
+    }
+
+    /**
+     * @return The fixed regions of the next coarser multigrid level, where every coarse region covering a fixed region
+     * is fixed.
+     */
+    FixedRegions coarsen() {
+        int coarseHeight = (height + 1) / 2;
+        int coarseWidth = (width + 1) / 2;
+        int[] coarseIndices = new int[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            coarseIndices[i] = (indices[i] / width / 2) * coarseWidth + (indices[i] % width) / 2;
+        }
+        return new FixedRegions(coarseHeight, coarseWidth, coarseIndices);
+    }
+
+    /**
+     * @return The column of the first fixed region of the row at or after col and before colEnd, or colEnd if there
+     * is none.
+     */
+    int nextFixedCol(int row, int col, int colEnd) {
+        int rowIndex = row * width;
+        int position = firstAtOrAfter(rowIndex + col);
+        return position < indices.length && indices[position] < rowIndex + colEnd ? indices[position] - rowIndex : colEnd;
+    }
+
+    /**
+     * @return Whether none of the regions within the bounds is fixed, checked once per leaf before looking at rows.
+     */
+    boolean noneWithin(int rowStart, int rowEnd, int colStart, int colEnd) {
+        if (rowStart >= rowEnd || colStart >= colEnd) {
+            return true;
+        }
+        int position = firstAtOrAfter(rowStart * width + colStart);
+        return position == indices.length || indices[position] >= (rowEnd - 1) * width + colEnd;
+    }
+
+    /**
+     * Copies the temperatures of the fixed regions within the bounds from the source to the results. The region at
+     * (row, col) is read from sourceOrigin + row * sourceStride + col of the source and written to
+     * resultsOrigin + row * resultsStride + col of the results.
+     */
+    void keep(double[] source, int sourceOrigin, int sourceStride, double[] results, int resultsOrigin, int resultsStride,
+              int rowStart, int rowEnd, int colStart, int colEnd) {
+        if (noneWithin(rowStart, rowEnd, colStart, colEnd)) {
+            return;
+        }
+        for (int row = rowStart; row < rowEnd; row++) {
+            for (int col = nextFixedCol(row, colStart, colEnd); col < colEnd; col = nextFixedCol(row, col + 1, colEnd)) {
+                results[resultsOrigin + row * resultsStride + col] = source[sourceOrigin + row * sourceStride + col];
+            }
+        }
+    }
+
+    /**
+     * The single precision version of {@link #keep(double[], int, int, double[], int, int, int, int, int, int)} for
+     * planes laid out like the metal alloy.
+     */
+    void keep(float[] source, float[] results, int rowStart, int rowEnd, int colStart, int colEnd) {
+        if (noneWithin(rowStart, rowEnd, colStart, colEnd)) {
+            return;
+        }
+        for (int row = rowStart; row < rowEnd; row++) {
+            for (int col = nextFixedCol(row, colStart, colEnd); col < colEnd; col = nextFixedCol(row, col + 1, colEnd)) {
+                results[row * width + col] = source[row * width + col];
+            }
+        }
+    }
+
+    /**
+     * @return The position of the first fixed index at or after the given index.
+     */
+    private int firstAtOrAfter(int index) {
+        int low = 0;
+        int high = indices.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (indices[middle] < index) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    public int getNumFixed() {
+        return indices.length;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+}
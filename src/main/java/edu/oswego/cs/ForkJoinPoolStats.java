@@ -0,0 +1,51 @@
+package edu.oswego.cs;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Exposes the counters of the fork join pool the simulation runs on, they are read from the pool on demand so the pool
+ * is not slowed down when nobody is looking.
+ */
+public class ForkJoinPoolStats implements ForkJoinPoolStatsMBean {
+
+    private final ForkJoinPool pool;
+
+    public ForkJoinPoolStats(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    @Override
+    public int getPoolSize() {
+        return pool.getPoolSize();
+    }
+
+    @Override
+    public int getActiveThreadCount() {
+        return pool.getActiveThreadCount();
+    }
+
+    @Override
+    public int getRunningThreadCount() {
+        return pool.getRunningThreadCount();
+    }
+
+    @Override
+    public long getQueuedTaskCount() {
+        return pool.getQueuedTaskCount();
+    }
+
+    @Override
+    public int getQueuedSubmissionCount() {
+        return pool.getQueuedSubmissionCount();
+    }
+
+    @Override
+    public long getStealCount() {
+        return pool.getStealCount();
+    }
+}
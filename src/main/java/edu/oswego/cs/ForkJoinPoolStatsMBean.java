@@ -0,0 +1,18 @@
+package edu.oswego.cs;
+
+public interface ForkJoinPoolStatsMBean {
+
+    int getParallelism();
+
+    int getPoolSize();
+
+    int getActiveThreadCount();
+
+    int getRunningThreadCount();
+
+    long getQueuedTaskCount();
+
+    int getQueuedSubmissionCount();
+
+    long getStealCount();
+}
@@ -0,0 +1,134 @@
+package edu.oswego.cs;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class FrameExporter {
+
+    private final int height;
+    private final int width;
+    private final Path frameDirectory;
+    private final BlockingQueue<Frame> freeFrames;
+    private final BlockingQueue<Frame> pendingFrames;
+    private final Frame endOfFrames = new Frame(0);
+    private final Thread encoderThread;
+    private final AtomicLong framesWritten = new AtomicLong();
+    private final AtomicLong framesDropped = new AtomicLong();
+    private volatile IOException failure;
+
+    /**
+     * Exports temperature fields of the simulation as a sequence of PNG images without touching the display. The
+     * compute thread only copies the temperatures into one of a fixed number of pre-allocated frames, rendering and
+     * encoding happen on a background thread. When every frame is still waiting to be encoded new frames are dropped.
+     * If writing a frame fails the encoder stops writing and the failure is thrown by the next offer and by close.
+     * @param height the height of the metal alloy
+     * @param width the width of the metal alloy
+     * @param frameDirectory the directory the PNG sequence is written to
+     * @param numFrames the number of frames that can be waiting to be encoded at once
+     */
+    public FrameExporter(int height, int width, Path frameDirectory, int numFrames) throws IOException {
+        if (numFrames < 1) {
+            throw new IllegalArgumentException("At least 1 frame is needed, got " + numFrames);
+        }
+        this.height = height;
+        this.width = width;
+        this.frameDirectory = Files.createDirectories(frameDirectory);
+        freeFrames = new ArrayBlockingQueue<>(numFrames);
+        pendingFrames = new ArrayBlockingQueue<>(numFrames + 1);
+        for (int i = 0; i < numFrames; i++) {
+            freeFrames.add(new Frame(height * width));
+        }
+        encoderThread = new Thread(this::encodeFrames, "frame-encoder");
+        // close waits for the frames, a simulation that failed before closing the exporter must still be able to exit
+        encoderThread.setDaemon(true);
+        encoderThread.start();
+    }
+
+    /**
+     * Hands the current temperatures of the metal alloy to the encoder, never waiting on it.
+     * @param alloy The metal alloy to capture.
+     * @param phase The phase the temperatures belong to, used to name the image.
+     * @return Whether the frame was captured, false if it was dropped because the encoder has fallen behind.
+     * @throws IOException If the encoder failed to write an earlier frame.
+     */
+    public boolean offer(MetalAlloy alloy, long phase) throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+        Frame frame = freeFrames.poll();
+        if (frame == null) {
+            framesDropped.incrementAndGet();
+            return false;
+        }
+        alloy.copyTemperaturesTo(frame.temperatures);
+        frame.phase = phase;
+        pendingFrames.add(frame);
+        return true;
+    }
+
+    private void encodeFrames() {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        try {
+            Frame frame;
+            while ((frame = pendingFrames.take()) != endOfFrames) {
+                double[] temperatures = frame.temperatures;
+                for (int index = 0; index < pixels.length; index++) {
+                    pixels[index] = TemperatureColorMap.toARGB(temperatures[index]);
+                }
+                Path framePath = frameDirectory.resolve(String.format("frame-%09d.png", frame.phase));
+                freeFrames.add(frame);
+                if (failure == null) {
+                    try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(framePath))) {
+                        if (!ImageIO.write(image, "png", output)) {
+                            throw new IOException("No PNG writer is available");
+                        }
+                        framesWritten.incrementAndGet();
+                    } catch (IOException e) {
+                        failure = e;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getFramesWritten() {
+        return framesWritten.get();
+    }
+
+    public long getFramesDropped() {
+        return framesDropped.get();
+    }
+
+    /**
+     * Waits for every captured frame to be encoded and stops the encoder.
+     * @throws IOException If the encoder failed to write a frame.
+     */
+    public void close() throws IOException, InterruptedException {
+        pendingFrames.add(endOfFrames);
+        encoderThread.join();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static class Frame {
+        private final double[] temperatures;
+        private long phase;
+
+        private Frame(int numRegions) {
+            temperatures = new double[numRegions];
+        }
+    }
+}
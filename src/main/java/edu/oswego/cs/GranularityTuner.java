@@ -0,0 +1,90 @@
+package edu.oswego.cs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+public class GranularityTuner {
+
+    private static final int[] SQUARE_LEAF_SIZES = {16, 32, 64, 128};
+    private static final int WARMUP_PHASES = 2;
+    private static final int MIN_MEASURED_PHASES = 3;
+    private static final long MIN_MEASUREMENT_NANOS = 20_000_000L;
+
+    private GranularityTuner() {
+    }
+
+    /**
+     * Runs a short calibration of the simulation with a number of candidate leaf shapes and picks the one with the
+     * fastest phase. The calibration runs on the given alloys, their temperatures are restored once it is done.
+     * @param alloyA The metal alloy holding the initial temperatures.
+     * @param alloyB The metal alloy used to store the results of the first phase holding the same temperatures, or null
+     *               when the simulation runs in place on a single alloy.
+     * @param pool The fork join pool the simulation will run on.
+     * @param stepsPerPhase The number of steps every phase advances by (the temporal blocking depth).
+     * @param engineFactory Creates an engine configured like the one of the simulation with the given leaf shape.
+     * @return The leaf shape with the lowest calibrated phase time.
+     */
+    public static LeafShape calibrate(MetalAlloy alloyA, MetalAlloy alloyB, ForkJoinPool pool, int stepsPerPhase, Function<LeafShape, HeatPropagationEngine> engineFactory) {
+        int height = alloyA.getHeight();
+        int width = alloyA.getWidth();
+        double[] initialTemperatures = new double[height * width];
+        alloyA.copyTemperaturesTo(initialTemperatures);
+        List<LeafShape> candidates = getCandidates(height, width, pool.getParallelism());
+        // Warm up the kernel before timing anything so the first candidate is not penalized by the JIT
+        runPhases(engineFactory.apply(candidates.get(0)), stepsPerPhase, WARMUP_PHASES * 2);
+        LeafShape fastestShape = candidates.get(0);
+        long fastestPhaseNanos = Long.MAX_VALUE;
+        for (LeafShape candidate : candidates) {
+            HeatPropagationEngine engine = engineFactory.apply(candidate);
+            runPhases(engine, stepsPerPhase, WARMUP_PHASES);
+            long phaseNanos = Long.MAX_VALUE;
+            long measurementStart = System.nanoTime();
+            int measuredPhases = 0;
+            while (measuredPhases < MIN_MEASURED_PHASES || System.nanoTime() - measurementStart < MIN_MEASUREMENT_NANOS) {
+                long phaseStart = System.nanoTime();
+                engine.runPhases(stepsPerPhase, false);
+                phaseNanos = Math.min(phaseNanos, System.nanoTime() - phaseStart);
+                measuredPhases++;
+            }
+            if (phaseNanos < fastestPhaseNanos) {
+                fastestPhaseNanos = phaseNanos;
+                fastestShape = candidate;
+            }
+        }
+        alloyA.copyTemperaturesFrom(initialTemperatures);
+        if (alloyB != null) {
+            alloyB.copyTemperaturesFrom(initialTemperatures);
+        }
+        return fastestShape;
+    }
+
+    /**
+     * Square tiles favour cache reuse between neighboring rows, full-row bands favour long stride-1 inner loops and
+     * fewer tasks. The band heights are chosen so there are still a few bands per worker thread to balance the load.
+     */
+    static List<LeafShape> getCandidates(int height, int width, int parallelism) {
+        List<LeafShape> candidates = new ArrayList<>();
+        for (int size : SQUARE_LEAF_SIZES) {
+            addCandidate(candidates, new LeafShape(size, size).clampTo(height, width));
+        }
+        for (int bandsPerThread : new int[] {1, 4, 16}) {
+            int bandHeight = Math.max(1, height / (bandsPerThread * parallelism));
+            addCandidate(candidates, new LeafShape(bandHeight, width).clampTo(height, width));
+        }
+        return candidates;
+    }
+
+    private static void addCandidate(List<LeafShape> candidates, LeafShape candidate) {
+        if (!candidates.contains(candidate)) {
+            candidates.add(candidate);
+        }
+    }
+
+    private static void runPhases(HeatPropagationEngine engine, int stepsPerPhase, int phases) {
+        for (int i = 0; i < phases; i++) {
+            engine.runPhases(stepsPerPhase, false);
+        }
+    }
+}
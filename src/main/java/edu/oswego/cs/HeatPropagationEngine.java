@@ -0,0 +1,409 @@
+package edu.oswego.cs;
+
+import java.util.concurrent.ForkJoinPool;
+
+public class HeatPropagationEngine implements HeatPropagationSolver {
+
+    public static final LeafShape DEFAULT_LEAF_SHAPE = new LeafShape(16, 16);
+
+    private final ForkJoinPool pool;
+    private final LeafShape leafShape;
+    private final RelaxationKernel kernel;
+    private final HeatPropagationTask rootTask;
+
+    // Red-black gauss seidel and successive over relaxation update a single alloy in place, one color at a time
+    private final boolean inPlace;
+    private final double relaxationFactor;
+    private final double[] rightHandSide;
+    private int sweepColor;
+
+    // Only present when the simulation runs in single precision, the alloys then only hold published results
+    private final SinglePrecisionField singlePrecisionField;
+    private float[] singlePrecisionUsedForCalculations;
+    private float[] singlePrecisionToStoreResults;
+    private boolean singlePrecisionPublished = true;
+    private boolean publishing;
+
+    // Only present when the temperatures are stored outside the heap, the alloys are then absent
+    private final OffHeapGrid offHeapGrid;
+
+    // Only present when tiles that have settled are skipped
+    private ActiveTileTracker activeTileTracker;
+
+    // Swapped between phases, the fork and join of the root task publish them to the worker threads
+    private MetalAlloy alloyUsedForCalculations;
+    private MetalAlloy alloyToStoreResults;
+    private boolean measuringResidual;
+    private int stepsPerPhase = 1;
+    private long phasesCompleted;
+
+    // Scratch buffers for temporal blocking, one pair per worker thread since a leaf only needs them while it computes
+    private final ThreadLocal<double[][]> temporalBlockingBuffers = ThreadLocal.withInitial(() -> new double[][] {new double[0], new double[0]});
+
+    /**
+     * Creates an engine that runs phases of the simulation by double buffering between two metal alloys of the same
+     * dimensions. The fork join decomposition of the alloy is built once and reused for every phase, so running a phase
+     * allocates no tasks.
+     * @param alloyA The metal alloy holding the initial temperatures.
+     * @param alloyB The metal alloy used to store the results of the first phase.
+     * @param pool The fork join pool the phases are executed on.
+     */
+    public HeatPropagationEngine(MetalAlloy alloyA, MetalAlloy alloyB, ForkJoinPool pool) {
+        this(alloyA, alloyB, pool, DEFAULT_LEAF_SHAPE);
+    }
+
+    /**
+     * Creates an engine whose fork join leaves calculate at most the given number of rows and columns.
+     * @param alloyA The metal alloy holding the initial temperatures.
+     * @param alloyB The metal alloy used to store the results of the first phase.
+     * @param pool The fork join pool the phases are executed on.
+     * @param leafShape The maximum dimensions of the regions calculated by a single leaf.
+     */
+    public HeatPropagationEngine(MetalAlloy alloyA, MetalAlloy alloyB, ForkJoinPool pool, LeafShape leafShape) {
+        this(alloyA, alloyB, pool, leafShape, new ScalarRelaxationKernel(), false);
+    }
+
+    /**
+     * Creates an engine that calculates the regions of its leaves with the given kernel.
+     * @param alloyA The metal alloy holding the initial temperatures.
+     * @param alloyB The metal alloy used to store the results of the first phase.
+     * @param pool The fork join pool the phases are executed on.
+     * @param leafShape The maximum dimensions of the regions calculated by a single leaf.
+     * @param kernel The kernel used to calculate the regions of a leaf.
+     * @param singlePrecision Whether the temperatures are calculated in single precision. The metal alloys then only
+     *                        hold the temperatures of the last phase that was published.
+     */
+    public HeatPropagationEngine(MetalAlloy alloyA, MetalAlloy alloyB, ForkJoinPool pool, LeafShape leafShape, RelaxationKernel kernel, boolean singlePrecision) {
+        this(alloyA, alloyB, pool, leafShape, kernel, singlePrecision, 0, alloyA.getHeight());
+    }
+
+    /**
+     * Creates an engine that only calculates a band of rows of the alloys, the rows around the band are left for the
+     * caller to fill in between phases. Used by distributed workers whose alloys hold halo rows owned by their
+     * neighbors.
+     * @param alloyA The metal alloy holding the initial temperatures.
+     * @param alloyB The metal alloy used to store the results of the first phase.
+     * @param pool The fork join pool the phases are executed on.
+     * @param leafShape The maximum dimensions of the regions calculated by a single leaf.
+     * @param kernel The kernel used to calculate the regions of a leaf.
+     * @param singlePrecision Whether the temperatures are calculated in single precision.
+     * @param rowStart Inclusive first row calculated by the engine
+     * @param rowEnd Exclusive last row calculated by the engine
+     */
+    public HeatPropagationEngine(MetalAlloy alloyA, MetalAlloy alloyB, ForkJoinPool pool, LeafShape leafShape, RelaxationKernel kernel, boolean singlePrecision, int rowStart, int rowEnd) {
+        this.pool = pool;
+        this.kernel = kernel;
+        this.inPlace = false;
+        this.relaxationFactor = 1;
+        this.rightHandSide = null;
+        this.offHeapGrid = null;
+        if (singlePrecision) {
+            singlePrecisionField = new SinglePrecisionField(alloyA);
+            singlePrecisionUsedForCalculations = singlePrecisionField.getTemperaturesA();
+            singlePrecisionToStoreResults = singlePrecisionField.getTemperaturesB();
+        } else {
+            singlePrecisionField = null;
+        }
+        this.leafShape = leafShape.clampTo(rowEnd - rowStart, alloyA.getWidth());
+        this.alloyUsedForCalculations = alloyA;
+        this.alloyToStoreResults = alloyB;
+        this.rootTask = new HeatPropagationTask(this, rowStart, rowEnd, 0, alloyA.getWidth());
+    }
+
+    /**
+     * Creates an engine that updates a single metal alloy in place with red-black ordered successive over relaxation.
+     * Every phase is made up of two parallel half sweeps, first over the red regions and then over the black regions.
+     * @param alloy The metal alloy holding the initial temperatures, updated in place.
+     * @param pool The fork join pool the phases are executed on.
+     * @param leafShape The maximum dimensions of the regions calculated by a single leaf.
+     * @param relaxationFactor The over relaxation factor omega, 1 for red-black gauss seidel.
+     */
+    public HeatPropagationEngine(MetalAlloy alloy, ForkJoinPool pool, LeafShape leafShape, double relaxationFactor) {
+        this(alloy, pool, leafShape, relaxationFactor, null);
+    }
+
+    /**
+     * Creates an in place engine whose updates add a right hand side to the weighted sum of every region.
+     * @param alloy The metal alloy holding the initial temperatures, updated in place.
+     * @param pool The fork join pool the phases are executed on.
+     * @param leafShape The maximum dimensions of the regions calculated by a single leaf.
+     * @param relaxationFactor The over relaxation factor omega, 1 for red-black gauss seidel.
+     * @param rightHandSide The row-major values added to the weighted sum of the neighbors, or null for none.
+     */
+    public HeatPropagationEngine(MetalAlloy alloy, ForkJoinPool pool, LeafShape leafShape, double relaxationFactor, double[] rightHandSide) {
+        this.pool = pool;
+        this.kernel = new ScalarRelaxationKernel();
+        this.inPlace = true;
+        this.relaxationFactor = relaxationFactor;
+        this.rightHandSide = rightHandSide;
+        this.offHeapGrid = null;
+        this.singlePrecisionField = null;
+        this.leafShape = leafShape.clampTo(alloy.getHeight(), alloy.getWidth());
+        this.alloyUsedForCalculations = alloy;
+        this.alloyToStoreResults = alloy;
+        this.rootTask = new HeatPropagationTask(this, 0, alloy.getHeight(), 0, alloy.getWidth());
+    }
+
+    /**
+     * Creates an engine that runs jacobi relaxation on a grid stored outside the heap, the leaves read and write its
+     * buffers directly. The engine has no metal alloys, {@link #getLatestAlloy()} returns null.
+     * @param grid The off heap grid holding the initial temperatures.
+     * @param pool The fork join pool the phases are executed on.
+     * @param leafShape The maximum dimensions of the regions calculated by a single leaf.
+     */
+    public HeatPropagationEngine(OffHeapGrid grid, ForkJoinPool pool, LeafShape leafShape) {
+        this.pool = pool;
+        this.kernel = new ScalarRelaxationKernel();
+        this.inPlace = false;
+        this.relaxationFactor = 1;
+        this.rightHandSide = null;
+        this.singlePrecisionField = null;
+        this.offHeapGrid = grid;
+        this.leafShape = leafShape.clampTo(grid.getHeight(), grid.getWidth());
+        this.rootTask = new HeatPropagationTask(this, 0, grid.getHeight(), 0, grid.getWidth());
+    }
+
+    /**
+     * Runs a single phase of jacobi relaxation and swaps the alloys once every region has been calculated. The caller
+     * blocks until the phase is complete, which acts as the barrier between phases.
+     * @param measureResidual Whether the largest temperature change of the phase should be calculated.
+     * @return The largest temperature change of the phase, or NaN if it was not measured.
+     */
+    public double runPhase(boolean measureResidual) {
+        return runPhases(1, measureResidual);
+    }
+
+    /**
+     * Advances the simulation by multiple steps of jacobi relaxation in a single phase using temporal blocking. Every
+     * leaf advances its regions by all the steps while they stay in cache and only then synchronizes with the other
+     * leaves, the results are identical to running the steps one phase at a time.
+     * @param steps The number of steps of jacobi relaxation to advance the simulation by.
+     * @param measureResidual Whether the largest temperature change of the final step should be calculated.
+     * @return The largest temperature change of the final step, or NaN if it was not measured.
+     */
+    @Override
+    public double runPhases(int steps, boolean measureResidual) {
+        if (inPlace) {
+            double residual = Double.NaN;
+            for (int step = 0; step < steps; step++) {
+                boolean lastStep = measureResidual && step == steps - 1;
+                sweepColor = 0;
+                double redResidual = invokePhase(1, lastStep);
+                sweepColor = 1;
+                double blackResidual = invokePhase(1, lastStep);
+                residual = Math.max(redResidual, blackResidual);
+            }
+            phasesCompleted += steps;
+            return residual;
+        }
+        if (activeTileTracker != null) {
+            // the changes of every phase decide which tiles the next phase calculates, so phases run one at a time
+            double residual = Double.NaN;
+            for (int step = 0; step < steps; step++) {
+                activeTileTracker.preparePhase();
+                residual = invokePhase(1, measureResidual && step == steps - 1);
+                MetalAlloy results = alloyToStoreResults;
+                alloyToStoreResults = alloyUsedForCalculations;
+                alloyUsedForCalculations = results;
+            }
+            phasesCompleted += steps;
+            return residual;
+        }
+        if (offHeapGrid != null) {
+            double residual = Double.NaN;
+            for (int step = 0; step < steps; step++) {
+                residual = invokePhase(1, measureResidual && step == steps - 1);
+                offHeapGrid.swapTemperatures();
+            }
+            phasesCompleted += steps;
+            return residual;
+        }
+        if (singlePrecisionField != null) {
+            // temporal blocking is only implemented by the double precision kernel of the metal alloy
+            double residual = Double.NaN;
+            for (int step = 0; step < steps; step++) {
+                residual = invokePhase(1, measureResidual && step == steps - 1);
+                float[] results = singlePrecisionToStoreResults;
+                singlePrecisionToStoreResults = singlePrecisionUsedForCalculations;
+                singlePrecisionUsedForCalculations = results;
+            }
+            singlePrecisionPublished = false;
+            phasesCompleted += steps;
+            return residual;
+        }
+        double residual = invokePhase(steps, measureResidual);
+        MetalAlloy results = alloyToStoreResults;
+        alloyToStoreResults = alloyUsedForCalculations;
+        alloyUsedForCalculations = results;
+        phasesCompleted += steps;
+        return residual;
+    }
+
+    private double invokePhase(int steps, boolean measureResidual) {
+        measuringResidual = measureResidual;
+        stepsPerPhase = steps;
+        rootTask.reinitialize();
+        pool.invoke(rootTask);
+        return measureResidual ? rootTask.getResidual() : Double.NaN;
+    }
+
+    /**
+     * In single precision the metal alloys are only updated on request, widens the temperatures of the most recent
+     * phase into the latest alloy in parallel. Does nothing in double precision or if they were already published.
+     */
+    @Override
+    public void publishLatest() {
+        if (singlePrecisionField == null || singlePrecisionPublished) {
+            return;
+        }
+        publishing = true;
+        rootTask.reinitialize();
+        pool.invoke(rootTask);
+        publishing = false;
+        singlePrecisionPublished = true;
+    }
+
+    /**
+     * @return The metal alloy holding the results of the most recently completed phase, in single precision it holds
+     * the results of the most recently published phase.
+     */
+    @Override
+    public MetalAlloy getLatestAlloy() {
+        return alloyUsedForCalculations;
+    }
+
+    public RelaxationKernel getKernel() {
+        return kernel;
+    }
+
+    public boolean isSinglePrecision() {
+        return singlePrecisionField != null;
+    }
+
+    @Override
+    public boolean publishesOnRequest() {
+        return singlePrecisionField != null;
+    }
+
+    /**
+     * Off heap grids only keep the temperatures of the fixed corners.
+     */
+    @Override
+    public boolean supportsFixedRegions() {
+        return offHeapGrid == null;
+    }
+
+    /**
+     * Sets the temperatures in both buffers, the fixed regions keep them whichever buffer the next phase reads. Tiles
+     * whose temperatures are set count as changed when settled tiles are skipped.
+     */
+    @Override
+    public void setTemperatures(int[] indices, double[] temperatures) {
+        if (offHeapGrid != null) {
+            int width = offHeapGrid.getWidth();
+            for (int i = 0; i < indices.length; i++) {
+                offHeapGrid.setTempOfRegion(temperatures[i], indices[i] / width, indices[i] % width);
+            }
+            return;
+        }
+        int width = alloyUsedForCalculations.getWidth();
+        for (int i = 0; i < indices.length; i++) {
+            alloyUsedForCalculations.setTemperature(indices[i], temperatures[i]);
+            if (alloyToStoreResults != null) {
+                alloyToStoreResults.setTemperature(indices[i], temperatures[i]);
+            }
+            if (singlePrecisionField != null) {
+                singlePrecisionUsedForCalculations[indices[i]] = (float) temperatures[i];
+                singlePrecisionToStoreResults[indices[i]] = (float) temperatures[i];
+            }
+            if (activeTileTracker != null) {
+                activeTileTracker.markChanged(activeTileTracker.tileOf(indices[i] / width, indices[i] % width));
+            }
+        }
+    }
+
+    public LeafShape getLeafShape() {
+        return leafShape;
+    }
+
+    @Override
+    public long getPhasesCompleted() {
+        return phasesCompleted;
+    }
+
+    MetalAlloy getAlloyUsedForCalculations() {
+        return alloyUsedForCalculations;
+    }
+
+    MetalAlloy getAlloyToStoreResults() {
+        return alloyToStoreResults;
+    }
+
+    SinglePrecisionField getSinglePrecisionField() {
+        return singlePrecisionField;
+    }
+
+    /**
+     * Skips the tiles of the alloy that have settled from now on, see {@link ActiveTileTracker}. Only double buffered
+     * jacobi relaxation in double precision tracks tiles, phases then always run one step at a time.
+     * @param activityThreshold The largest temperature change of a tile that still counts as unchanged, 0 only skips
+     *                          tiles that did not change at all.
+     * @return The tracker of the engine's tiles.
+     */
+    public ActiveTileTracker trackActiveTiles(double activityThreshold) {
+        if (inPlace || singlePrecisionField != null || offHeapGrid != null) {
+            throw new IllegalStateException("Only double precision jacobi relaxation on metal alloys can skip settled tiles");
+        }
+        MetalAlloy alloy = alloyUsedForCalculations;
+        activeTileTracker = new ActiveTileTracker(alloy.getHeight(), alloy.getWidth(), leafShape, activityThreshold);
+        return activeTileTracker;
+    }
+
+    ActiveTileTracker getActiveTileTracker() {
+        return activeTileTracker;
+    }
+
+    OffHeapGrid getOffHeapGrid() {
+        return offHeapGrid;
+    }
+
+    float[] getSinglePrecisionUsedForCalculations() {
+        return singlePrecisionUsedForCalculations;
+    }
+
+    float[] getSinglePrecisionToStoreResults() {
+        return singlePrecisionToStoreResults;
+    }
+
+    boolean isInPlace() {
+        return inPlace;
+    }
+
+    double getRelaxationFactor() {
+        return relaxationFactor;
+    }
+
+    double[] getRightHandSide() {
+        return rightHandSide;
+    }
+
+    int getSweepColor() {
+        return sweepColor;
+    }
+
+    boolean isPublishing() {
+        return publishing;
+    }
+
+    boolean isMeasuringResidual() {
+        return measuringResidual;
+    }
+
+    int getStepsPerPhase() {
+        return stepsPerPhase;
+    }
+
+    double[][] getTemporalBlockingBuffers() {
+        return temporalBlockingBuffers.get();
+    }
+}
@@ -4,17 +4,24 @@ import picocli.CommandLine;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
 
+import java.net.InetAddress;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
 
 @Command(name = "HeatPropagation", description = "Runs a heat propagation simulation that utilizes fork join parallelism and jacobi relaxation.")
 public class HeatPropagationSimulation implements Callable<Integer> {
 
-    @Option(names = {"-s"}, description = "The top left corners constant temperature.")
+    @Option(names = {"-s"}, description = "The top left corners constant temperature, unless a scenario is given.")
     private static double s = 6000;
 
-    @Option(names = {"-t"}, description = "The bottom right corners constant temperature.")
+    @Option(names = {"-t"}, description = "The bottom right corners constant temperature, unless a scenario is given.")
     private static double t = 6000;
 
     @Option(names = {"-c1"}, description = "The c1 thermal constant.")
@@ -35,55 +42,567 @@ public class HeatPropagationSimulation implements Callable<Integer> {
     @Option(names = {"-e", "-executionThreshold"}, description = "The number of phases to be executed before the program terminates.")
     private static int threshold = 100000;
 
+    @Option(names = {"-tol", "-tolerance"}, description = "Stops the simulation once the largest temperature change of a phase falls below the tolerance, 0 disables convergence detection.")
+    private static double tolerance = 0;
+
+    @Option(names = {"-ci", "-checkInterval"}, description = "The number of phases between convergence checks when a tolerance is set.")
+    private static int checkInterval = 100;
+
+    @Option(names = {"-k", "-blockDepth"}, description = "The number of phases each fork join leaf advances its regions by before synchronizing with its neighbors (temporal blocking).")
+    private static int blockDepth = 1;
+
+    @Option(names = {"-g", "-granularity"}, description = "The maximum dimensions of the regions a fork join leaf calculates written as ROWSxCOLS, or auto to calibrate them at startup.")
+    private static String granularity = "auto";
+
+    @Option(names = {"-headless", "--headless"}, description = "Runs the simulation without a display.")
+    private static boolean headless = false;
+
+    @Option(names = {"-fi", "-frameInterval"}, description = "Exports every Nth phase as a PNG image, 0 disables frame export.")
+    private static int frameInterval = 0;
+
+    @Option(names = {"-fd", "-frameDirectory"}, description = "The directory exported frames are written to.")
+    private static Path frameDirectory = Path.of("frames");
+
+    @Option(names = {"-fb", "-frameBuffers"}, description = "The number of exported frames that can wait to be encoded before new frames are dropped.")
+    private static int frameBuffers = 4;
+
+    @Option(names = {"-kernel"}, description = "The relaxation kernel, scalar or vector. The vector kernel requires --add-modules jdk.incubator.vector and falls back to scalar without it.")
+    private static String kernelName = "scalar";
+
+    @Option(names = {"-precision"}, description = "The precision temperatures are calculated in, double or float.")
+    private static String precision = "double";
+
+    @Option(names = {"-accuracyReport"}, description = "After a float precision run, reruns the simulation in double precision and reports the difference between the fields.")
+    private static boolean accuracyReport = false;
+
+    @Option(names = {"-solver"}, description = "The solver, jacobi, gauss-seidel, sor or multigrid. Gauss-seidel, sor and multigrid update a single alloy in place with red-black ordering and ignore the kernel and precision, a multigrid phase is a whole cycle.")
+    private static String solverName = "jacobi";
+
+    @Option(names = {"-omega"}, description = "The over relaxation factor of the sor solver, between 1 and 2.")
+    private static double omega = 1.5;
+
+    @Option(names = {"-cycle"}, description = "The multigrid cycle, V or W. V-cycles are cheaper but need more cycles as the alloy grows since the fixed corners are single regions on every level.")
+    private static String cycle = "W";
+
+    @Option(names = {"-preSmooth"}, description = "The red-black sweeps on every multigrid level before its residual is restricted.")
+    private static int preSmoothingSweeps = 2;
+
+    @Option(names = {"-postSmooth"}, description = "The red-black sweeps on every multigrid level after the coarse correction is prolongated.")
+    private static int postSmoothingSweeps = 2;
+
+    @Option(names = {"-checkpoint", "--checkpoint"}, description = "The file checkpoints of the simulation are written to, checkpoints are disabled without it.")
+    private static Path checkpointPath = null;
+
+    @Option(names = {"-checkpointInterval", "--checkpointInterval"}, description = "The number of phases between checkpoints.")
+    private static int checkpointInterval = 10000;
+
+    @Option(names = {"-resume", "--resume"}, description = "Resumes the simulation from a checkpoint, its dimensions, thermal constants and composition replace the options.")
+    private static Path resumePath = null;
+
+    @Option(names = {"-streamFile", "--streamFile"}, description = "The binary time-series file temperature fields are streamed to, streaming is disabled without it.")
+    private static Path streamFile = null;
+
+    @Option(names = {"-streamInterval", "--streamInterval"}, description = "The number of phases between streamed temperature fields.")
+    private static int streamInterval = 100;
+
+    @Option(names = {"-streamBuffers", "--streamBuffers"}, description = "The number of streamed temperature fields that can wait to be written.")
+    private static int streamBuffers = 8;
+
+    @Option(names = {"-streamBackpressure", "--streamBackpressure"}, description = "What happens when every stream buffer is waiting to be written, drop the field or block the simulation.")
+    private static String streamBackpressure = "drop";
+
+    @Option(names = {"-streamCompress", "--streamCompress"}, description = "Gzip compresses the streamed temperature fields.")
+    private static boolean streamCompress = false;
+
+    @Option(names = {"-offHeap", "--offHeap"}, description = "Stores the grid outside the java heap for alloys larger than the heap. Only runs headless jacobi relaxation with the scalar kernel in double precision, without frames, streaming, checkpoints, metrics, tile skipping, workers or sweeps.")
+    private static boolean offHeap = false;
+
+    @Option(names = {"-offHeapFile", "--offHeapFile"}, description = "Maps the off heap grid from this file instead of direct buffers, which are limited by -XX:MaxDirectMemorySize.")
+    private static Path offHeapFile = null;
+
+    @Option(names = {"-workers", "--workers"}, description = "Splits the alloy into row bands calculated by this many worker processes on this machine, 0 runs the simulation in this process. Only supports double precision jacobi relaxation.")
+    private static int workers = 0;
+
+    @Option(names = {"-metrics", "--metrics"}, description = "Records phase latencies, throughput and frame times and exposes them and the fork join pool counters as JMX MBeans.")
+    private static boolean metricsEnabled = false;
+
+    @Option(names = {"-metricsInterval", "--metricsInterval"}, description = "Prints a summary line of the metrics every N seconds, 0 disables the summary. Implies -metrics when set.")
+    private static int metricsInterval = 0;
+
+    @Option(names = {"-sweep", "--sweep"}, description = "Runs every combination of the parameter grid in this file (lines of name=value1,value2 for s, t, c1, c2, c3, height and width) headless on one shared pool.")
+    private static Path sweepFile = null;
+
+    @Option(names = {"-sweepResults", "--sweepResults"}, description = "The CSV file the results of a sweep are written to.")
+    private static Path sweepResults = Path.of("sweep-results.csv");
+
+    @Option(names = {"-sweepJobs", "--sweepJobs"}, description = "The number of sweep simulations that run at the same time, 0 for twice the parallelism of the pool.")
+    private static int sweepJobs = 0;
+
+    @Option(names = {"-activityThreshold", "--activityThreshold"}, description = "Skips tiles whose temperatures and those of their four neighboring tiles changed by at most this much in the previous phase, 0 only skips unchanged tiles and a negative threshold recalculates every tile. Only supports jacobi relaxation in double precision and runs one phase at a time.")
+    private static double activityThreshold = -1;
+
+    @Option(names = {"-seed", "--seed"}, description = "The seed the composition of the alloy is generated from, the same seed always generates the same composition. A random seed is drawn and printed without it.")
+    private static Long seed = null;
+
+    @Option(names = {"-scenario", "--scenario"}, description = "A file of heat sources, sinks, schedules and edges that replace the fixed corners (lines of source ROWS COLS TEMPERATURE, sink ..., edge top|bottom|left|right TEMPERATURE|insulated, a temperature can be a schedule of PHASE:TEMPERATURE,...). Pass it again when resuming.")
+    private static Path scenarioPath = null;
+
+    @Option(names = {"-depth", "--depth"}, description = "The number of layers of a three dimensional alloy relaxed with a seven point stencil, 1 simulates a flat alloy. Volumes only run jacobi relaxation with the scalar kernel in double precision with the fixed corners, without frames, streaming, checkpoints, monitoring, metrics, tile skipping or workers, and their leaves are set with -brick.")
+    private static int depth = 1;
+
+    @Option(names = {"-brick", "--brick"}, description = "The maximum dimensions of the regions of a volume a fork join leaf calculates written as LAYERSxROWSxCOLS.")
+    private static String brick = VolumePropagationEngine.DEFAULT_BRICK_SHAPE.toString();
+
+    @Option(names = {"-monitorPort", "--monitorPort"}, description = "Serves the latest frame, field, run statistics and a WebSocket stream of the simulation over HTTP on this port, 0 picks a free port. The server is disabled without it.")
+    private static Integer monitorPort = null;
+
+    @Option(names = {"-monitorAddress", "--monitorAddress"}, description = "The address the monitoring server listens on. The loopback address keeps it local to this machine, the server has no authentication.")
+    private static InetAddress monitorAddress = InetAddress.getLoopbackAddress();
+
+    @Option(names = {"-monitorInterval", "--monitorInterval"}, description = "The milliseconds between the snapshots the monitoring server takes of the simulation.")
+    private static long monitorInterval = 500;
+
+    @Option(names = {"-monitorStreamSize", "--monitorStreamSize"}, description = "The largest height or width of the fields streamed by the monitoring server, larger alloys are downsampled.")
+    private static int monitorStreamSize = 256;
+
+    private static final long DISPLAY_INTERVAL_MILLIS = 80;
+
+    private static final int OFF_HEAP_LEAF_REGIONS = 1 << 16;
+
     private volatile boolean simulationIsActive;
 
     private volatile MetalAlloy alloyToBePainted;
 
+    private volatile MetalVolume volumeToBePainted;
+
     @Override
     public Integer call() throws Exception {
-        MetalAlloy alloyA = new MetalAlloy(height, width, c1, c2, c3);
-        alloyA.setTempOfRegion(s, 0, 0);
-        alloyA.getMetalAlloyRegion(0, 0).calcRGB();
-        alloyA.setTempOfRegion(t, height - 1, width - 1);
-        alloyA.getMetalAlloyRegion(height - 1, width - 1).calcRGB();
-        MetalAlloy alloyB = new MetalAlloy(height, width, c1, c2, c3);
-        alloyA.deepCopyRegionsTo(alloyB);
+        validateOptions();
+        if (depth > 1) {
+            return runVolume();
+        }
+        if (offHeap) {
+            return runOffHeap();
+        }
+        if (sweepFile != null) {
+            return runSweep();
+        }
+        MetalAlloy alloyA;
+        long firstPhase = 0;
+        if (resumePath != null) {
+            SimulationCheckpoint checkpoint = SimulationCheckpoint.read(resumePath);
+            alloyA = checkpoint.getAlloy();
+            firstPhase = checkpoint.getPhase();
+            height = alloyA.getHeight();
+            width = alloyA.getWidth();
+            c1 = alloyA.getC1();
+            c2 = alloyA.getC2();
+            c3 = alloyA.getC3();
+            System.out.println("Resuming a " + height + "x" + width + " alloy from " + resumePath + " after " + firstPhase + " phases");
+        } else {
+            alloyA = new MetalAlloy(height, width, c1, c2, c3, resolveSeed());
+            if (scenarioPath == null) {
+                alloyA.setTempOfRegion(s, 0, 0);
+                alloyA.setTempOfRegion(t, height - 1, width - 1);
+            }
+        }
+        Scenario scenario = null;
+        if (scenarioPath != null) {
+            if (workers > 0) {
+                throw new IllegalArgumentException("Distributed simulations only hold the fixed corners");
+            }
+            scenario = Scenario.read(scenarioPath, height, width);
+            scenario.applyTo(alloyA, firstPhase);
+            System.out.println("Holding " + scenario.getFixedRegions().getNumFixed() + " fixed regions from " + scenarioPath + (scenario.hasSchedules() ? " with schedules" : ""));
+        }
+        Solver solver = Solver.parse(solverName);
+        boolean distributed = workers > 0;
+        if (distributed && (solver != Solver.JACOBI || precision.equalsIgnoreCase("float"))) {
+            throw new IllegalArgumentException("Distributed simulations only run jacobi relaxation in double precision");
+        }
+        MetalAlloy alloyB = null;
+        if (!solver.isInPlace() && !distributed) {
+            // only jacobi relaxation needs a second alloy to store its results, it shares the composition of the first
+            alloyB = new MetalAlloy(alloyA.getComposition());
+            alloyB.setFixedRegions(alloyA.getFixedRegions());
+            alloyA.deepCopyRegionsTo(alloyB);
+        }
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        RelaxationKernel kernel = RelaxationKernel.select(kernelName.equalsIgnoreCase("vector"));
+        boolean singlePrecision = precision.equalsIgnoreCase("float") && !solver.isInPlace();
+        double relaxationFactor = solver == Solver.SOR ? omega : 1;
+        int cycleIndex = parseCycleIndex(cycle);
+        if (solver == Solver.MULTIGRID) {
+            System.out.println("Using the " + solver + " solver with " + cycle.toUpperCase() + "-cycles, " + preSmoothingSweeps + " pre-smoothing and " + postSmoothingSweeps + " post-smoothing sweeps");
+        } else if (solver.isInPlace()) {
+            System.out.println("Using the " + solver + " solver with an over relaxation factor of " + relaxationFactor);
+        } else {
+            System.out.println("Using the " + solver + " solver with the " + kernel + " kernel in " + (singlePrecision ? "float" : "double") + " precision");
+        }
+        MetalAlloy alloyToStoreResults = alloyB;
+        Function<LeafShape, HeatPropagationEngine> engineFactory = solver.isInPlace()
+                ? shape -> new HeatPropagationEngine(alloyA, pool, shape, relaxationFactor)
+                : shape -> new HeatPropagationEngine(alloyA, alloyToStoreResults, pool, shape, kernel, singlePrecision);
+        LeafShape leafShape;
+        if (distributed && granularity.equalsIgnoreCase("auto")) {
+            // every worker calibrates the leaves of its own band
+            leafShape = null;
+        } else if (granularity.equalsIgnoreCase("auto")) {
+            leafShape = GranularityTuner.calibrate(alloyA, alloyB, pool, blockDepth, engineFactory);
+            System.out.println("Calibrated fork join leaves of " + leafShape + " regions for a " + height + "x" + width + " alloy on " + pool.getParallelism() + " threads");
+        } else {
+            leafShape = LeafShape.parse(granularity);
+            System.out.println("Using fork join leaves of " + leafShape + " regions");
+        }
+        MetalAlloy referenceA = null;
+        MetalAlloy referenceB = null;
+        if (singlePrecision && accuracyReport && scenario != null && scenario.hasSchedules()) {
+            System.out.println("The accuracy report does not follow the schedules of a scenario, skipping it");
+        } else if (singlePrecision && accuracyReport) {
+            referenceA = new MetalAlloy(alloyA.getComposition());
+            referenceB = new MetalAlloy(alloyA.getComposition());
+            referenceA.setFixedRegions(alloyA.getFixedRegions());
+            referenceB.setFixedRegions(alloyA.getFixedRegions());
+            alloyA.deepCopyRegionsTo(referenceA);
+            alloyA.deepCopyRegionsTo(referenceB);
+        }
+        // granularity is calibrated on the smoother of the finest level for multigrid
+        HeatPropagationSolver engine;
+        if (distributed) {
+            engine = new DistributedCoordinator(alloyA, workers, leafShape, kernelName.equalsIgnoreCase("vector"));
+            System.out.println("Distributed the alloy over " + workers + " worker processes");
+        } else if (solver == Solver.MULTIGRID) {
+            engine = new MultigridSolver(alloyA, pool, leafShape, cycleIndex, preSmoothingSweeps, postSmoothingSweeps);
+        } else {
+            HeatPropagationEngine heatPropagationEngine = engineFactory.apply(leafShape);
+            if (activityThreshold >= 0 && solver == Solver.JACOBI && !singlePrecision) {
+                ActiveTileTracker activeTiles = heatPropagationEngine.trackActiveTiles(activityThreshold);
+                System.out.println("Skipping settled tiles of " + heatPropagationEngine.getLeafShape() + " regions out of " + activeTiles.getNumTiles() + " tiles with an activity threshold of " + activityThreshold);
+            } else if (activityThreshold >= 0) {
+                System.out.println("Only jacobi relaxation in double precision skips settled tiles, recalculating every tile");
+            }
+            engine = heatPropagationEngine;
+        }
+        SimulationMetrics metrics = null;
+        if (metricsEnabled || metricsInterval > 0) {
+            metrics = new SimulationMetrics(height, width, pool);
+            metrics.register();
+            if (metricsInterval > 0) {
+                metrics.startSummaries(metricsInterval);
+            }
+        }
         alloyToBePainted = alloyA;
-        MetalAlloyView metalAlloyView = new MetalAlloyView(height, width, alloyA);
-        metalAlloyView.displayRegions(alloyA);
-        metalAlloyView.display();
-        ExecutorService displayService = Executors.newFixedThreadPool(1);
-        // Activate the display for the simulation
-        simulationIsActive = true;
-        displayService.submit(() -> {
-            while (simulationIsActive) {
-                metalAlloyView.displayRegions(alloyToBePainted);
-                try {
-                    Thread.sleep(80);
-                } catch (InterruptedException e) {
-                    throw new RuntimeException(e);
+        if (!headless) {
+            MetalAlloyView metalAlloyView = new MetalAlloyView(height, width, alloyA);
+            metalAlloyView.setMetrics(metrics);
+            metalAlloyView.displayRegions(alloyA);
+            metalAlloyView.display();
+            ExecutorService displayService = Executors.newFixedThreadPool(1);
+            // Activate the display for the simulation
+            simulationIsActive = true;
+            displayService.submit(() -> {
+                while (simulationIsActive) {
+                    metalAlloyView.displayRegions(alloyToBePainted);
+                    try {
+                        Thread.sleep(DISPLAY_INTERVAL_MILLIS);
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            });
+        }
+        MonitorServer monitorServer = null;
+        if (monitorPort != null) {
+            monitorServer = new MonitorServer(monitorAddress, monitorPort, height, width, monitorInterval, monitorStreamSize);
+            monitorServer.offer(alloyA, firstPhase, Double.NaN);
+            System.out.println("Serving the simulation on " + monitorServer.getUrl());
+        }
+        FrameExporter frameExporter = null;
+        if (frameInterval > 0) {
+            frameExporter = new FrameExporter(height, width, frameDirectory, frameBuffers);
+            frameExporter.offer(alloyA, firstPhase);
+        }
+        FieldStreamWriter streamWriter = null;
+        if (streamFile != null) {
+            streamWriter = new FieldStreamWriter(height, width, streamFile, streamBuffers, parseBlockWhenFull(streamBackpressure), streamCompress);
+            streamWriter.offer(alloyA, firstPhase);
+        }
+        CheckpointWriter checkpointWriter = null;
+        if (checkpointPath != null) {
+            checkpointWriter = new CheckpointWriter(checkpointPath, alloyA);
+        }
+        boolean convergenceDetectionEnabled = tolerance > 0;
+        long phase = firstPhase;
+        long lastPublishTime = System.nanoTime();
+        boolean finished = false;
+        // the outputs are closed even when a phase or an output fails, their threads would otherwise outlive the run
+        try {
+            while (phase < threshold) {
+                int steps = (int) Math.min(blockDepth, threshold - phase);
+                long nextPhase = phase + steps;
+                boolean checkForConvergence = convergenceDetectionEnabled && nextPhase / checkInterval > phase / checkInterval;
+                if (scenario != null && scenario.hasSchedules()) {
+                    scenario.applySchedules(engine, phase);
+                }
+                long phaseStart = metrics != null ? System.nanoTime() : 0;
+                double residual = engine.runPhases(steps, checkForConvergence);
+                if (metrics != null) {
+                    metrics.recordPhases(steps, System.nanoTime() - phaseStart);
+                }
+                boolean frameDue = frameExporter != null && nextPhase / frameInterval > phase / frameInterval;
+                boolean checkpointDue = checkpointWriter != null && nextPhase / checkpointInterval > phase / checkpointInterval;
+                boolean streamDue = streamWriter != null && nextPhase / streamInterval > phase / streamInterval;
+                boolean displayDue = !headless && System.nanoTime() - lastPublishTime >= DISPLAY_INTERVAL_MILLIS * 1_000_000;
+                boolean monitorDue = monitorServer != null && System.nanoTime() - lastPublishTime >= monitorInterval * 1_000_000;
+                if (engine.publishesOnRequest() && (frameDue || checkpointDue || streamDue || displayDue || monitorDue)) {
+                    // single precision and distributed results only reach the alloys when something is going to look at them
+                    engine.publishLatest();
+                    lastPublishTime = System.nanoTime();
+                }
+                alloyToBePainted = engine.getLatestAlloy();
+                if (monitorServer != null) {
+                    monitorServer.offer(alloyToBePainted, nextPhase, residual);
                 }
+                if (frameDue) {
+                    frameExporter.offer(alloyToBePainted, nextPhase);
+                }
+                if (checkpointDue) {
+                    checkpointWriter.offer(alloyToBePainted, nextPhase);
+                }
+                if (streamDue) {
+                    streamWriter.offer(alloyToBePainted, nextPhase);
+                }
+                phase = nextPhase;
+                if (checkForConvergence && residual < tolerance) {
+                    System.out.println("Converged after " + phase + " phases with a residual of " + residual);
+                    break;
+                }
+            }
+            engine.publishLatest();
+            alloyToBePainted = engine.getLatestAlloy();
+            finished = true;
+        } finally {
+            if (metrics != null) {
+                metrics.stopSummaries();
+                System.out.println(metrics.summarize());
+            }
+            if (engine instanceof DistributedCoordinator coordinator) {
+                coordinator.close();
+            }
+            if (checkpointWriter != null && !finished) {
+                checkpointWriter.stop();
+            } else if (checkpointWriter != null) {
+                checkpointWriter.close(alloyToBePainted, phase);
+                System.out.println("Wrote " + checkpointWriter.getCheckpointsWritten() + " checkpoints to " + checkpointPath + ", skipped " + checkpointWriter.getCheckpointsSkipped() + " while a write was in progress");
+            }
+            if (streamWriter != null) {
+                streamWriter.close();
+                System.out.println("Streamed " + streamWriter.getSnapshotsWritten() + " temperature fields to " + streamFile + ", dropped " + streamWriter.getSnapshotsDropped());
             }
-        });
-        boolean useAForPreOp = true;
-        for (int i = 0; i < threshold; i++) {
-            if (useAForPreOp) {
-                HeatPropagationTask heatPropagationTask = new HeatPropagationTask(alloyA, alloyB, 0, height, 0, width);
-                heatPropagationTask.fork();
-                heatPropagationTask.join();
-                alloyToBePainted = alloyB;
-            } else {
-                HeatPropagationTask heatPropagationTask = new HeatPropagationTask(alloyB, alloyA, 0, height, 0, width);
-                heatPropagationTask.fork();
-                heatPropagationTask.join();
-                alloyToBePainted = alloyA;
+            if (monitorServer != null) {
+                monitorServer.close();
             }
-            useAForPreOp = !useAForPreOp;
+            if (frameExporter != null) {
+                frameExporter.close();
+                System.out.println("Exported " + frameExporter.getFramesWritten() + " frames to " + frameDirectory + ", dropped " + frameExporter.getFramesDropped());
+            }
+        }
+        if (referenceA != null) {
+            HeatPropagationEngine referenceEngine = new HeatPropagationEngine(referenceA, referenceB, pool, leafShape);
+            for (long referencePhase = firstPhase; referencePhase < phase; referencePhase++) {
+                referenceEngine.runPhase(false);
+            }
+            System.out.println(new PrecisionAccuracyReport(referenceEngine.getLatestAlloy(), engine.getLatestAlloy()));
         }
         return 0;
     }
 
+    /**
+     * Rejects option values the simulation cannot run with before anything is allocated, an interval of zero phases
+     * would never let the simulation advance.
+     */
+    private static void validateOptions() {
+        if (blockDepth < 1) {
+            throw new IllegalArgumentException("The block depth must be at least 1 phase, got " + blockDepth);
+        }
+        if (checkInterval < 1) {
+            throw new IllegalArgumentException("The check interval must be at least 1 phase, got " + checkInterval);
+        }
+        if (checkpointInterval < 1) {
+            throw new IllegalArgumentException("The checkpoint interval must be at least 1 phase, got " + checkpointInterval);
+        }
+        if (streamInterval < 1) {
+            throw new IllegalArgumentException("The stream interval must be at least 1 phase, got " + streamInterval);
+        }
+        if (frameBuffers < 1) {
+            throw new IllegalArgumentException("At least 1 frame buffer is needed, got " + frameBuffers);
+        }
+        if (streamBuffers < 1) {
+            throw new IllegalArgumentException("At least 1 stream buffer is needed, got " + streamBuffers);
+        }
+        if (workers < 0) {
+            throw new IllegalArgumentException("The number of workers can not be negative, got " + workers);
+        }
+        if (monitorInterval < 1) {
+            throw new IllegalArgumentException("The monitor interval must be at least 1 millisecond, got " + monitorInterval);
+        }
+        if (monitorStreamSize < 1) {
+            throw new IllegalArgumentException("The monitor stream size must be at least 1 region, got " + monitorStreamSize);
+        }
+    }
+
+    /**
+     * @return The seed of the composition, drawn at random and printed so the run can be repeated when none was given.
+     */
+    private static long resolveSeed() {
+        if (seed == null) {
+            seed = ThreadLocalRandom.current().nextLong();
+        }
+        System.out.println("Generating the composition from seed " + seed);
+        return seed;
+    }
+
+    /**
+     * Runs the simulations of a parameter sweep, the options provide the values of the parameters the sweep leaves out.
+     */
+    private Integer runSweep() throws Exception {
+        List<double[]> jobs = ParameterSweep.readJobs(sweepFile, new double[] {s, t, c1, c2, c3, height, width});
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int maxConcurrentJobs = sweepJobs > 0 ? sweepJobs : 2 * pool.getParallelism();
+        // calibrating every job would cost more than many of them take to run
+        LeafShape leafShape = granularity.equalsIgnoreCase("auto") ? HeatPropagationEngine.DEFAULT_LEAF_SHAPE : LeafShape.parse(granularity);
+        RelaxationKernel kernel = RelaxationKernel.select(kernelName.equalsIgnoreCase("vector"));
+        ParameterSweep sweep = new ParameterSweep(jobs, pool, maxConcurrentJobs, leafShape, kernel, threshold, tolerance, checkInterval, resolveSeed());
+        System.out.println("Sweeping " + sweep.getNumJobs() + " simulations, " + maxConcurrentJobs + " at a time");
+        long start = System.nanoTime();
+        sweep.run(sweepResults);
+        System.out.println("Wrote the results of " + sweep.getNumJobs() + " simulations to " + sweepResults + " in " + (System.nanoTime() - start) / 1_000_000 + "ms");
+        return 0;
+    }
+
+    /**
+     * Runs jacobi relaxation on a grid stored outside the heap. Nothing reads the whole field while it runs, so the
+     * heap only holds the task tree and the chunk handles of the grid.
+     */
+    private Integer runOffHeap() throws Exception {
+        if (!headless || frameInterval > 0 || streamFile != null || checkpointPath != null || resumePath != null || scenarioPath != null || monitorPort != null || Solver.parse(solverName) != Solver.JACOBI) {
+            throw new IllegalArgumentException("Off heap grids only run headless jacobi relaxation with the fixed corners, without frames, streaming, checkpoints or monitoring");
+        }
+        if (kernelName.equalsIgnoreCase("vector") || precision.equalsIgnoreCase("float") || metricsEnabled || metricsInterval > 0 || activityThreshold >= 0 || workers > 0 || sweepFile != null) {
+            throw new IllegalArgumentException("Off heap grids run the scalar kernel in double precision on every tile in this process, without metrics or sweeps");
+        }
+        OffHeapGrid grid = new OffHeapGrid(height, width, c1, c2, c3, resolveSeed(), offHeapFile);
+        grid.setTempOfRegion(s, 0, 0);
+        grid.setTempOfRegion(t, height - 1, width - 1);
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        // full width bands keep the task tree small on grids of billions of regions
+        LeafShape leafShape = granularity.equalsIgnoreCase("auto")
+                ? new LeafShape(Math.max(1, OFF_HEAP_LEAF_REGIONS / width), width)
+                : LeafShape.parse(granularity);
+        HeatPropagationEngine engine = new HeatPropagationEngine(grid, pool, leafShape);
+        System.out.println("Running a " + height + "x" + width + " alloy off heap" + (offHeapFile != null ? " mapped from " + offHeapFile : "") + " with fork join leaves of " + engine.getLeafShape() + " regions");
+        boolean convergenceDetectionEnabled = tolerance > 0;
+        long phase = 0;
+        while (phase < threshold) {
+            int steps = (int) Math.min(blockDepth, threshold - phase);
+            long nextPhase = phase + steps;
+            boolean checkForConvergence = convergenceDetectionEnabled && nextPhase / checkInterval > phase / checkInterval;
+            double residual = engine.runPhases(steps, checkForConvergence);
+            phase = nextPhase;
+            if (checkForConvergence && residual < tolerance) {
+                System.out.println("Converged after " + phase + " phases with a residual of " + residual);
+                break;
+            }
+        }
+        System.out.println("The center of the alloy reached " + grid.getTempOfRegion(height / 2, width / 2) + " degrees after " + phase + " phases");
+        return 0;
+    }
+
+    /**
+     * Runs jacobi relaxation on a three dimensional alloy, the top left corner of the first layer is held at s and the
+     * bottom right corner of the last layer at t. The display shows one slice of the volume at a time.
+     */
+    private Integer runVolume() throws Exception {
+        if (offHeap || workers > 0 || sweepFile != null || frameInterval > 0 || streamFile != null || checkpointPath != null || resumePath != null
+                || scenarioPath != null || monitorPort != null || Solver.parse(solverName) != Solver.JACOBI || precision.equalsIgnoreCase("float")) {
+            throw new IllegalArgumentException("Volumes only run jacobi relaxation in double precision with the fixed corners, without frames, streaming, checkpoints, monitoring or workers");
+        }
+        if (kernelName.equalsIgnoreCase("vector") || metricsEnabled || metricsInterval > 0 || !granularity.equalsIgnoreCase("auto") || activityThreshold >= 0) {
+            throw new IllegalArgumentException("Volumes run the scalar kernel on every brick without metrics, their leaves are set with -brick instead of -granularity");
+        }
+        MetalVolume volumeA = new MetalVolume(depth, height, width, c1, c2, c3, resolveSeed());
+        volumeA.setTempOfRegion(s, 0, 0, 0);
+        volumeA.setTempOfRegion(t, depth - 1, height - 1, width - 1);
+        MetalVolume volumeB = new MetalVolume(volumeA);
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        VolumePropagationEngine engine = new VolumePropagationEngine(volumeA, volumeB, pool, BrickShape.parse(brick));
+        System.out.println("Running a " + depth + "x" + height + "x" + width + " volume with fork join leaves of " + engine.getBrickShape() + " regions");
+        volumeToBePainted = volumeA;
+        if (!headless) {
+            MetalAlloyView metalAlloyView = new MetalAlloyView(volumeA);
+            metalAlloyView.display();
+            ExecutorService displayService = Executors.newFixedThreadPool(1);
+            simulationIsActive = true;
+            displayService.submit(() -> {
+                while (simulationIsActive) {
+                    metalAlloyView.displaySlice(volumeToBePainted);
+                    try {
+                        Thread.sleep(DISPLAY_INTERVAL_MILLIS);
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            });
+        }
+        boolean convergenceDetectionEnabled = tolerance > 0;
+        long phase = 0;
+        while (phase < threshold) {
+            int steps = (int) Math.min(blockDepth, threshold - phase);
+            long nextPhase = phase + steps;
+            boolean checkForConvergence = convergenceDetectionEnabled && nextPhase / checkInterval > phase / checkInterval;
+            double residual = engine.runPhases(steps, checkForConvergence);
+            volumeToBePainted = engine.getLatestVolume();
+            phase = nextPhase;
+            if (checkForConvergence && residual < tolerance) {
+                System.out.println("Converged after " + phase + " phases with a residual of " + residual);
+                break;
+            }
+        }
+        System.out.println("The center of the volume reached " + engine.getLatestVolume().getTempOfRegion(depth / 2, height / 2, width / 2) + " degrees after " + phase + " phases");
+        return 0;
+    }
+
+    /**
+     * @return The number of coarse grid corrections per multigrid level of the named cycle.
+     */
+    private static int parseCycleIndex(String cycle) {
+        if (cycle.equalsIgnoreCase("V")) {
+            return 1;
+        }
+        if (cycle.equalsIgnoreCase("W")) {
+            return 2;
+        }
+        throw new IllegalArgumentException("Unknown multigrid cycle " + cycle + ", expected V or W");
+    }
+
+    /**
+     * @return Whether the named backpressure blocks the simulation instead of dropping temperature fields.
+     */
+    private static boolean parseBlockWhenFull(String backpressure) {
+        if (backpressure.equalsIgnoreCase("block")) {
+            return true;
+        }
+        if (backpressure.equalsIgnoreCase("drop")) {
+            return false;
+        }
+        throw new IllegalArgumentException("Unknown backpressure " + backpressure + ", expected drop or block");
+    }
+
     public static void main(String ...args) {
+        if (Arrays.asList(args).contains("-headless") || Arrays.asList(args).contains("--headless")) {
+            // Keep AWT from looking for a display when frames are rendered off-screen
+            System.setProperty("java.awt.headless", "true");
+        }
         int exitCode = new CommandLine(new HeatPropagationSimulation()).execute(args);
     }
 }
@@ -0,0 +1,50 @@
+package edu.oswego.cs;
+
+import java.io.IOException;
+
+/**
+ * Advances the temperatures of a metal alloy towards their steady state, one phase at a time. A phase is a single
+ * relaxation sweep for the relaxation engines and a single cycle for the multigrid solver.
+ */
+public interface HeatPropagationSolver {
+
+    /**
+     * Runs the given number of phases.
+     * @param steps The number of phases to run.
+     * @param measureResidual Whether to measure the residual of the last phase.
+     * @return The largest temperature change of the last phase when measured, otherwise NaN.
+     */
+    double runPhases(int steps, boolean measureResidual) throws IOException;
+
+    /**
+     * Makes the results of the most recent phase visible through {@link #getLatestAlloy()}.
+     */
+    void publishLatest() throws IOException;
+
+    /**
+     * @return The metal alloy holding the most recently published results.
+     */
+    MetalAlloy getLatestAlloy();
+
+    /**
+     * @return Whether the latest alloy only holds the results of a phase once they are published, publishing then has
+     * a cost and is left to the moments something looks at the alloy.
+     */
+    boolean publishesOnRequest();
+
+    /**
+     * @return Whether the solver keeps the temperatures of the fixed regions of its alloy, solvers that only keep the
+     * corners can not run the scenarios whose schedules drive other regions.
+     */
+    boolean supportsFixedRegions();
+
+    /**
+     * Overwrites the temperatures of the given regions in the temperatures the next phase is calculated from, used to
+     * drive the fixed regions of a scenario by its schedules between blocks of phases.
+     * @param indices The row-major indices of the regions.
+     * @param temperatures The new temperature of each region.
+     */
+    void setTemperatures(int[] indices, double[] temperatures) throws IOException;
+
+    long getPhasesCompleted();
+}
@@ -3,78 +3,159 @@ package edu.oswego.cs;
 import java.util.concurrent.RecursiveAction;
 
 public class HeatPropagationTask extends RecursiveAction {
-    private final MetalAlloy alloyUsedForCalculations;
-    private final MetalAlloy alloyToStoreResults;
+    private final HeatPropagationEngine engine;
     private final int rowStart;
     private final int rowEnd;
     private final int colStart;
     private final int colEnd;
+    private final HeatPropagationTask[] subtasks;
+    private double residual;
 
     /**
-     * A container object that contains all the necessary data to fork the metal alloy problem.
-     * @param alloyUsedForCalculations Metal alloy that is treated as immutable and used for calculations
-     * @param alloyToStoreResults Metal alloy that is treated as mutable and used to store the results of the calculations.
+     * A container object that contains all the necessary data to fork the metal alloy problem. The task tree is built
+     * once and reused by the engine for every phase, the alloys to read from and write to are taken from the engine
+     * each time the task is computed.
+     * If the specified metal alloy height and width are less than or equal to the leaf height and width of the engine
+     * the task is a leaf. Else the task is broken down in one of three ways, split in half horizontally, split in half
+     * vertically, or split into four corners. The splitting condition is based entirely on whether the width and/or
+     * height of the specified region is within the leaf dimensions. Splits are aligned to multiples of the leaf
+     * dimensions, so the leaves tile the alloy in a regular grid.
+     * @param engine The engine that owns the task tree and the alloys of the current phase.
      * @param rowStart Inclusive row start
      * @param rowEnd Exclusive row end
      * @param colStart Inclusive column end
      * @param colEnd Exclusive column end
      */
-    HeatPropagationTask(MetalAlloy alloyUsedForCalculations, MetalAlloy alloyToStoreResults, int rowStart, int rowEnd, int colStart, int colEnd) {
-        this.alloyUsedForCalculations = alloyUsedForCalculations;
-        this.alloyToStoreResults = alloyToStoreResults;
+    HeatPropagationTask(HeatPropagationEngine engine, int rowStart, int rowEnd, int colStart, int colEnd) {
+        this.engine = engine;
         this.rowStart = rowStart;
         this.rowEnd = rowEnd;
         this.colStart = colStart;
         this.colEnd = colEnd;
+        int leafHeight = engine.getLeafShape().getRows();
+        int leafWidth = engine.getLeafShape().getCols();
+        int height = rowEnd - rowStart;
+        int width = colEnd - colStart;
+        int rowMidpoint = rowStart + alignedHalf(height, leafHeight);
+        int colMidpoint = colStart + alignedHalf(width, leafWidth);
+        if (height <= leafHeight && width <= leafWidth) {
+            subtasks = null;
+        } else if (height <= leafHeight) {
+            // split in half width wise
+            subtasks = new HeatPropagationTask[] {
+                    new HeatPropagationTask(engine, rowStart, rowEnd, colStart, colMidpoint),
+                    new HeatPropagationTask(engine, rowStart, rowEnd, colMidpoint, colEnd)
+            };
+        } else if (width <= leafWidth) {
+            // split in half height wise
+            subtasks = new HeatPropagationTask[] {
+                    new HeatPropagationTask(engine, rowStart, rowMidpoint, colStart, colEnd),
+                    new HeatPropagationTask(engine, rowMidpoint, rowEnd, colStart, colEnd)
+            };
+        } else {
+            // split into quarters
+            subtasks = new HeatPropagationTask[] {
+                    new HeatPropagationTask(engine, rowStart, rowMidpoint, colStart, colMidpoint),
+                    new HeatPropagationTask(engine, rowStart, rowMidpoint, colMidpoint, colEnd),
+                    new HeatPropagationTask(engine, rowMidpoint, rowEnd, colStart, colMidpoint),
+                    new HeatPropagationTask(engine, rowMidpoint, rowEnd, colMidpoint, colEnd)
+            };
+        }
     }
 
     /**
-     * If the specified metal alloy width and height are less than or equal to the calculationThreshold calculate the
-     * temperature and rgb values for the all the enclosed metal alloy regions; Storing the results after each
-     * calculation. Else break the action down in one of three ways, split in half horizontally, split in half
-     * vertically, or split into four corners. The splitting condition is based entirely on whether the width and/or
-     * height of the specified region is within the calculation threshold.
+     * @return Half of the length rounded to a whole number of leaves, so that both halves start on a leaf boundary.
+     */
+    private static int alignedHalf(int length, int leafLength) {
+        int numLeaves = (length + leafLength - 1) / leafLength;
+        return Math.max(1, numLeaves >> 1) * leafLength;
+    }
+
+    /**
+     * Leaves calculate the temperature for all the enclosed metal alloy regions; Storing the results after each
+     * calculation. Colors are no longer calculated here, they are mapped from the temperatures only when a frame is
+     * rendered. Other tasks fork all of their subtasks and join every one of them before completing, so once the root
+     * completes every region of the phase has been calculated. When the engine is measuring the residual each task
+     * also records the largest temperature change of its regions. When the engine advances multiple steps per phase
+     * the residual is the largest temperature change of the final step.
      */
     protected void compute() {
-        int rowMidpoint = (rowStart + rowEnd) >> 1;
-        int colMidpoint = (colStart + colEnd) >> 1;
-        int height = rowEnd - rowStart;
-        int width = colEnd - colStart;
-        int calculationThreshold = 16;
-        if (height <= calculationThreshold && width <= calculationThreshold) {
-            for (int row = rowStart; row < rowEnd; row++) {
-                for (int col = colStart; col < colEnd; col++) {
-                    double result = alloyUsedForCalculations.calculateNewTempForRegion(row, col);
-                    alloyToStoreResults.setTempOfRegion(result, row, col);
-                    alloyToStoreResults.getMetalAlloyRegion(row, col).calcRGB();
+        MetalAlloy alloyUsedForCalculations = engine.getAlloyUsedForCalculations();
+        MetalAlloy alloyToStoreResults = engine.getAlloyToStoreResults();
+        ActiveTileTracker activeTileTracker = engine.getActiveTileTracker();
+        if (activeTileTracker != null && !activeTileTracker.needsWork(rowStart, rowEnd, colStart, colEnd)) {
+            // every tile below this task has settled and both alloys already agree on it
+            residual = 0;
+            return;
+        }
+        if (subtasks == null) {
+            SinglePrecisionField singlePrecisionField = engine.getSinglePrecisionField();
+            int steps = engine.getStepsPerPhase();
+            if (engine.isInPlace()) {
+                double change = alloyUsedForCalculations.calculateNewTempsForRegionsInPlace(engine.getSweepColor(), engine.getRelaxationFactor(), engine.getRightHandSide(), rowStart, rowEnd, colStart, colEnd);
+                if (engine.isMeasuringResidual()) {
+                    residual = change;
+                }
+            } else if (engine.getOffHeapGrid() != null) {
+                OffHeapGrid grid = engine.getOffHeapGrid();
+                grid.calculateNewTempsForRegions(rowStart, rowEnd, colStart, colEnd);
+                if (engine.isMeasuringResidual()) {
+                    residual = grid.calculateMaxTempDifference(rowStart, rowEnd, colStart, colEnd);
+                }
+            } else if (singlePrecisionField != null) {
+                float[] source = engine.getSinglePrecisionUsedForCalculations();
+                if (engine.isPublishing()) {
+                    // the most recent phase is held by the buffer that is read from in the next phase
+                    singlePrecisionField.widenInto(source, alloyUsedForCalculations, rowStart, rowEnd, colStart, colEnd);
+                    return;
+                }
+                float[] results = engine.getSinglePrecisionToStoreResults();
+                engine.getKernel().calculateNewTempsForRegions(singlePrecisionField, source, results, rowStart, rowEnd, colStart, colEnd);
+                if (engine.isMeasuringResidual()) {
+                    residual = singlePrecisionField.calculateMaxTempDifference(source, results, rowStart, rowEnd, colStart, colEnd);
+                }
+            } else if (activeTileTracker != null) {
+                int tile = activeTileTracker.tileOf(rowStart, colStart);
+                if (activeTileTracker.isActive(tile)) {
+                    engine.getKernel().calculateNewTempsForRegions(alloyUsedForCalculations, alloyToStoreResults, rowStart, rowEnd, colStart, colEnd);
+                    residual = alloyUsedForCalculations.calculateMaxTempDifference(alloyToStoreResults, rowStart, rowEnd, colStart, colEnd);
+                    activeTileTracker.markCalculated(tile, residual);
+                } else {
+                    if (!activeTileTracker.isSynced(tile)) {
+                        alloyUsedForCalculations.copyTempsForRegions(alloyToStoreResults, rowStart, rowEnd, colStart, colEnd);
+                        activeTileTracker.markCopied(tile);
+                    }
+                    residual = 0;
+                }
+            } else if (steps == 1) {
+                engine.getKernel().calculateNewTempsForRegions(alloyUsedForCalculations, alloyToStoreResults, rowStart, rowEnd, colStart, colEnd);
+                if (engine.isMeasuringResidual()) {
+                    residual = alloyUsedForCalculations.calculateMaxTempDifference(alloyToStoreResults, rowStart, rowEnd, colStart, colEnd);
                 }
+            } else {
+                // temporal blocking, advance the regions by multiple steps while they stay in cache
+                residual = alloyUsedForCalculations.calculateNewTempsForRegions(alloyToStoreResults, steps, rowStart, rowEnd, colStart, colEnd, engine.getTemporalBlockingBuffers());
             }
-        } else if (height <= calculationThreshold) {
-            // split in half width wise and execute
-            HeatPropagationTask left = new HeatPropagationTask(alloyUsedForCalculations, alloyToStoreResults, rowStart, rowEnd, colStart, colMidpoint);
-            HeatPropagationTask right = new HeatPropagationTask(alloyUsedForCalculations, alloyToStoreResults, rowStart, rowEnd, colMidpoint, colEnd);
-            left.fork();
-            right.fork();
-            left.join();
-            right.join();
-        } else if (width <= calculationThreshold) {
-            // split in half height wise and execute
-            HeatPropagationTask top = new HeatPropagationTask(alloyUsedForCalculations, alloyToStoreResults, rowStart, rowMidpoint, colStart, colEnd);
-            HeatPropagationTask bottom = new HeatPropagationTask(alloyUsedForCalculations, alloyToStoreResults, rowMidpoint, rowEnd, colStart, colEnd);
-            top.fork();
-            bottom.fork();
-            top.join();
-            bottom.join();
         } else {
-            // split into quarters and execute
-            HeatPropagationTask topLeft = new HeatPropagationTask(alloyUsedForCalculations, alloyToStoreResults, rowStart, rowMidpoint, colStart, colMidpoint);
-            HeatPropagationTask topRight = new HeatPropagationTask(alloyUsedForCalculations, alloyToStoreResults, rowStart, rowMidpoint, colMidpoint, colEnd);
-            HeatPropagationTask bottomLeft = new HeatPropagationTask(alloyUsedForCalculations, alloyToStoreResults, rowMidpoint, rowEnd, colStart, colMidpoint);
-            HeatPropagationTask bottomRight = new HeatPropagationTask(alloyUsedForCalculations, alloyToStoreResults, rowMidpoint, rowEnd, colMidpoint, colEnd);
-            topLeft.fork();
-            topRight.fork();
-            bottomLeft.fork();
-            bottomRight.fork();
+            // The subtasks completed in the previous phase, reinitialize them so they can be forked again
+            for (int i = subtasks.length - 1; i > 0; i--) {
+                subtasks[i].reinitialize();
+                subtasks[i].fork();
+            }
+            subtasks[0].compute();
+            double maxResidual = subtasks[0].residual;
+            for (int i = 1; i < subtasks.length; i++) {
+                subtasks[i].join();
+                maxResidual = Math.max(maxResidual, subtasks[i].residual);
+            }
+            residual = maxResidual;
         }
     }
+
+    /**
+     * @return The largest temperature change among the enclosed regions during the last phase that measured it.
+     */
+    double getResidual() {
+        return residual;
+    }
 }
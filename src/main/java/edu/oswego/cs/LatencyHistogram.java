@@ -0,0 +1,91 @@
+package edu.oswego.cs;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class LatencyHistogram {
+
+    // Values are bucketed by their highest set bit and the SUB_BUCKET_BITS bits below it, so a bucket never spans more
+    // than 1/64th of the values it holds. Values below SUB_BUCKET_COUNT get a bucket of their own.
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int NUM_BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(NUM_BUCKETS);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalValue = new AtomicLong();
+    private final AtomicLong maxValue = new AtomicLong();
+
+    /**
+     * Records a non-negative value, typically a duration in nanoseconds. Recording never allocates and is safe to call
+     * while other threads read percentiles.
+     */
+    public void record(long value) {
+        record(value, 1);
+    }
+
+    /**
+     * Records the same non-negative value a number of times.
+     */
+    public void record(long value, long count) {
+        counts.addAndGet(bucketOf(value), count);
+        totalCount.addAndGet(count);
+        totalValue.addAndGet(value * count);
+        maxValue.accumulateAndGet(value, Math::max);
+    }
+
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) Math.max(value, 0);
+        }
+        int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+        return (shift + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /**
+     * @return The middle of the range of values held by the bucket.
+     */
+    private static long valueOf(int bucket) {
+        if (bucket < SUB_BUCKET_COUNT) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKET_COUNT - 1;
+        long lowestValue = (long) (bucket % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT) << shift;
+        return lowestValue + ((1L << shift) >> 1);
+    }
+
+    /**
+     * @param percentile The percentile between 0 and 100.
+     * @return The value at or below which the given percentage of the recorded values fall, within the precision of the
+     * buckets, or 0 if nothing was recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = totalCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < NUM_BUCKETS; bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= rank) {
+                return Math.min(valueOf(bucket), maxValue.get());
+            }
+        }
+        return maxValue.get();
+    }
+
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    public double getMean() {
+        long count = totalCount.get();
+        return count == 0 ? 0 : (double) totalValue.get() / count;
+    }
+
+    public long getMax() {
+        return maxValue.get();
+    }
+}
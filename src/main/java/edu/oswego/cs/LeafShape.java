@@ -0,0 +1,65 @@
+package edu.oswego.cs;
+
+public class LeafShape {
+
+    private final int rows;
+    private final int cols;
+
+    /**
+     * The dimensions of the regions a single fork join leaf calculates.
+     * @param rows The maximum number of rows of a leaf.
+     * @param cols The maximum number of columns of a leaf.
+     */
+    public LeafShape(int rows, int cols) {
+        if (rows < 1 || cols < 1) {
+            throw new IllegalArgumentException("Leaf dimensions must be positive: " + rows + "x" + cols);
+        }
+        this.rows = rows;
+        this.cols = cols;
+    }
+
+    /**
+     * Parses a leaf shape written as ROWSxCOLS, for example 16x16 or 4x400.
+     */
+    public static LeafShape parse(String shape) {
+        String[] dimensions = shape.toLowerCase().split("x");
+        if (dimensions.length != 2) {
+            throw new IllegalArgumentException("Leaf shape must be written as ROWSxCOLS: " + shape);
+        }
+        return new LeafShape(Integer.parseInt(dimensions[0].trim()), Integer.parseInt(dimensions[1].trim()));
+    }
+
+    /**
+     * @return This shape with its dimensions limited to the dimensions of the metal alloy.
+     */
+    public LeafShape clampTo(int height, int width) {
+        return new LeafShape(Math.min(rows, height), Math.min(cols, width));
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof LeafShape)) {
+            return false;
+        }
+        LeafShape shape = (LeafShape) other;
+        return rows == shape.rows && cols == shape.cols;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * rows + cols;
+    }
+
+    @Override
+    public String toString() {
+        return rows + "x" + cols;
+    }
+}
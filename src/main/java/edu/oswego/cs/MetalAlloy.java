@@ -1,8 +1,6 @@
 package edu.oswego.cs;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.ForkJoinPool;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class MetalAlloy {
 
@@ -14,10 +12,28 @@ public class MetalAlloy {
     private double c2;
     private double c3;
 
-    private MetalAlloyRegion[][] metalAlloyRegions;
+    // Row-major plane of the temperatures, the region at (row, col) is stored at index row * width + col
+    private final double[] temperatures;
+
+    // The read-only composition, shared with the other metal alloys of the simulation
+    private final AlloyComposition composition;
+    private final double[] percentsOfMetal1;
+    private final double[] percentsOfMetal2;
+    private final double[] percentsOfMetal3;
+
+    // Precomputed effective conductance of each neighbor divided by the region's number of neighbors, a missing
+    // neighbor has a weight of zero.
+    private final double[] northWeights;
+    private final double[] southWeights;
+    private final double[] westWeights;
+    private final double[] eastWeights;
+
+    // The regions whose temperatures the relaxation leaves untouched, shared with the other metal alloys of the simulation
+    private FixedRegions fixedRegions;
 
     /**
-     * Creates a metal alloy object made up of height * width metal alloy regions
+     * Creates a metal alloy object made up of height * width metal alloy regions with a randomly generated composition
+     * that differs from run to run.
      * @param height the height of the metal alloy
      * @param width the width of the metal alloy
      * @param c1 the first metal of the alloy's thermal constant
@@ -25,118 +41,355 @@ public class MetalAlloy {
      * @param c3 the third metal of the alloy's thermal constant
      */
     public MetalAlloy(int height, int width, double c1, double c2, double c3) {
-        this.height = height;
-        this.width = width;
-        this.c1 = c1;
-        this.c2 = c2;
-        this.c3 = c3;
-        metalAlloyRegions = new MetalAlloyRegion[height][width];
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++) {
-                // Initialize all regions of the alloy to have a temperature of 0 degrees Celsius.
-                metalAlloyRegions[i][j] = new MetalAlloyRegion(0);
-                metalAlloyRegions[i][j].calcRGB();
-            }
-        }
+        this(height, width, c1, c2, c3, ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Creates a metal alloy object made up of height * width metal alloy regions, the same seed always generates the
+     * same composition.
+     * @param height the height of the metal alloy
+     * @param width the width of the metal alloy
+     * @param c1 the first metal of the alloy's thermal constant
+     * @param c2 the second metal of the alloy's thermal constant
+     * @param c3 the third metal of the alloy's thermal constant
+     * @param seed the seed of the composition
+     */
+    public MetalAlloy(int height, int width, double c1, double c2, double c3, long seed) {
+        this(AlloyComposition.generate(height, width, c1, c2, c3, seed));
+    }
+
+    /**
+     * Creates a metal alloy object with a given composition instead of a randomly generated one, all regions start at
+     * a temperature of 0 degrees Celsius.
+     * @param height the height of the metal alloy
+     * @param width the width of the metal alloy
+     * @param c1 the first metal of the alloy's thermal constant
+     * @param c2 the second metal of the alloy's thermal constant
+     * @param c3 the third metal of the alloy's thermal constant
+     * @param percentsOfMetal1 the row-major percentages of the first metal, used as is
+     * @param percentsOfMetal2 the row-major percentages of the second metal, used as is
+     * @param percentsOfMetal3 the row-major percentages of the third metal, used as is
+     */
+    public MetalAlloy(int height, int width, double c1, double c2, double c3, double[] percentsOfMetal1, double[] percentsOfMetal2, double[] percentsOfMetal3) {
+        this(new AlloyComposition(height, width, c1, c2, c3, percentsOfMetal1, percentsOfMetal2, percentsOfMetal3));
+    }
+
+    /**
+     * Creates a metal alloy object that shares the composition of another, only its temperatures are its own. All
+     * regions start at a temperature of 0 degrees Celsius, the top left and bottom right corners are fixed.
+     * @param composition the composition of the metal alloy
+     */
+    public MetalAlloy(AlloyComposition composition) {
+        this.height = composition.getHeight();
+        this.width = composition.getWidth();
+        this.c1 = composition.getC1();
+        this.c2 = composition.getC2();
+        this.c3 = composition.getC3();
+        this.composition = composition;
+        temperatures = new double[height * width];
+        percentsOfMetal1 = composition.getPercentsOfMetal1();
+        percentsOfMetal2 = composition.getPercentsOfMetal2();
+        percentsOfMetal3 = composition.getPercentsOfMetal3();
+        northWeights = composition.getNorthWeights();
+        southWeights = composition.getSouthWeights();
+        westWeights = composition.getWestWeights();
+        eastWeights = composition.getEastWeights();
+        fixedRegions = FixedRegions.corners(height, width);
+    }
+
+    /**
+     * @return The effective thermal conductance of the region at the given index.
+     */
+    double getConductance(int index) {
+        return composition.getConductance(index);
+    }
+
+    /**
+     * Converts a row and column into the index of the region within the alloy's planes.
+     */
+    public int indexOf(int row, int col) {
+        return row * width + col;
     }
 
     public void setTempOfRegion(double newTemp, int row, int col) {
-        metalAlloyRegions[row][col].setTemperature(newTemp);
+        temperatures[indexOf(row, col)] = newTemp;
+    }
+
+    public double getTempOfRegion(int row, int col) {
+        return temperatures[indexOf(row, col)];
+    }
+
+    public void setTemperature(int index, double newTemp) {
+        temperatures[index] = newTemp;
     }
 
-    public MetalAlloyRegion getMetalAlloyRegion(int row, int col) {
-        return metalAlloyRegions[row][col];
+    public double getTemperature(int index) {
+        return temperatures[index];
+    }
+
+    /**
+     * Copies the temperature of every region into the destination in row-major order.
+     */
+    public void copyTemperaturesTo(double[] destination) {
+        System.arraycopy(temperatures, 0, destination, 0, temperatures.length);
+    }
+
+    /**
+     * Replaces the temperature of every region with the row-major temperatures of the source.
+     */
+    public void copyTemperaturesFrom(double[] source) {
+        System.arraycopy(source, 0, temperatures, 0, temperatures.length);
+    }
+
+    /**
+     * Copies the temperatures of a rectangle of regions to another metal alloy of the same dimensions.
+     * @param alloyToStoreResults The metal alloy the temperatures are copied to.
+     * @param rowStart Inclusive row start
+     * @param rowEnd Exclusive row end
+     * @param colStart Inclusive column start
+     * @param colEnd Exclusive column end
+     */
+    public void copyTempsForRegions(MetalAlloy alloyToStoreResults, int rowStart, int rowEnd, int colStart, int colEnd) {
+        for (int row = rowStart; row < rowEnd; row++) {
+            int rowIndex = row * width;
+            System.arraycopy(temperatures, rowIndex + colStart, alloyToStoreResults.temperatures, rowIndex + colStart, colEnd - colStart);
+        }
+    }
+
+    public double getPercentOfMetal1(int index) {
+        return percentsOfMetal1[index];
+    }
+
+    public double getPercentOfMetal2(int index) {
+        return percentsOfMetal2[index];
+    }
+
+    public double getPercentOfMetal3(int index) {
+        return percentsOfMetal3[index];
     }
 
     /**
      * Calculates the new temperature for a region based on the temperatures of it's bordering neighbors (north, east,
-     * west, south). Utilizes jacobi relaxation to approximates temperatures.
+     * west, south). Utilizes jacobi relaxation to approximates temperatures. Fixed regions are calculated like any
+     * other, the callers restore them afterwards.
      * @param row The row of the metal alloy region.
      * @param col The column of the metal alloy region.
      * @return The new temperature for the selected region.
      */
     public double calculateNewTempForRegion(int row, int col) {
-        // Don't change the temperature of the top left corner
-        if (row == col && row == 0) {
-            return metalAlloyRegions[row][col].getTemperature();
-        }
-        // Don't change the temperature of the bottom right corner
-        if (row == height - 1 && col == width - 1) {
-            return metalAlloyRegions[row][col].getTemperature();
-        }
-        double metal1TempSummation = getMetalSummation(row, col, 1);
-        double metal2TempSummation = getMetalSummation(row, col, 2);
-        double metal3TempSummation = getMetalSummation(row, col, 3);
-        // finding the number of  neighbors
-        int numNeighbors = 0;
-        if (row > 0) {
-            numNeighbors++;
+        int index = indexOf(row, col);
+        // Missing neighbors have a weight of zero, so pointing them at the region itself keeps the sum branch-free.
+        int northOffset = row > 0 ? width : 0;
+        int southOffset = row < height - 1 ? width : 0;
+        int westOffset = col > 0 ? 1 : 0;
+        int eastOffset = col < width - 1 ? 1 : 0;
+        return calculateWeightedSum(temperatures, index, index, northOffset, southOffset, westOffset, eastOffset);
+    }
+
+    /**
+     * Calculates the new temperature of every region within the specified bounds using jacobi relaxation and stores
+     * the results in the target metal alloy. The inner loop over the interior columns of a row is a branch-free four
+     * term weighted sum, the first and last column of the alloy are handled separately and the fixed regions are
+     * restored once the bounds are calculated.
+     * @param alloyToStoreResults Metal alloy that is treated as mutable and used to store the results of the calculations.
+     * @param rowStart Inclusive row start
+     * @param rowEnd Exclusive row end
+     * @param colStart Inclusive column start
+     * @param colEnd Exclusive column end
+     */
+    public void calculateNewTempsForRegions(MetalAlloy alloyToStoreResults, int rowStart, int rowEnd, int colStart, int colEnd) {
+        relaxRegions(temperatures, 0, width, alloyToStoreResults.temperatures, 0, width, rowStart, rowEnd, colStart, colEnd);
+    }
+
+    /**
+     * Advances the regions within the specified bounds by multiple steps of jacobi relaxation while they stay in cache.
+     * The bounds plus a halo as deep as the number of steps are copied into a scratch buffer, every step then shrinks
+     * the calculated area by one region on each side until only the specified bounds remain for the final step, whose
+     * results are stored in the target metal alloy. Every region is calculated with the same weighted sum as the single
+     * step path, so the results are identical to running the steps one phase at a time.
+     * @param alloyToStoreResults Metal alloy that is treated as mutable and used to store the results of the final step.
+     * @param steps The number of steps of jacobi relaxation to advance the regions by.
+     * @param rowStart Inclusive row start
+     * @param rowEnd Exclusive row end
+     * @param colStart Inclusive column start
+     * @param colEnd Exclusive column end
+     * @param scratchBuffers Two reusable scratch buffers, replaced with larger ones when they are too small.
+     * @return The maximum absolute temperature change of the final step within the bounds.
+     */
+    public double calculateNewTempsForRegions(MetalAlloy alloyToStoreResults, int steps, int rowStart, int rowEnd, int colStart, int colEnd, double[][] scratchBuffers) {
+        int haloRowStart = Math.max(rowStart - steps, 0);
+        int haloRowEnd = Math.min(rowEnd + steps, height);
+        int haloColStart = Math.max(colStart - steps, 0);
+        int haloColEnd = Math.min(colEnd + steps, width);
+        int stride = haloColEnd - haloColStart;
+        int scratchSize = (haloRowEnd - haloRowStart) * stride;
+        if (scratchBuffers[0].length < scratchSize) {
+            scratchBuffers[0] = new double[scratchSize];
+            scratchBuffers[1] = new double[scratchSize];
         }
-        if (row < height - 1) {
-            numNeighbors++;
+        double[] previous = scratchBuffers[0];
+        double[] next = scratchBuffers[1];
+        // the region at (row, col) is stored at origin + row * stride + col within the scratch buffers
+        int origin = -(haloRowStart * stride + haloColStart);
+        for (int row = haloRowStart; row < haloRowEnd; row++) {
+            System.arraycopy(temperatures, row * width + haloColStart, previous, (row - haloRowStart) * stride, stride);
         }
-        if (col > 0) {
-            numNeighbors++;
+        for (int step = 1; step < steps; step++) {
+            int halo = steps - step;
+            relaxRegions(previous, origin, stride, next, origin, stride,
+                    Math.max(rowStart - halo, 0), Math.min(rowEnd + halo, height),
+                    Math.max(colStart - halo, 0), Math.min(colEnd + halo, width));
+            double[] swap = previous;
+            previous = next;
+            next = swap;
         }
-        if (col < width - 1) {
-            numNeighbors++;
+        double[] results = alloyToStoreResults.temperatures;
+        relaxRegions(previous, origin, stride, results, 0, width, rowStart, rowEnd, colStart, colEnd);
+        double maxDifference = 0;
+        for (int row = rowStart; row < rowEnd; row++) {
+            for (int col = colStart; col < colEnd; col++) {
+                maxDifference = Math.max(maxDifference, Math.abs(results[row * width + col] - previous[origin + row * stride + col]));
+            }
         }
-        double temperatureOfRegion = 0;
-        temperatureOfRegion += c1 * metal1TempSummation / numNeighbors;
-        temperatureOfRegion += c2 * metal2TempSummation / numNeighbors;
-        temperatureOfRegion += c3 * metal3TempSummation / numNeighbors;
-        return temperatureOfRegion;
+        return maxDifference;
     }
 
     /**
-     * Takes a metal type of either 1, 2, or 3, since a metal alloy is made up of 3 metals, and sums up the associated
-     * temperature with its neighbors. Each neighbors temperature for a specific metal is calculated as metal percent
-     * present in alloy multiplied by the temperature of the alloy.
-     * @return The summation of metal percent temperatures of all bordering neighbors.
+     * The jacobi relaxation kernel. The region at (row, col) is read from sourceOrigin + row * sourceStride + col of the
+     * source and written to resultsOrigin + row * resultsStride + col of the results, while its weights are always
+     * found at row * width + col.
      */
-    public double getMetalSummation(int row, int col, int metalType) {
-        double metalSummation = 0;
-        if (metalType == 1) {
-            if (row > 0) {
-                metalSummation += metalAlloyRegions[row - 1][col].getPercentOfMetal1() * metalAlloyRegions[row - 1][col].getTemperature();
-            }
-            if (row < height - 1) {
-                metalSummation += metalAlloyRegions[row + 1][col].getPercentOfMetal1() * metalAlloyRegions[row + 1][col].getTemperature();
-            }
-            if (col > 0) {
-                metalSummation += metalAlloyRegions[row][col - 1].getPercentOfMetal1() * metalAlloyRegions[row][col - 1].getTemperature();
-            }
-            if (col < width - 1) {
-                metalSummation += metalAlloyRegions[row][col + 1].getPercentOfMetal1() * metalAlloyRegions[row][col + 1].getTemperature();
-            }
-        } else if (metalType == 2) {
-            if (row > 0) {
-                metalSummation += metalAlloyRegions[row - 1][col].getPercentOfMetal2() * metalAlloyRegions[row - 1][col].getTemperature();
-            }
-            if (row < height - 1) {
-                metalSummation += metalAlloyRegions[row + 1][col].getPercentOfMetal2() * metalAlloyRegions[row + 1][col].getTemperature();
-            }
-            if (col > 0) {
-                metalSummation += metalAlloyRegions[row][col - 1].getPercentOfMetal2() * metalAlloyRegions[row][col - 1].getTemperature();
-            }
-            if (col < width - 1) {
-                metalSummation += metalAlloyRegions[row][col + 1].getPercentOfMetal2() * metalAlloyRegions[row][col + 1].getTemperature();
+    private void relaxRegions(double[] source, int sourceOrigin, int sourceStride, double[] results, int resultsOrigin, int resultsStride,
+                              int rowStart, int rowEnd, int colStart, int colEnd) {
+        int interiorColStart = Math.max(colStart, 1);
+        int interiorColEnd = Math.min(colEnd, width - 1);
+        for (int row = rowStart; row < rowEnd; row++) {
+            int northOffset = row > 0 ? sourceStride : 0;
+            int southOffset = row < height - 1 ? sourceStride : 0;
+            int rowIndex = row * width;
+            int sourceRowIndex = sourceOrigin + row * sourceStride;
+            int resultsRowIndex = resultsOrigin + row * resultsStride;
+            if (colStart == 0) {
+                results[resultsRowIndex] = calculateWeightedSum(source, sourceRowIndex, rowIndex, northOffset, southOffset, 0, width > 1 ? 1 : 0);
             }
-        } else if (metalType == 3) {
-            if (row > 0) {
-                metalSummation += metalAlloyRegions[row - 1][col].getPercentOfMetal3() * metalAlloyRegions[row - 1][col].getTemperature();
+            int sourceIndex = sourceRowIndex + interiorColStart;
+            int resultsIndex = resultsRowIndex + interiorColStart;
+            for (int index = rowIndex + interiorColStart; index < rowIndex + interiorColEnd; index++, sourceIndex++, resultsIndex++) {
+                results[resultsIndex] = northWeights[index] * source[sourceIndex - northOffset]
+                        + southWeights[index] * source[sourceIndex + southOffset]
+                        + westWeights[index] * source[sourceIndex - 1]
+                        + eastWeights[index] * source[sourceIndex + 1];
             }
-            if (row < height - 1) {
-                metalSummation += metalAlloyRegions[row + 1][col].getPercentOfMetal3() * metalAlloyRegions[row + 1][col].getTemperature();
+            if (colEnd == width && width > 1) {
+                results[resultsRowIndex + width - 1] = calculateWeightedSum(source, sourceRowIndex + width - 1, rowIndex + width - 1, northOffset, southOffset, 1, 0);
             }
-            if (col > 0) {
-                metalSummation += metalAlloyRegions[row][col - 1].getPercentOfMetal3() * metalAlloyRegions[row][col - 1].getTemperature();
+        }
+        // Don't change the temperature of the fixed regions
+        fixedRegions.keep(source, sourceOrigin, sourceStride, results, resultsOrigin, resultsStride, rowStart, rowEnd, colStart, colEnd);
+    }
+
+    /**
+     * Restores the temperatures of the fixed regions within the bounds in the target metal alloy, for kernels that
+     * calculate every region of the bounds.
+     */
+    void keepFixedTemps(MetalAlloy alloyToStoreResults, int rowStart, int rowEnd, int colStart, int colEnd) {
+        fixedRegions.keep(temperatures, 0, width, alloyToStoreResults.temperatures, 0, width, rowStart, rowEnd, colStart, colEnd);
+    }
+
+    /**
+     * Updates the temperature of every region of one color within the specified bounds in place, using successive over
+     * relaxation of the gauss seidel update. The regions are colored like a checkerboard, red regions have an even
+     * row + col and black regions an odd one, so every neighbor of a region has the other color and all regions of one
+     * color can be updated in parallel. Fixed regions are skipped by splitting each row into the segments between them.
+     * @param color 0 to update the red regions, 1 to update the black regions.
+     * @param relaxationFactor The over relaxation factor omega, 1 is a plain gauss seidel update.
+     * @param rowStart Inclusive row start
+     * @param rowEnd Exclusive row end
+     * @param colStart Inclusive column start
+     * @param colEnd Exclusive column end
+     * @return The maximum absolute temperature change of the updated regions.
+     */
+    public double calculateNewTempsForRegionsInPlace(int color, double relaxationFactor, int rowStart, int rowEnd, int colStart, int colEnd) {
+        return calculateNewTempsForRegionsInPlace(color, relaxationFactor, null, rowStart, rowEnd, colStart, colEnd);
+    }
+
+    /**
+     * The in place update with a right hand side added to the weighted sum of every region, used by the multigrid
+     * solver to smooth the error equation of its coarser levels.
+     * @param color 0 to update the red regions, 1 to update the black regions.
+     * @param relaxationFactor The over relaxation factor omega, 1 is a plain gauss seidel update.
+     * @param rightHandSide The row-major values added to the weighted sum of the neighbors, or null for none.
+     * @param rowStart Inclusive row start
+     * @param rowEnd Exclusive row end
+     * @param colStart Inclusive column start
+     * @param colEnd Exclusive column end
+     * @return The maximum absolute temperature change of the updated regions.
+     */
+    public double calculateNewTempsForRegionsInPlace(int color, double relaxationFactor, double[] rightHandSide, int rowStart, int rowEnd, int colStart, int colEnd) {
+        double maxDifference = 0;
+        for (int row = rowStart; row < rowEnd; row++) {
+            int northOffset = row > 0 ? width : 0;
+            int southOffset = row < height - 1 ? width : 0;
+            // first column of the row whose row + col has the parity of the color
+            int col = colStart + ((row + colStart + color) & 1);
+            while (col < colEnd) {
+                int segmentEnd = fixedRegions.nextFixedCol(row, col, colEnd);
+                for (; col < segmentEnd; col += 2) {
+                    maxDifference = Math.max(maxDifference, relaxRegionInPlace(row, col, relaxationFactor, rightHandSide, northOffset, southOffset));
+                }
+                if (col == segmentEnd) {
+                    // Don't change the temperature of the fixed region, it has the color being updated
+                    col += 2;
+                }
             }
-            if (col < width - 1) {
-                metalSummation += metalAlloyRegions[row][col + 1].getPercentOfMetal3() * metalAlloyRegions[row][col + 1].getTemperature();
+        }
+        return maxDifference;
+    }
+
+    /**
+     * @return The absolute temperature change of a single region updated in place.
+     */
+    private double relaxRegionInPlace(int row, int col, double relaxationFactor, double[] rightHandSide, int northOffset, int southOffset) {
+        int index = row * width + col;
+        int westOffset = col > 0 ? 1 : 0;
+        int eastOffset = col < width - 1 ? 1 : 0;
+        double oldTemp = temperatures[index];
+        double gaussSeidelTemp = calculateWeightedSum(temperatures, index, index, northOffset, southOffset, westOffset, eastOffset);
+        if (rightHandSide != null) {
+            gaussSeidelTemp += rightHandSide[index];
+        }
+        double newTemp = oldTemp + relaxationFactor * (gaussSeidelTemp - oldTemp);
+        temperatures[index] = newTemp;
+        return Math.abs(newTemp - oldTemp);
+    }
+
+    /**
+     * Finds the largest temperature difference between the regions of this metal alloy and another metal alloy of the
+     * same dimensions within the specified bounds.
+     * @param otherAlloy The metal alloy to compare against, typically the result of the next phase.
+     * @param rowStart Inclusive row start
+     * @param rowEnd Exclusive row end
+     * @param colStart Inclusive column start
+     * @param colEnd Exclusive column end
+     * @return The maximum absolute temperature difference (residual) within the bounds.
+     */
+    public double calculateMaxTempDifference(MetalAlloy otherAlloy, int rowStart, int rowEnd, int colStart, int colEnd) {
+        double[] otherTemperatures = otherAlloy.temperatures;
+        double maxDifference = 0;
+        for (int row = rowStart; row < rowEnd; row++) {
+            int rowIndex = row * width;
+            for (int index = rowIndex + colStart; index < rowIndex + colEnd; index++) {
+                maxDifference = Math.max(maxDifference, Math.abs(otherTemperatures[index] - temperatures[index]));
             }
         }
-        return metalSummation;
+        return maxDifference;
+    }
+
+    private double calculateWeightedSum(double[] source, int sourceIndex, int index, int northOffset, int southOffset, int westOffset, int eastOffset) {
+        return northWeights[index] * source[sourceIndex - northOffset]
+                + southWeights[index] * source[sourceIndex + southOffset]
+                + westWeights[index] * source[sourceIndex - westOffset]
+                + eastWeights[index] * source[sourceIndex + eastOffset];
     }
 
     public int getHeight() {
@@ -147,18 +400,78 @@ public class MetalAlloy {
         return width;
     }
 
+    public double getC1() {
+        return c1;
+    }
+
+    public double getC2() {
+        return c2;
+    }
+
+    public double getC3() {
+        return c3;
+    }
+
+    // The planes themselves, used by the kernels that work on them directly
+    double[] getTemperatures() {
+        return temperatures;
+    }
+
+    public FixedRegions getFixedRegions() {
+        return fixedRegions;
+    }
+
     /**
-     * Copies the metal percentages, temperature, and RGB values of every metal alloy region to the target metal alloy.
+     * Replaces the fixed regions, every metal alloy of a simulation has to share the same ones.
+     */
+    public void setFixedRegions(FixedRegions fixedRegions) {
+        if (fixedRegions.getHeight() != height || fixedRegions.getWidth() != width) {
+            throw new IllegalArgumentException("The fixed regions of a " + fixedRegions.getHeight() + "x" + fixedRegions.getWidth() + " alloy do not fit a " + height + "x" + width + " alloy");
+        }
+        this.fixedRegions = fixedRegions;
+    }
+
+    public AlloyComposition getComposition() {
+        return composition;
+    }
+
+    double[] getPercentsOfMetal1() {
+        return percentsOfMetal1;
+    }
+
+    double[] getPercentsOfMetal2() {
+        return percentsOfMetal2;
+    }
+
+    double[] getPercentsOfMetal3() {
+        return percentsOfMetal3;
+    }
+
+    double[] getNorthWeights() {
+        return northWeights;
+    }
+
+    double[] getSouthWeights() {
+        return southWeights;
+    }
+
+    double[] getWestWeights() {
+        return westWeights;
+    }
+
+    double[] getEastWeights() {
+        return eastWeights;
+    }
+
+    /**
+     * Copies the temperature of every metal alloy region to a target metal alloy of the same composition, which the
+     * two share instead of copying it.
      * @param alloyToStore The target metal alloy to store the results of the "deep copy".
      */
     public void deepCopyRegionsTo(MetalAlloy alloyToStore) {
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++) {
-                double tempOfRegion = metalAlloyRegions[i][j].getTemperature();
-                alloyToStore.setTempOfRegion(tempOfRegion, i, j);
-                MetalAlloyRegion region = alloyToStore.getMetalAlloyRegion(i,j);
-                region.deepCopyRegion(metalAlloyRegions[i][j]);
-            }
+        if (alloyToStore.composition != composition) {
+            throw new IllegalArgumentException("Only the temperatures of metal alloys sharing a composition can be copied");
         }
+        System.arraycopy(temperatures, 0, alloyToStore.temperatures, 0, height * width);
     }
 }
@@ -1,15 +1,10 @@
 package edu.oswego.cs;
 
-import java.io.Serializable;
-import java.util.Random;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
-public class MetalAlloyRegion implements Serializable {
+public class MetalAlloyRegion {
 
-    private double temperature;
-    private volatile int r;
-    private volatile int g;
-    private volatile int b;
     public static final double TEMPTHRESHOLD1 = 0;
     public static final int RTHRESHOLD1 = 13;
     public static final int GTHRESHOLD1 = 21;
@@ -27,9 +22,19 @@ public class MetalAlloyRegion implements Serializable {
     private double percentOfMetal3;
 
 
-    public MetalAlloyRegion(double temperature) {
-        this.temperature = temperature;
-        Random random = ThreadLocalRandom.current();
+    /**
+     * Generates a randomly varied composition for a single region of a metal alloy. The region itself is no longer
+     * stored per cell, the metal alloy copies the generated percentages into its composition planes.
+     */
+    public MetalAlloyRegion() {
+        this(ThreadLocalRandom.current());
+    }
+
+    /**
+     * Generates a randomly varied composition for a single region of a metal alloy from the given generator.
+     * @param random the generator the variations of the metals are drawn from
+     */
+    public MetalAlloyRegion(RandomGenerator random) {
         double baseMetalPercent = 1.0 / 3.0;
         // varying metal composition
         double variance = baseMetalPercent * 0.25;
@@ -91,30 +96,6 @@ public class MetalAlloyRegion implements Serializable {
         }
     }
 
-    public void setTemperature(double temperature) {
-        this.temperature = temperature;
-    }
-
-    public double getTemperature() {
-        return temperature;
-    }
-
-    public void increaseTemperature(double tempIncrease) {
-        temperature += tempIncrease;
-    }
-
-    public int getR() {
-        return r;
-    }
-
-    public int getG() {
-        return g;
-    }
-
-    public int getB() {
-        return b;
-    }
-
     public double getPercentOfMetal1() {
         return percentOfMetal1;
     }
@@ -128,9 +109,14 @@ public class MetalAlloyRegion implements Serializable {
     }
 
     /**
-     * Calculates the current r, g, and b values of the metal alloy region.
+     * Calculates the r, g, and b values of a metal alloy region at the given temperature.
+     * @param temperature the temperature of the region
+     * @return The r, g, and b values packed into a single int as 0xRRGGBB.
      */
-    public void calcRGB() {
+    public static int calcRGB(double temperature) {
+        int r;
+        int g;
+        int b;
         if (temperature <= TEMPTHRESHOLD1) {
             r = RTHRESHOLD1;
             g = GTHRESHOLD1;
@@ -148,6 +134,7 @@ public class MetalAlloyRegion implements Serializable {
             g = GTHRESHOLD3;
             b = BTHRESHOLD3;
         }
+        return (r << 16) | (g << 8) | b;
     }
 
     /**
@@ -159,22 +146,7 @@ public class MetalAlloyRegion implements Serializable {
      * @param tempThreshold2 the temperature ranges ending point
      * @return The calculated color value for a rgb value of the alloy.
      */
-    public int calcColorBetweenThreshold(double temperature, int colorThreshold1, int colorThreshold2, double tempThreshold2) {
+    public static int calcColorBetweenThreshold(double temperature, int colorThreshold1, int colorThreshold2, double tempThreshold2) {
         return (int)Math.floor(colorThreshold1 + (temperature * (colorThreshold2 - colorThreshold1) / (tempThreshold2)));
     }
-
-    public void copyRegionColors(MetalAlloyRegion regionToCopy) {
-        r = regionToCopy.getR();
-        g = regionToCopy.getG();
-        b = regionToCopy.getB();
-    }
-
-    public void deepCopyRegion(MetalAlloyRegion regionToCopy) {
-        r = regionToCopy.getR();
-        g = regionToCopy.getG();
-        b = regionToCopy.getB();
-        percentOfMetal1 = regionToCopy.getPercentOfMetal1();
-        percentOfMetal2 = regionToCopy.getPercentOfMetal2();
-        percentOfMetal3 = regionToCopy.getPercentOfMetal3();
-    }
 }
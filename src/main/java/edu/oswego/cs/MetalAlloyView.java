@@ -4,13 +4,18 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ComponentAdapter;
 import java.awt.event.ComponentEvent;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class MetalAlloyView {
 
     private final JFrame metalAlloyFrame;
     private final int DEFAULT_REGION_SIZE = 3;
 
-    DrawRegions regions;
+    final DrawRegions regions;
     private final int ORIGINAL_HEIGHT;
 
     private final int ORIGINAL_WIDTH;
@@ -19,10 +24,66 @@ public class MetalAlloyView {
 
     double widthScale;
 
+    // Records how long painting the regions takes when metrics are enabled
+    private SimulationMetrics metrics;
+
+    // Set while an update waits for the event dispatch thread to take its image, updates arriving meanwhile are skipped
+    private final AtomicBoolean paintPending = new AtomicBoolean();
+    private final AtomicLong updatesSkipped = new AtomicLong();
+
+    // The slice of a metal volume that is displayed, chosen with the slice controls on the event dispatch thread
+    private volatile MetalVolume.SliceAxis selectedAxis = MetalVolume.SliceAxis.LAYER;
+    private volatile int selectedSlice;
+    // The metal alloy holding the displayed slice, only recreated when another slice is selected
+    private MetalAlloy sliceAlloy;
+    private MetalVolume.SliceAxis sliceAlloyAxis;
+    private int sliceAlloySlice;
+
+    private static final int SLICE_CONTROLS_HEIGHT = 40;
+
 
     public MetalAlloyView(int height, int width, MetalAlloy alloy) {
-        metalAlloyFrame = new JFrame("Metal Alloy");
-        int taskBarHeight = Toolkit.getDefaultToolkit().getScreenInsets(metalAlloyFrame.getGraphicsConfiguration()).top + 10;
+        this("Metal Alloy", height, width, 0);
+        displayRegions(alloy);
+    }
+
+    /**
+     * Creates a view of a metal volume that displays one 2D slice of it at a time, a layer or the same row or column
+     * of every layer. The axis and the index of the slice are selected with the controls above the regions, the
+     * window is sized for the largest slice.
+     * @param volume The metal volume, only used for its dimensions.
+     */
+    public MetalAlloyView(MetalVolume volume) {
+        this("Metal Volume", Math.max(volume.getHeight(), volume.getDepth()), Math.max(volume.getWidth(), volume.getHeight()), SLICE_CONTROLS_HEIGHT);
+        selectedSlice = volume.getNumSlices(selectedAxis) / 2;
+        JComboBox<MetalVolume.SliceAxis> axisSelector = new JComboBox<>(MetalVolume.SliceAxis.values());
+        JSlider sliceSelector = new JSlider(0, volume.getNumSlices(selectedAxis) - 1, selectedSlice);
+        JLabel sliceLabel = new JLabel();
+        Runnable updateLabel = () -> sliceLabel.setText(selectedAxis + " " + selectedSlice);
+        axisSelector.addActionListener(event -> {
+            selectedAxis = (MetalVolume.SliceAxis) axisSelector.getSelectedItem();
+            int numSlices = volume.getNumSlices(selectedAxis);
+            selectedSlice = Math.min(selectedSlice, numSlices - 1);
+            sliceSelector.setMaximum(numSlices - 1);
+            sliceSelector.setValue(selectedSlice);
+            updateLabel.run();
+        });
+        sliceSelector.addChangeListener(event -> {
+            selectedSlice = sliceSelector.getValue();
+            updateLabel.run();
+        });
+        updateLabel.run();
+        JPanel sliceControls = new JPanel();
+        sliceControls.add(axisSelector);
+        sliceControls.add(sliceSelector);
+        sliceControls.add(sliceLabel);
+        metalAlloyFrame.getContentPane().add(sliceControls, BorderLayout.NORTH);
+        displaySlice(volume);
+    }
+
+    private MetalAlloyView(String title, int height, int width, int controlsHeight) {
+        metalAlloyFrame = new JFrame(title);
+        int taskBarHeight = Toolkit.getDefaultToolkit().getScreenInsets(metalAlloyFrame.getGraphicsConfiguration()).top + 10 + controlsHeight;
         ORIGINAL_HEIGHT = DEFAULT_REGION_SIZE * height + taskBarHeight;
         ORIGINAL_WIDTH = DEFAULT_REGION_SIZE * width;
         heightScale = 1.0;
@@ -30,7 +91,8 @@ public class MetalAlloyView {
         metalAlloyFrame.setSize(ORIGINAL_WIDTH, ORIGINAL_HEIGHT);
         metalAlloyFrame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         metalAlloyFrame.setResizable(true);
-        displayRegions(alloy);
+        regions = new DrawRegions();
+        metalAlloyFrame.getContentPane().add(regions, BorderLayout.CENTER);
         metalAlloyFrame.addComponentListener(new ComponentAdapter() {
             public void componentResized(ComponentEvent event) {
                 Component c = event.getComponent();
@@ -38,50 +100,176 @@ public class MetalAlloyView {
                 int width = c.getWidth();
                 heightScale = ((double)height - taskBarHeight) / (ORIGINAL_HEIGHT - taskBarHeight);
                 widthScale = (double)width / ORIGINAL_WIDTH;
-                displayRegions(alloy);
+                regions.repaint();
             }
         });
     }
 
+    /**
+     * Renders the temperatures of the metal alloy into the back image of the panel and hands it to the event dispatch
+     * thread, which swaps it in and repaints the rows whose colors changed. The panel and its images are reused from
+     * update to update, and an update is skipped rather than queued while the event dispatch thread has not taken the
+     * previous one yet. The flag is cleared by the event dispatch thread itself, so a repaint Swing drops or coalesces
+     * never stalls the view, and the image being drawn is never the one being rendered.
+     * @param alloy The metal alloy to display, its dimensions may differ from the previous one.
+     */
     public void displayRegions(MetalAlloy alloy) {
-        metalAlloyFrame.getContentPane().removeAll();
-        regions = new DrawRegions(alloy);
-        metalAlloyFrame.getContentPane().add(regions);
-        metalAlloyFrame.revalidate();
-        metalAlloyFrame.repaint();
+        if (!paintPending.compareAndSet(false, true)) {
+            updatesSkipped.incrementAndGet();
+            return;
+        }
+        BufferedImage backImage = regions.render(alloy);
+        if (backImage == null) {
+            // no region changed its color, there is nothing to repaint
+            paintPending.set(false);
+            return;
+        }
+        int dirtyRowStart = regions.dirtyRowStart;
+        int dirtyRowEnd = regions.dirtyRowEnd;
+        SwingUtilities.invokeLater(() -> {
+            regions.frontImage = backImage;
+            int y = (int) (dirtyRowStart * DEFAULT_REGION_SIZE * heightScale);
+            int dirtyHeight = (int) Math.ceil((dirtyRowEnd - dirtyRowStart) * DEFAULT_REGION_SIZE * heightScale) + 1;
+            regions.repaint(0, y, regions.getWidth(), dirtyHeight);
+            paintPending.set(false);
+        });
+    }
+
+    /**
+     * Displays the selected slice of the metal volume. The slice is copied into a metal alloy of its own, which is
+     * only recreated when another slice has been selected since the last call.
+     * @param volume The metal volume holding the temperatures to display.
+     */
+    public void displaySlice(MetalVolume volume) {
+        MetalVolume.SliceAxis axis = selectedAxis;
+        int slice = Math.min(selectedSlice, volume.getNumSlices(axis) - 1);
+        if (sliceAlloy == null || axis != sliceAlloyAxis || slice != sliceAlloySlice) {
+            sliceAlloy = new MetalAlloy(volume.sliceComposition(axis, slice));
+            sliceAlloyAxis = axis;
+            sliceAlloySlice = slice;
+        }
+        volume.copySliceTo(axis, slice, sliceAlloy);
+        displayRegions(sliceAlloy);
+    }
+
+    public void setMetrics(SimulationMetrics metrics) {
+        this.metrics = metrics;
     }
 
     public void display() {
         metalAlloyFrame.setVisible(true);
     }
 
+    /**
+     * @return The number of updates skipped because the event dispatch thread was still busy painting.
+     */
+    public long getUpdatesSkipped() {
+        return updatesSkipped.get();
+    }
 
-    private class DrawRegions extends JPanel {
 
-        MetalAlloy alloy;
+    private class DrawRegions extends JPanel {
 
-        public DrawRegions(MetalAlloy metalAlloy) {
-            this.alloy = metalAlloy;
-        }
+        // One pixel per region, scaled to the size of the panel when it is drawn. The front image is only read and
+        // replaced on the event dispatch thread, the other image of the pair is rendered meanwhile
+        private BufferedImage frontImage;
+        private BufferedImage[] images;
+        private int nextImage;
+        // The exclusive range of rows of each image that lag behind the colors of the latest update
+        private final int[] staleRowStarts = new int[2];
+        private final int[] staleRowEnds = new int[2];
+        // The color of every region in the latest update
+        private int[] colors;
+        // The first and last row whose colors changed within every block of rows of the last update
+        private int[] firstDirtyRows;
+        private int[] lastDirtyRows;
+        // The exclusive range of rows whose colors changed in the last update
+        private int dirtyRowStart;
+        private int dirtyRowEnd;
 
-        public void drawRegions(Graphics graphics) {
-            Graphics2D graphics2D = (Graphics2D) graphics;
-            for (int row = 0; row < alloy.getHeight(); row++) {
-                for (int col = 0; col < alloy.getWidth(); col++) {
-                    MetalAlloyRegion region = alloy.getMetalAlloyRegion(row, col);
-                    Color regionColor = new Color(region.getR(), region.getG(), region.getB());
-                    graphics2D.setColor(regionColor);
-                    graphics2D.fillRect(col * DEFAULT_REGION_SIZE, row * DEFAULT_REGION_SIZE, DEFAULT_REGION_SIZE, DEFAULT_REGION_SIZE);
+        /**
+         * Maps the temperatures of the metal alloy to colors in parallel over blocks of rows, finding the rows whose
+         * colors changed, and brings the back image up to date by copying the rows that changed since it was last
+         * rendered. The images are only recreated when the dimensions of the alloy change.
+         * @return The rendered back image, or null if no region changed its color.
+         */
+        BufferedImage render(MetalAlloy alloy) {
+            int height = alloy.getHeight();
+            int width = alloy.getWidth();
+            if (images == null || images[0].getHeight() != height || images[0].getWidth() != width) {
+                images = new BufferedImage[] {
+                        new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB),
+                        new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB)
+                };
+                // no color is transparent, so every region of the new images counts as changed
+                colors = new int[height * width];
+                firstDirtyRows = new int[AlloyComposition.numRowBlocks(height)];
+                lastDirtyRows = new int[firstDirtyRows.length];
+                Arrays.fill(staleRowStarts, 0);
+                Arrays.fill(staleRowEnds, 0);
+            }
+            AlloyComposition.forEachRowBlock(height, block -> {
+                int rowStart = block * AlloyComposition.ROWS_PER_BLOCK;
+                int rowEnd = Math.min(height, rowStart + AlloyComposition.ROWS_PER_BLOCK);
+                int firstDirtyRow = rowEnd;
+                int lastDirtyRow = rowStart - 1;
+                for (int row = rowStart; row < rowEnd; row++) {
+                    boolean rowChanged = false;
+                    for (int index = row * width; index < (row + 1) * width; index++) {
+                        int color = TemperatureColorMap.toARGB(alloy.getTemperature(index));
+                        if (colors[index] != color) {
+                            colors[index] = color;
+                            rowChanged = true;
+                        }
+                    }
+                    if (rowChanged) {
+                        firstDirtyRow = Math.min(firstDirtyRow, row);
+                        lastDirtyRow = row;
+                    }
                 }
+                firstDirtyRows[block] = firstDirtyRow;
+                lastDirtyRows[block] = lastDirtyRow;
+            });
+            dirtyRowStart = height;
+            dirtyRowEnd = 0;
+            for (int block = 0; block < firstDirtyRows.length; block++) {
+                dirtyRowStart = Math.min(dirtyRowStart, firstDirtyRows[block]);
+                dirtyRowEnd = Math.max(dirtyRowEnd, lastDirtyRows[block] + 1);
+            }
+            if (dirtyRowStart >= dirtyRowEnd) {
+                return null;
             }
+            // both images now lag behind by the changed rows, the back image catches up on everything it missed
+            for (int i = 0; i < images.length; i++) {
+                boolean stale = staleRowStarts[i] < staleRowEnds[i];
+                staleRowStarts[i] = stale ? Math.min(staleRowStarts[i], dirtyRowStart) : dirtyRowStart;
+                staleRowEnds[i] = stale ? Math.max(staleRowEnds[i], dirtyRowEnd) : dirtyRowEnd;
+            }
+            BufferedImage backImage = images[nextImage];
+            int[] pixels = ((DataBufferInt) backImage.getRaster().getDataBuffer()).getData();
+            int copyStart = staleRowStarts[nextImage] * width;
+            System.arraycopy(colors, copyStart, pixels, copyStart, staleRowEnds[nextImage] * width - copyStart);
+            staleRowStarts[nextImage] = 0;
+            staleRowEnds[nextImage] = 0;
+            nextImage ^= 1;
+            return backImage;
         }
 
         @Override
         protected void paintComponent(Graphics graphics) {
-            Graphics2D g2 = (Graphics2D)graphics;
-            g2.scale(widthScale, heightScale);
-            super.paintComponent(g2);
-            drawRegions(g2);
+            super.paintComponent(graphics);
+            SimulationMetrics frameMetrics = metrics;
+            long frameStart = frameMetrics != null ? System.nanoTime() : 0;
+            BufferedImage frame = frontImage;
+            if (frame != null) {
+                Graphics2D g2 = (Graphics2D) graphics;
+                g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+                g2.scale(widthScale, heightScale);
+                g2.drawImage(frame, 0, 0, frame.getWidth() * DEFAULT_REGION_SIZE, frame.getHeight() * DEFAULT_REGION_SIZE, null);
+            }
+            if (frameMetrics != null) {
+                frameMetrics.recordFrame(System.nanoTime() - frameStart);
+            }
         }
     }
 }
@@ -0,0 +1,344 @@
+package edu.oswego.cs;
+
+import java.util.SplittableRandom;
+
+public class MetalVolume {
+
+    /**
+     * The axis a 2D slice of the volume is taken across, a layer slice holds a whole layer, a row slice the same row of
+     * every layer and a column slice the same column of every layer.
+     */
+    public enum SliceAxis {
+        LAYER, ROW, COLUMN;
+
+        @Override
+        public String toString() {
+            return name().toLowerCase();
+        }
+    }
+
+    private final int depth;
+    private final int height;
+    private final int width;
+
+    // Thermal Constants
+    private final double c1;
+    private final double c2;
+    private final double c3;
+
+    // Flat plane of the temperatures, the region at (layer, row, col) is stored at index (layer * height + row) * width
+    // + col so the columns of a row are contiguous and the inner loops run with a stride of one
+    private final double[] temperatures;
+
+    // The read-only composition laid out like the temperatures, shared by both volumes of the simulation
+    private final double[] percentsOfMetal1;
+    private final double[] percentsOfMetal2;
+    private final double[] percentsOfMetal3;
+
+    // Precomputed effective conductance of each neighbor divided by the region's number of neighbors, a missing
+    // neighbor has a weight of zero. Up is the previous layer and down the next one.
+    private final double[] upWeights;
+    private final double[] downWeights;
+    private final double[] northWeights;
+    private final double[] southWeights;
+    private final double[] westWeights;
+    private final double[] eastWeights;
+
+    /**
+     * Creates a metal volume made up of depth * height * width metal alloy regions, a stack of layers with the same
+     * three metal composition as a metal alloy. The composition is generated in parallel over blocks of rows of the
+     * stacked layers, so the same seed always generates the same composition. The first and the last region of the
+     * volume, the top left corner of the first layer and the bottom right corner of the last layer, hold their
+     * temperatures like the corners of a metal alloy.
+     * @param depth the number of layers of the metal volume
+     * @param height the height of every layer
+     * @param width the width of every layer
+     * @param c1 the first metal of the alloy's thermal constant
+     * @param c2 the second metal of the alloy's thermal constant
+     * @param c3 the third metal of the alloy's thermal constant
+     * @param seed the seed of the composition
+     */
+    public MetalVolume(int depth, int height, int width, double c1, double c2, double c3, long seed) {
+        if (depth < 1 || height < 1 || width < 1) {
+            throw new IllegalArgumentException("Volume dimensions must be positive: " + depth + "x" + height + "x" + width);
+        }
+        this.depth = depth;
+        this.height = height;
+        this.width = width;
+        this.c1 = c1;
+        this.c2 = c2;
+        this.c3 = c3;
+        int numRegions = depth * height * width;
+        temperatures = new double[numRegions];
+        percentsOfMetal1 = new double[numRegions];
+        percentsOfMetal2 = new double[numRegions];
+        percentsOfMetal3 = new double[numRegions];
+        upWeights = new double[numRegions];
+        downWeights = new double[numRegions];
+        northWeights = new double[numRegions];
+        southWeights = new double[numRegions];
+        westWeights = new double[numRegions];
+        eastWeights = new double[numRegions];
+        // the stacked layers are depth * height rows of the same width
+        int numRows = depth * height;
+        SplittableRandom[] randoms = AlloyComposition.splitRandoms(seed, numRows);
+        AlloyComposition.forEachRowBlock(numRows, block -> {
+            SplittableRandom random = randoms[block];
+            int indexEnd = Math.min(numRows, (block + 1) * AlloyComposition.ROWS_PER_BLOCK) * width;
+            for (int index = block * AlloyComposition.ROWS_PER_BLOCK * width; index < indexEnd; index++) {
+                MetalAlloyRegion region = new MetalAlloyRegion(random);
+                percentsOfMetal1[index] = region.getPercentOfMetal1();
+                percentsOfMetal2[index] = region.getPercentOfMetal2();
+                percentsOfMetal3[index] = region.getPercentOfMetal3();
+            }
+        });
+        AlloyComposition.forEachRowBlock(numRows, block -> calculateNeighborWeights(block * AlloyComposition.ROWS_PER_BLOCK, Math.min(numRows, (block + 1) * AlloyComposition.ROWS_PER_BLOCK)));
+    }
+
+    /**
+     * Creates a metal volume that shares the composition of another one and starts from a copy of its temperatures,
+     * used for the second buffer of jacobi relaxation.
+     * @param other The metal volume whose composition is shared and whose temperatures are copied.
+     */
+    public MetalVolume(MetalVolume other) {
+        this.depth = other.depth;
+        this.height = other.height;
+        this.width = other.width;
+        this.c1 = other.c1;
+        this.c2 = other.c2;
+        this.c3 = other.c3;
+        this.temperatures = other.temperatures.clone();
+        this.percentsOfMetal1 = other.percentsOfMetal1;
+        this.percentsOfMetal2 = other.percentsOfMetal2;
+        this.percentsOfMetal3 = other.percentsOfMetal3;
+        this.upWeights = other.upWeights;
+        this.downWeights = other.downWeights;
+        this.northWeights = other.northWeights;
+        this.southWeights = other.southWeights;
+        this.westWeights = other.westWeights;
+        this.eastWeights = other.eastWeights;
+    }
+
+    /**
+     * The weights of the seven point stencil, the same collapse of the metal summations as a metal alloy with up to six
+     * neighbors instead of four. Rows are counted across the stacked layers.
+     */
+    private void calculateNeighborWeights(int stackedRowStart, int stackedRowEnd) {
+        int plane = height * width;
+        for (int stackedRow = stackedRowStart; stackedRow < stackedRowEnd; stackedRow++) {
+            int layer = stackedRow / height;
+            int row = stackedRow % height;
+            for (int col = 0; col < width; col++) {
+                int index = stackedRow * width + col;
+                boolean hasUp = layer > 0;
+                boolean hasDown = layer < depth - 1;
+                boolean hasNorth = row > 0;
+                boolean hasSouth = row < height - 1;
+                boolean hasWest = col > 0;
+                boolean hasEast = col < width - 1;
+                int numNeighbors = (hasUp ? 1 : 0) + (hasDown ? 1 : 0) + (hasNorth ? 1 : 0) + (hasSouth ? 1 : 0) + (hasWest ? 1 : 0) + (hasEast ? 1 : 0);
+                upWeights[index] = hasUp ? getConductance(index - plane) / numNeighbors : 0;
+                downWeights[index] = hasDown ? getConductance(index + plane) / numNeighbors : 0;
+                northWeights[index] = hasNorth ? getConductance(index - width) / numNeighbors : 0;
+                southWeights[index] = hasSouth ? getConductance(index + width) / numNeighbors : 0;
+                westWeights[index] = hasWest ? getConductance(index - 1) / numNeighbors : 0;
+                eastWeights[index] = hasEast ? getConductance(index + 1) / numNeighbors : 0;
+            }
+        }
+    }
+
+    private double getConductance(int index) {
+        return c1 * percentsOfMetal1[index] + c2 * percentsOfMetal2[index] + c3 * percentsOfMetal3[index];
+    }
+
+    public int indexOf(int layer, int row, int col) {
+        return (layer * height + row) * width + col;
+    }
+
+    public void setTempOfRegion(double newTemp, int layer, int row, int col) {
+        temperatures[indexOf(layer, row, col)] = newTemp;
+    }
+
+    public double getTempOfRegion(int layer, int row, int col) {
+        return temperatures[indexOf(layer, row, col)];
+    }
+
+    /**
+     * Calculates the new temperature of every region within the specified bounds with the seven point stencil of jacobi
+     * relaxation and stores it in the other volume. Missing neighbors have a weight of zero and an offset of zero, so
+     * every region is calculated by the same branch free sum and only the first and last column of a row take a
+     * different offset. The first and last region of the volume keep their temperatures.
+     * @param volumeToStoreResults The metal volume the new temperatures are written to.
+     * @param layerStart Inclusive layer start
+     * @param layerEnd Exclusive layer end
+     * @param rowStart Inclusive row start
+     * @param rowEnd Exclusive row end
+     * @param colStart Inclusive column start
+     * @param colEnd Exclusive column end
+     */
+    public void calculateNewTempsForRegions(MetalVolume volumeToStoreResults, int layerStart, int layerEnd, int rowStart, int rowEnd, int colStart, int colEnd) {
+        double[] results = volumeToStoreResults.temperatures;
+        int plane = height * width;
+        for (int layer = layerStart; layer < layerEnd; layer++) {
+            int upOffset = layer > 0 ? plane : 0;
+            int downOffset = layer < depth - 1 ? plane : 0;
+            for (int row = rowStart; row < rowEnd; row++) {
+                int northOffset = row > 0 ? width : 0;
+                int southOffset = row < height - 1 ? width : 0;
+                int rowIndex = (layer * height + row) * width;
+                int col = colStart;
+                if (col == 0) {
+                    results[rowIndex] = calculateWeightedSum(rowIndex, upOffset, downOffset, northOffset, southOffset, 0, width > 1 ? 1 : 0);
+                    col++;
+                }
+                int interiorEnd = Math.min(colEnd, width - 1);
+                for (int index = rowIndex + col; index < rowIndex + interiorEnd; index++) {
+                    results[index] = upWeights[index] * temperatures[index - upOffset]
+                            + downWeights[index] * temperatures[index + downOffset]
+                            + northWeights[index] * temperatures[index - northOffset]
+                            + southWeights[index] * temperatures[index + southOffset]
+                            + westWeights[index] * temperatures[index - 1]
+                            + eastWeights[index] * temperatures[index + 1];
+                }
+                col = Math.max(col, interiorEnd);
+                if (col < colEnd) {
+                    results[rowIndex + col] = calculateWeightedSum(rowIndex + col, upOffset, downOffset, northOffset, southOffset, 1, 0);
+                }
+            }
+        }
+        // Don't change the temperature of the fixed corners
+        if (layerStart == 0 && rowStart == 0 && colStart == 0) {
+            results[0] = temperatures[0];
+        }
+        if (layerEnd == depth && rowEnd == height && colEnd == width) {
+            results[temperatures.length - 1] = temperatures[temperatures.length - 1];
+        }
+    }
+
+    private double calculateWeightedSum(int index, int upOffset, int downOffset, int northOffset, int southOffset, int westOffset, int eastOffset) {
+        return upWeights[index] * temperatures[index - upOffset]
+                + downWeights[index] * temperatures[index + downOffset]
+                + northWeights[index] * temperatures[index - northOffset]
+                + southWeights[index] * temperatures[index + southOffset]
+                + westWeights[index] * temperatures[index - westOffset]
+                + eastWeights[index] * temperatures[index + eastOffset];
+    }
+
+    /**
+     * Finds the largest temperature difference between the regions of this metal volume and another metal volume of
+     * the same dimensions within the specified bounds.
+     * @return The maximum absolute temperature difference (residual) within the bounds.
+     */
+    public double calculateMaxTempDifference(MetalVolume otherVolume, int layerStart, int layerEnd, int rowStart, int rowEnd, int colStart, int colEnd) {
+        double[] otherTemperatures = otherVolume.temperatures;
+        double maxDifference = 0;
+        for (int layer = layerStart; layer < layerEnd; layer++) {
+            for (int row = rowStart; row < rowEnd; row++) {
+                int rowIndex = (layer * height + row) * width;
+                for (int index = rowIndex + colStart; index < rowIndex + colEnd; index++) {
+                    maxDifference = Math.max(maxDifference, Math.abs(otherTemperatures[index] - temperatures[index]));
+                }
+            }
+        }
+        return maxDifference;
+    }
+
+    /**
+     * @return The number of slices across the axis.
+     */
+    public int getNumSlices(SliceAxis axis) {
+        return switch (axis) {
+            case LAYER -> depth;
+            case ROW -> height;
+            case COLUMN -> width;
+        };
+    }
+
+    /**
+     * @return The height of a slice across the axis, the layers run down the row and column slices.
+     */
+    public int getSliceHeight(SliceAxis axis) {
+        return axis == SliceAxis.LAYER ? height : depth;
+    }
+
+    /**
+     * @return The width of a slice across the axis.
+     */
+    public int getSliceWidth(SliceAxis axis) {
+        return axis == SliceAxis.COLUMN ? height : width;
+    }
+
+    /**
+     * @return The index in the volume of the region at (sliceRow, sliceCol) of the given slice.
+     */
+    private int indexOfSliceRegion(SliceAxis axis, int slice, int sliceRow, int sliceCol) {
+        return switch (axis) {
+            case LAYER -> indexOf(slice, sliceRow, sliceCol);
+            case ROW -> indexOf(sliceRow, slice, sliceCol);
+            case COLUMN -> indexOf(sliceRow, sliceCol, slice);
+        };
+    }
+
+    /**
+     * Extracts the composition of a slice, so the slice can be held by a metal alloy that is displayed like any other.
+     * @param axis The axis the slice is taken across.
+     * @param slice The index of the slice along the axis.
+     * @return The composition of the regions of the slice.
+     */
+    public AlloyComposition sliceComposition(SliceAxis axis, int slice) {
+        int sliceHeight = getSliceHeight(axis);
+        int sliceWidth = getSliceWidth(axis);
+        double[] slicePercentsOfMetal1 = new double[sliceHeight * sliceWidth];
+        double[] slicePercentsOfMetal2 = new double[sliceHeight * sliceWidth];
+        double[] slicePercentsOfMetal3 = new double[sliceHeight * sliceWidth];
+        for (int sliceRow = 0, sliceIndex = 0; sliceRow < sliceHeight; sliceRow++) {
+            for (int sliceCol = 0; sliceCol < sliceWidth; sliceCol++, sliceIndex++) {
+                int index = indexOfSliceRegion(axis, slice, sliceRow, sliceCol);
+                slicePercentsOfMetal1[sliceIndex] = percentsOfMetal1[index];
+                slicePercentsOfMetal2[sliceIndex] = percentsOfMetal2[index];
+                slicePercentsOfMetal3[sliceIndex] = percentsOfMetal3[index];
+            }
+        }
+        return new AlloyComposition(sliceHeight, sliceWidth, c1, c2, c3, slicePercentsOfMetal1, slicePercentsOfMetal2, slicePercentsOfMetal3);
+    }
+
+    /**
+     * Copies the temperatures of a slice into a metal alloy created from its {@link #sliceComposition(SliceAxis, int)}.
+     */
+    public void copySliceTo(SliceAxis axis, int slice, MetalAlloy sliceAlloy) {
+        int sliceHeight = getSliceHeight(axis);
+        int sliceWidth = getSliceWidth(axis);
+        if (sliceAlloy.getHeight() != sliceHeight || sliceAlloy.getWidth() != sliceWidth) {
+            throw new IllegalArgumentException("A " + axis + " slice is " + sliceHeight + "x" + sliceWidth + ", not " + sliceAlloy.getHeight() + "x" + sliceAlloy.getWidth());
+        }
+        for (int sliceRow = 0, sliceIndex = 0; sliceRow < sliceHeight; sliceRow++) {
+            for (int sliceCol = 0; sliceCol < sliceWidth; sliceCol++, sliceIndex++) {
+                sliceAlloy.setTemperature(sliceIndex, temperatures[indexOfSliceRegion(axis, slice, sliceRow, sliceCol)]);
+            }
+        }
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public double getC1() {
+        return c1;
+    }
+
+    public double getC2() {
+        return c2;
+    }
+
+    public double getC3() {
+        return c3;
+    }
+}
@@ -0,0 +1,481 @@
+package edu.oswego.cs;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPOutputStream;
+
+public class MonitorServer implements AutoCloseable {
+
+    private static final String WEBSOCKET_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+    private static final byte KEYFRAME = 0;
+    private static final byte DELTA = 1;
+    // How long a client gets to send its request line and headers before the connection is dropped
+    private static final int REQUEST_TIMEOUT_MILLIS = 10_000;
+
+    private final int height;
+    private final int width;
+    private final long sampleIntervalMillis;
+    // Every side of the streamed field is the side of the alloy divided by this factor, rounded up
+    private final int downsampleFactor;
+    private final int streamHeight;
+    private final int streamWidth;
+    private final ServerSocket serverSocket;
+    private final ExecutorService executor;
+
+    // Written by the compute thread without waiting on anything, read by the sampler
+    private volatile MetalAlloy latestAlloy;
+    private volatile long latestPhase;
+    private volatile double latestResidual = Double.NaN;
+
+    // The most recent snapshot, replaced by the sampler and handed to every viewer and request as is
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    private final Condition snapshotTaken = snapshotLock.newCondition();
+    private volatile Snapshot snapshot;
+    private final AtomicInteger numViewers = new AtomicInteger();
+    private volatile boolean running = true;
+
+    /**
+     * Serves the state of a running simulation over HTTP on its own threads, virtual threads when the runtime has them
+     * and daemon threads otherwise. The compute thread only hands over a reference to the latest alloy, a sampler copies
+     * its temperatures every interval and every representation of a snapshot is encoded at most once, no matter how
+     * many clients ask for it:
+     * <pre>
+     * GET /frame.png   the latest temperatures as a PNG image, one pixel per region
+     * GET /field       the latest temperatures as a gzip compressed field in the format of the stream file
+     * GET /stats       the phase, the last measured residual and the phases per second as JSON
+     * GET /stream      a WebSocket of downsampled fields, a keyframe followed by the changes between samples
+     * </pre>
+     * Stream messages are big endian, a keyframe is byte 0, int sequence, long phase, int height, int width and a float
+     * per region, a delta is byte 1, int sequence, long phase, int count and an int index and float temperature per
+     * changed region. A viewer that fell behind is sent a keyframe instead of the deltas it missed. Nothing is
+     * authenticated, so the server should only listen on an address the clients are trusted to reach.
+     * @param address the address to listen on, the loopback address keeps the server local to this machine
+     * @param port the port to listen on, 0 for any free port
+     * @param height the height of the metal alloy
+     * @param width the width of the metal alloy
+     * @param sampleIntervalMillis the time between snapshots, at least one millisecond
+     * @param maxStreamSide the largest height or width of the streamed fields, at least one region
+     */
+    public MonitorServer(InetAddress address, int port, int height, int width, long sampleIntervalMillis, int maxStreamSide) throws IOException {
+        if (sampleIntervalMillis < 1) {
+            throw new IllegalArgumentException("The sample interval must be at least 1 millisecond, got " + sampleIntervalMillis);
+        }
+        if (maxStreamSide < 1) {
+            throw new IllegalArgumentException("The streamed fields must be at least 1 region wide, got " + maxStreamSide);
+        }
+        this.height = height;
+        this.width = width;
+        this.sampleIntervalMillis = sampleIntervalMillis;
+        downsampleFactor = Math.max(1, (Math.max(height, width) + maxStreamSide - 1) / maxStreamSide);
+        streamHeight = (height + downsampleFactor - 1) / downsampleFactor;
+        streamWidth = (width + downsampleFactor - 1) / downsampleFactor;
+        serverSocket = new ServerSocket(port, 50, address);
+        executor = newConnectionExecutor();
+        executor.submit(this::acceptConnections);
+        executor.submit(this::takeSnapshots);
+    }
+
+    /**
+     * @return An executor that starts a virtual thread per task on Java 21 and later, on earlier runtimes a cached pool
+     * of daemon threads.
+     */
+    private static ExecutorService newConnectionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "monitor");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Hands the latest results of the simulation to the server, never waits and never copies anything.
+     * @param alloy The metal alloy holding the latest results.
+     * @param phase The phase the results belong to.
+     * @param residual The residual of the phase, or NaN if it was not measured.
+     */
+    public void offer(MetalAlloy alloy, long phase, double residual) {
+        latestAlloy = alloy;
+        latestPhase = phase;
+        if (!Double.isNaN(residual)) {
+            latestResidual = residual;
+        }
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * @return The base URL of the server, with the address it listens on.
+     */
+    public String getUrl() {
+        InetAddress address = serverSocket.getInetAddress();
+        String host = address instanceof Inet6Address ? "[" + address.getHostAddress() + "]" : address.getHostAddress();
+        return "http://" + host + ":" + getPort() + "/";
+    }
+
+    public int getNumViewers() {
+        return numViewers.get();
+    }
+
+    /**
+     * Copies the temperatures of the latest alloy every interval into a new snapshot and wakes the viewers. The stream
+     * messages are only encoded while someone is watching.
+     */
+    private void takeSnapshots() {
+        int sequence = 0;
+        float[] previousStreamField = null;
+        long previousPhase = 0;
+        long previousNanos = 0;
+        try {
+            while (running) {
+                Thread.sleep(sampleIntervalMillis);
+                MetalAlloy alloy = latestAlloy;
+                if (alloy == null) {
+                    continue;
+                }
+                long phase = latestPhase;
+                long nanos = System.nanoTime();
+                double phasesPerSecond = sequence > 0 ? (phase - previousPhase) * 1e9 / (nanos - previousNanos) : 0;
+                double[] temperatures = new double[height * width];
+                alloy.copyTemperaturesTo(temperatures);
+                float[] streamField = downsample(temperatures);
+                byte[] keyframe = null;
+                byte[] delta = null;
+                if (numViewers.get() > 0) {
+                    keyframe = encodeKeyframe(sequence, phase, streamField);
+                    delta = previousStreamField != null ? encodeDelta(sequence, phase, previousStreamField, streamField) : null;
+                }
+                Snapshot next = new Snapshot(sequence, phase, latestResidual, phasesPerSecond, temperatures, keyframe, delta);
+                snapshotLock.lock();
+                try {
+                    snapshot = next;
+                    snapshotTaken.signalAll();
+                } finally {
+                    snapshotLock.unlock();
+                }
+                sequence++;
+                previousStreamField = streamField;
+                previousPhase = phase;
+                previousNanos = nanos;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return The temperatures averaged over blocks of downsampleFactor * downsampleFactor regions.
+     */
+    private float[] downsample(double[] temperatures) {
+        float[] streamField = new float[streamHeight * streamWidth];
+        for (int streamRow = 0; streamRow < streamHeight; streamRow++) {
+            int rowEnd = Math.min(height, (streamRow + 1) * downsampleFactor);
+            for (int streamCol = 0; streamCol < streamWidth; streamCol++) {
+                int colEnd = Math.min(width, (streamCol + 1) * downsampleFactor);
+                double sum = 0;
+                for (int row = streamRow * downsampleFactor; row < rowEnd; row++) {
+                    for (int col = streamCol * downsampleFactor; col < colEnd; col++) {
+                        sum += temperatures[row * width + col];
+                    }
+                }
+                int numRegions = (rowEnd - streamRow * downsampleFactor) * (colEnd - streamCol * downsampleFactor);
+                streamField[streamRow * streamWidth + streamCol] = (float) (sum / numRegions);
+            }
+        }
+        return streamField;
+    }
+
+    private byte[] encodeKeyframe(int sequence, long phase, float[] streamField) {
+        ByteBuffer payload = ByteBuffer.allocate(1 + Integer.BYTES + Long.BYTES + 2 * Integer.BYTES + streamField.length * Float.BYTES)
+                .put(KEYFRAME)
+                .putInt(sequence)
+                .putLong(phase)
+                .putInt(streamHeight)
+                .putInt(streamWidth);
+        payload.asFloatBuffer().put(streamField);
+        return encodeWebSocketFrame(payload.array());
+    }
+
+    private byte[] encodeDelta(int sequence, long phase, float[] previousStreamField, float[] streamField) {
+        int numChanged = 0;
+        for (int index = 0; index < streamField.length; index++) {
+            if (streamField[index] != previousStreamField[index]) {
+                numChanged++;
+            }
+        }
+        ByteBuffer payload = ByteBuffer.allocate(1 + Integer.BYTES + Long.BYTES + Integer.BYTES + numChanged * (Integer.BYTES + Float.BYTES))
+                .put(DELTA)
+                .putInt(sequence)
+                .putLong(phase)
+                .putInt(numChanged);
+        for (int index = 0; index < streamField.length; index++) {
+            if (streamField[index] != previousStreamField[index]) {
+                payload.putInt(index).putFloat(streamField[index]);
+            }
+        }
+        return encodeWebSocketFrame(payload.array());
+    }
+
+    /**
+     * @return A complete unmasked binary WebSocket frame, written to every viewer as is.
+     */
+    private static byte[] encodeWebSocketFrame(byte[] payload) {
+        int headerLength = payload.length < 126 ? 2 : payload.length <= 0xFFFF ? 4 : 10;
+        ByteBuffer frame = ByteBuffer.allocate(headerLength + payload.length).put((byte) 0x82);
+        if (payload.length < 126) {
+            frame.put((byte) payload.length);
+        } else if (payload.length <= 0xFFFF) {
+            frame.put((byte) 126).putShort((short) payload.length);
+        } else {
+            frame.put((byte) 127).putLong(payload.length);
+        }
+        return frame.put(payload).array();
+    }
+
+    private void acceptConnections() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                executor.submit(() -> handleConnection(socket));
+            } catch (SocketException e) {
+                // the server socket was closed
+                return;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Answers a single request and closes the connection, unless it is upgraded to a WebSocket. A client that does not
+     * send its request in time is dropped, so idle connections do not hold on to a thread.
+     */
+    private void handleConnection(Socket socket) {
+        try (socket) {
+            socket.setSoTimeout(REQUEST_TIMEOUT_MILLIS);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+            String requestLine = reader.readLine();
+            if (requestLine == null) {
+                return;
+            }
+            Map<String, String> headers = new HashMap<>();
+            String line;
+            while ((line = reader.readLine()) != null && !line.isEmpty()) {
+                int separator = line.indexOf(':');
+                if (separator > 0) {
+                    headers.put(line.substring(0, separator).trim().toLowerCase(Locale.ROOT), line.substring(separator + 1).trim());
+                }
+            }
+            String[] request = requestLine.split(" ");
+            OutputStream output = socket.getOutputStream();
+            if (request.length < 2 || !request[0].equals("GET")) {
+                respond(output, "405 Method Not Allowed", "text/plain", "Only GET is supported\n".getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            String path = request[1];
+            Snapshot current = snapshot;
+            if (path.equals("/")) {
+                respond(output, "200 OK", "text/plain", "/frame.png /field /stats /stream\n".getBytes(StandardCharsets.UTF_8));
+            } else if (path.equals("/stream")) {
+                streamTo(socket, output, headers);
+            } else if (!path.equals("/frame.png") && !path.equals("/field") && !path.equals("/stats")) {
+                respond(output, "404 Not Found", "text/plain", ("No such resource " + path + "\n").getBytes(StandardCharsets.UTF_8));
+            } else if (current == null) {
+                respond(output, "503 Service Unavailable", "text/plain", "No phase has been sampled yet\n".getBytes(StandardCharsets.UTF_8));
+            } else if (path.equals("/frame.png")) {
+                respond(output, "200 OK", "image/png", current.getPng());
+            } else if (path.equals("/field")) {
+                respond(output, "200 OK", "application/gzip", current.getField());
+            } else {
+                respond(output, "200 OK", "application/json", current.getStats().getBytes(StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            // the client went away, nothing to clean up beyond the socket
+        }
+    }
+
+    private static void respond(OutputStream output, String status, String contentType, byte[] body) throws IOException {
+        String header = "HTTP/1.1 " + status + "\r\n"
+                + "Content-Type: " + contentType + "\r\n"
+                + "Content-Length: " + body.length + "\r\n"
+                + "Cache-Control: no-store\r\n"
+                + "Connection: close\r\n\r\n";
+        output.write(header.getBytes(StandardCharsets.ISO_8859_1));
+        output.write(body);
+        output.flush();
+    }
+
+    /**
+     * Completes the WebSocket handshake and writes the stream messages of every snapshot until the viewer goes away.
+     * Messages from the viewer are never read, a closed connection shows up as a failed write.
+     */
+    private void streamTo(Socket socket, OutputStream output, Map<String, String> headers) throws IOException {
+        String key = headers.get("sec-websocket-key");
+        if (key == null || !"websocket".equalsIgnoreCase(headers.get("upgrade"))) {
+            respond(output, "400 Bad Request", "text/plain", "Expected a WebSocket upgrade\n".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        String handshake = "HTTP/1.1 101 Switching Protocols\r\n"
+                + "Upgrade: websocket\r\n"
+                + "Connection: Upgrade\r\n"
+                + "Sec-WebSocket-Accept: " + acceptKey(key) + "\r\n\r\n";
+        output.write(handshake.getBytes(StandardCharsets.ISO_8859_1));
+        output.flush();
+        socket.setTcpNoDelay(true);
+        numViewers.incrementAndGet();
+        try {
+            int lastSeen = -1;
+            int lastSent = -1;
+            while (running) {
+                Snapshot next = awaitSnapshotAfter(lastSeen);
+                if (next == null) {
+                    return;
+                }
+                lastSeen = next.sequence;
+                // snapshots taken before anyone watched have no stream messages, the viewer waits for the next one
+                byte[] message = lastSent >= 0 && next.sequence == lastSent + 1 && next.delta != null ? next.delta : next.keyframe;
+                if (message != null) {
+                    output.write(message);
+                    output.flush();
+                    lastSent = next.sequence;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            numViewers.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return The first snapshot taken after the given sequence, or null once the server is closed.
+     */
+    private Snapshot awaitSnapshotAfter(int sequence) throws InterruptedException {
+        snapshotLock.lock();
+        try {
+            while (running && (snapshot == null || snapshot.sequence <= sequence)) {
+                snapshotTaken.await(sampleIntervalMillis, TimeUnit.MILLISECONDS);
+            }
+            return running ? snapshot : null;
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    private static String acceptKey(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest((key + WEBSOCKET_GUID).getBytes(StandardCharsets.ISO_8859_1));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Stops accepting connections, ends every stream and stops the sampler.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        serverSocket.close();
+        executor.shutdownNow();
+    }
+
+    /**
+     * The temperatures of one sampled phase. The image and the field are encoded by the first request that asks for
+     * them and served from memory afterwards.
+     */
+    private class Snapshot {
+        private final int sequence;
+        private final long phase;
+        private final double residual;
+        private final double phasesPerSecond;
+        private final double[] temperatures;
+        private final byte[] keyframe;
+        private final byte[] delta;
+        private byte[] png;
+        private byte[] field;
+
+        private Snapshot(int sequence, long phase, double residual, double phasesPerSecond, double[] temperatures, byte[] keyframe, byte[] delta) {
+            this.sequence = sequence;
+            this.phase = phase;
+            this.residual = residual;
+            this.phasesPerSecond = phasesPerSecond;
+            this.temperatures = temperatures;
+            this.keyframe = keyframe;
+            this.delta = delta;
+        }
+
+        private synchronized byte[] getPng() throws IOException {
+            if (png == null) {
+                BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+                int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+                for (int index = 0; index < pixels.length; index++) {
+                    pixels[index] = TemperatureColorMap.toARGB(temperatures[index]);
+                }
+                ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+                ImageIO.write(image, "png", encoded);
+                png = encoded.toByteArray();
+            }
+            return png;
+        }
+
+        /**
+         * @return The temperatures as a stream file holding a single snapshot, see {@link FieldStreamWriter}.
+         */
+        private synchronized byte[] getField() throws IOException {
+            if (field == null) {
+                ByteBuffer record = ByteBuffer.allocate(4 * Integer.BYTES + Long.BYTES + temperatures.length * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN)
+                        .putInt(FieldStreamWriter.MAGIC)
+                        .putInt(FieldStreamWriter.VERSION)
+                        .putInt(height)
+                        .putInt(width)
+                        .putLong(phase);
+                record.asDoubleBuffer().put(temperatures);
+                ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+                try (GZIPOutputStream gzip = new GZIPOutputStream(encoded, 1 << 16)) {
+                    gzip.write(record.array());
+                }
+                field = encoded.toByteArray();
+            }
+            return field;
+        }
+
+        private String getStats() {
+            return String.format(Locale.ROOT, "{\"phase\":%d,\"residual\":%s,\"phasesPerSecond\":%.1f,\"height\":%d,\"width\":%d,\"viewers\":%d}",
+                    phase, Double.isNaN(residual) ? "null" : Double.toString(residual), phasesPerSecond, height, width, numViewers.get());
+        }
+    }
+}
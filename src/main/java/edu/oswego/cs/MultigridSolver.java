@@ -0,0 +1,337 @@
+package edu.oswego.cs;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+public class MultigridSolver implements HeatPropagationSolver {
+
+    // Levels stop being coarsened once both of their dimensions are this small
+    private static final int COARSEST_DIMENSION = 2;
+    // Red-black sweeps on the coarsest level, which has at most a handful of regions
+    private static final int COARSEST_SWEEPS = 20;
+
+    private final ForkJoinPool pool;
+    private final Level[] levels;
+    private final int cycleIndex;
+    private final int preSmoothingSweeps;
+    private final int postSmoothingSweeps;
+    // Regions per fork join leaf of the residual, restriction and prolongation passes
+    private final int leafRegions;
+    private long phasesCompleted;
+
+    /**
+     * Creates a geometric multigrid solver that updates the temperatures of the alloy in place. Every coarser level
+     * halves the dimensions of the level above it and averages the composition of the two by two block of regions each
+     * coarse region covers, so its neighbor weights are built by the metal alloy exactly like those of the finest level.
+     * Coarse levels solve for the error of the level above them, smoothed with the red-black gauss seidel engine using
+     * the restricted residual as its right hand side.
+     * @param alloy The metal alloy holding the initial temperatures, updated in place.
+     * @param pool The fork join pool every level is smoothed on.
+     * @param leafShape The maximum dimensions of the regions calculated by a single leaf on every level.
+     * @param cycleIndex The number of coarse grid corrections per level, 1 for a V-cycle and 2 for a W-cycle.
+     * @param preSmoothingSweeps The red-black sweeps on a level before restricting its residual.
+     * @param postSmoothingSweeps The red-black sweeps on a level after prolongating the correction.
+     */
+    public MultigridSolver(MetalAlloy alloy, ForkJoinPool pool, LeafShape leafShape, int cycleIndex, int preSmoothingSweeps, int postSmoothingSweeps) {
+        if (cycleIndex < 1) {
+            throw new IllegalArgumentException("The cycle index must be at least 1, got " + cycleIndex);
+        }
+        this.pool = pool;
+        this.cycleIndex = cycleIndex;
+        this.preSmoothingSweeps = preSmoothingSweeps;
+        this.postSmoothingSweeps = postSmoothingSweeps;
+        this.leafRegions = leafShape.getRows() * leafShape.getCols();
+        int numLevels = 1;
+        for (int height = alloy.getHeight(), width = alloy.getWidth(); height > COARSEST_DIMENSION || width > COARSEST_DIMENSION; numLevels++) {
+            height = (height + 1) / 2;
+            width = (width + 1) / 2;
+        }
+        levels = new Level[numLevels];
+        // the finest level solves for the temperatures themselves, so it has no right hand side
+        levels[0] = new Level(alloy, null, pool, leafShape);
+        for (int level = 1; level < numLevels; level++) {
+            MetalAlloy coarseAlloy = coarsen(levels[level - 1].alloy);
+            // the error of a fixed region is always zero, so every coarse region covering one is fixed as well
+            coarseAlloy.setFixedRegions(levels[level - 1].alloy.getFixedRegions().coarsen());
+            levels[level] = new Level(coarseAlloy, new double[coarseAlloy.getHeight() * coarseAlloy.getWidth()], pool, leafShape);
+        }
+    }
+
+    /**
+     * Builds the next coarser alloy, each coarse region averages the composition of the up to four fine regions it
+     * covers.
+     */
+    private static MetalAlloy coarsen(MetalAlloy fine) {
+        int coarseHeight = (fine.getHeight() + 1) / 2;
+        int coarseWidth = (fine.getWidth() + 1) / 2;
+        int numRegions = coarseHeight * coarseWidth;
+        double[] percentsOfMetal1 = new double[numRegions];
+        double[] percentsOfMetal2 = new double[numRegions];
+        double[] percentsOfMetal3 = new double[numRegions];
+        for (int row = 0; row < coarseHeight; row++) {
+            for (int col = 0; col < coarseWidth; col++) {
+                int coarseIndex = row * coarseWidth + col;
+                int numChildren = 0;
+                for (int fineRow = 2 * row; fineRow < Math.min(2 * row + 2, fine.getHeight()); fineRow++) {
+                    for (int fineCol = 2 * col; fineCol < Math.min(2 * col + 2, fine.getWidth()); fineCol++) {
+                        int fineIndex = fine.indexOf(fineRow, fineCol);
+                        percentsOfMetal1[coarseIndex] += fine.getPercentOfMetal1(fineIndex);
+                        percentsOfMetal2[coarseIndex] += fine.getPercentOfMetal2(fineIndex);
+                        percentsOfMetal3[coarseIndex] += fine.getPercentOfMetal3(fineIndex);
+                        numChildren++;
+                    }
+                }
+                percentsOfMetal1[coarseIndex] /= numChildren;
+                percentsOfMetal2[coarseIndex] /= numChildren;
+                percentsOfMetal3[coarseIndex] /= numChildren;
+            }
+        }
+        return new MetalAlloy(coarseHeight, coarseWidth, fine.getC1(), fine.getC2(), fine.getC3(),
+                percentsOfMetal1, percentsOfMetal2, percentsOfMetal3);
+    }
+
+    /**
+     * Runs the given number of multigrid cycles, one cycle per phase.
+     * @param steps The number of cycles to run.
+     * @param measureResidual Whether to measure the residual after the last cycle.
+     * @return The largest difference between a region's temperature and its relaxed temperature after the last cycle,
+     * the same quantity as the temperature change of a jacobi phase, or NaN if it was not measured.
+     */
+    @Override
+    public double runPhases(int steps, boolean measureResidual) {
+        for (int step = 0; step < steps; step++) {
+            cycle(0);
+        }
+        phasesCompleted += steps;
+        return measureResidual ? calculateResidual(levels[0]) : Double.NaN;
+    }
+
+    /**
+     * Smooths the given level, corrects it with the error solved for on the next coarser level and smooths it again.
+     */
+    private void cycle(int levelIndex) {
+        Level level = levels[levelIndex];
+        if (levelIndex == levels.length - 1) {
+            level.smoother.runPhases(COARSEST_SWEEPS, false);
+            return;
+        }
+        level.smoother.runPhases(preSmoothingSweeps, false);
+        calculateResidual(level);
+        Level coarseLevel = levels[levelIndex + 1];
+        restrict(level, coarseLevel);
+        Arrays.fill(coarseLevel.alloy.getTemperatures(), 0);
+        for (int correction = 0; correction < cycleIndex; correction++) {
+            cycle(levelIndex + 1);
+        }
+        prolongate(coarseLevel, level);
+        level.smoother.runPhases(postSmoothingSweeps, false);
+    }
+
+    /**
+     * Stores rhs + (weighted sum of the neighbors) - temperature of every region of the level in its residual plane,
+     * zero for the fixed regions.
+     * @return The largest absolute residual of the level.
+     */
+    private double calculateResidual(Level level) {
+        MetalAlloy alloy = level.alloy;
+        int height = alloy.getHeight();
+        int width = alloy.getWidth();
+        double[] temperatures = alloy.getTemperatures();
+        double[] northWeights = alloy.getNorthWeights();
+        double[] southWeights = alloy.getSouthWeights();
+        double[] westWeights = alloy.getWestWeights();
+        double[] eastWeights = alloy.getEastWeights();
+        double[] rightHandSide = level.rightHandSide;
+        double[] residual = level.residual;
+        FixedRegions fixedRegions = alloy.getFixedRegions();
+        return invoke(height, width, (rowStart, rowEnd) -> {
+            double maxResidual = 0;
+            for (int row = rowStart; row < rowEnd; row++) {
+                int northOffset = row > 0 ? width : 0;
+                int southOffset = row < height - 1 ? width : 0;
+                for (int col = 0; col < width; col++) {
+                    int segmentEnd = fixedRegions.nextFixedCol(row, col, width);
+                    for (; col < segmentEnd; col++) {
+                        int index = row * width + col;
+                        int westOffset = col > 0 ? 1 : 0;
+                        int eastOffset = col < width - 1 ? 1 : 0;
+                        double weightedSum = northWeights[index] * temperatures[index - northOffset]
+                                + southWeights[index] * temperatures[index + southOffset]
+                                + westWeights[index] * temperatures[index - westOffset]
+                                + eastWeights[index] * temperatures[index + eastOffset];
+                        double regionResidual = weightedSum - temperatures[index] + (rightHandSide != null ? rightHandSide[index] : 0);
+                        residual[index] = regionResidual;
+                        maxResidual = Math.max(maxResidual, Math.abs(regionResidual));
+                    }
+                    if (segmentEnd < width) {
+                        residual[row * width + segmentEnd] = 0;
+                    }
+                }
+            }
+            return maxResidual;
+        });
+    }
+
+    /**
+     * Averages the residual of the fine level into the right hand side of the coarse level, weighting every fine region
+     * by its conductance so better conducting metal dominates the coarse region like it dominates the fine relaxation.
+     * The average is scaled by four since the coarse relaxation spreads heat over regions twice as wide.
+     */
+    private void restrict(Level fine, Level coarse) {
+        MetalAlloy fineAlloy = fine.alloy;
+        int fineHeight = fineAlloy.getHeight();
+        int fineWidth = fineAlloy.getWidth();
+        int coarseWidth = coarse.alloy.getWidth();
+        double[] residual = fine.residual;
+        double[] rightHandSide = coarse.rightHandSide;
+        invoke(coarse.alloy.getHeight(), coarseWidth, (rowStart, rowEnd) -> {
+            for (int row = rowStart; row < rowEnd; row++) {
+                for (int col = 0; col < coarseWidth; col++) {
+                    double weightedResidual = 0;
+                    double totalConductance = 0;
+                    for (int fineRow = 2 * row; fineRow < Math.min(2 * row + 2, fineHeight); fineRow++) {
+                        for (int fineCol = 2 * col; fineCol < Math.min(2 * col + 2, fineWidth); fineCol++) {
+                            int fineIndex = fineRow * fineWidth + fineCol;
+                            double conductance = fineAlloy.getConductance(fineIndex);
+                            weightedResidual += conductance * residual[fineIndex];
+                            totalConductance += conductance;
+                        }
+                    }
+                    rightHandSide[row * coarseWidth + col] = totalConductance > 0 ? 4 * weightedResidual / totalConductance : 0;
+                }
+            }
+            return 0.0;
+        });
+    }
+
+    /**
+     * Adds the error solved for on the coarse level to the fine level, bilinearly interpolated between the centers of
+     * the coarse regions. The fixed regions of the fine level are left untouched.
+     */
+    private void prolongate(Level coarse, Level fine) {
+        int fineHeight = fine.alloy.getHeight();
+        int fineWidth = fine.alloy.getWidth();
+        int coarseHeight = coarse.alloy.getHeight();
+        int coarseWidth = coarse.alloy.getWidth();
+        double[] error = coarse.alloy.getTemperatures();
+        double[] temperatures = fine.alloy.getTemperatures();
+        FixedRegions fixedRegions = fine.alloy.getFixedRegions();
+        invoke(fineHeight, fineWidth, (rowStart, rowEnd) -> {
+            for (int row = rowStart; row < rowEnd; row++) {
+                int coarseRow = row / 2;
+                // the second nearest coarse row is above even rows and below odd rows, clamped to the alloy
+                int otherRow = Math.min(Math.max(coarseRow + ((row & 1) == 0 ? -1 : 1), 0), coarseHeight - 1);
+                // the loop steps over the fixed region that ends every segment
+                for (int col = 0; col < fineWidth; col++) {
+                    int segmentEnd = fixedRegions.nextFixedCol(row, col, fineWidth);
+                    for (; col < segmentEnd; col++) {
+                        int coarseCol = col / 2;
+                        int otherCol = Math.min(Math.max(coarseCol + ((col & 1) == 0 ? -1 : 1), 0), coarseWidth - 1);
+                        temperatures[row * fineWidth + col] += 0.5625 * error[coarseRow * coarseWidth + coarseCol]
+                                + 0.1875 * error[otherRow * coarseWidth + coarseCol]
+                                + 0.1875 * error[coarseRow * coarseWidth + otherCol]
+                                + 0.0625 * error[otherRow * coarseWidth + otherCol];
+                    }
+                }
+            }
+            return 0.0;
+        });
+    }
+
+    private double invoke(int height, int width, RowRangeOperation operation) {
+        int leafRows = Math.max(1, leafRegions / width);
+        return pool.invoke(new RowRangeTask(operation, 0, height, leafRows));
+    }
+
+    @Override
+    public void publishLatest() {
+        // the finest level is updated in place, so its alloy always holds the latest temperatures
+    }
+
+    @Override
+    public MetalAlloy getLatestAlloy() {
+        return levels[0].alloy;
+    }
+
+    @Override
+    public boolean supportsFixedRegions() {
+        return true;
+    }
+
+    @Override
+    public void setTemperatures(int[] indices, double[] temperatures) {
+        MetalAlloy alloy = levels[0].alloy;
+        for (int i = 0; i < indices.length; i++) {
+            alloy.setTemperature(indices[i], temperatures[i]);
+        }
+    }
+
+    @Override
+    public boolean publishesOnRequest() {
+        return false;
+    }
+
+    @Override
+    public long getPhasesCompleted() {
+        return phasesCompleted;
+    }
+
+    public int getNumLevels() {
+        return levels.length;
+    }
+
+    /**
+     * A grid of the hierarchy, its alloy holds the temperatures on the finest level and the error of the level above
+     * it on every coarser level.
+     */
+    private static class Level {
+        private final MetalAlloy alloy;
+        private final double[] rightHandSide;
+        private final double[] residual;
+        private final HeatPropagationEngine smoother;
+
+        private Level(MetalAlloy alloy, double[] rightHandSide, ForkJoinPool pool, LeafShape leafShape) {
+            this.alloy = alloy;
+            this.rightHandSide = rightHandSide;
+            this.residual = new double[alloy.getHeight() * alloy.getWidth()];
+            this.smoother = new HeatPropagationEngine(alloy, pool, leafShape.clampTo(alloy.getHeight(), alloy.getWidth()), 1, rightHandSide);
+        }
+    }
+
+    /**
+     * An operation on a range of rows of a level that returns the largest value it measured.
+     */
+    private interface RowRangeOperation {
+        double apply(int rowStart, int rowEnd);
+    }
+
+    /**
+     * Splits a range of rows in half until it fits within a leaf and returns the maximum of the leaf results.
+     */
+    private static class RowRangeTask extends RecursiveTask<Double> {
+        private final RowRangeOperation operation;
+        private final int rowStart;
+        private final int rowEnd;
+        private final int leafRows;
+
+        private RowRangeTask(RowRangeOperation operation, int rowStart, int rowEnd, int leafRows) {
+            this.operation = operation;
+            this.rowStart = rowStart;
+            this.rowEnd = rowEnd;
+            this.leafRows = leafRows;
+        }
+
+        @Override
+        protected Double compute() {
+            if (rowEnd - rowStart <= leafRows) {
+                return operation.apply(rowStart, rowEnd);
+            }
+            int rowMidpoint = (rowStart + rowEnd) >>> 1;
+            RowRangeTask bottom = new RowRangeTask(operation, rowMidpoint, rowEnd, leafRows);
+            bottom.fork();
+            double top = new RowRangeTask(operation, rowStart, rowMidpoint, leafRows).compute();
+            return Math.max(top, bottom.join());
+        }
+    }
+}
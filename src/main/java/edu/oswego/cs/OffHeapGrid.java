@@ -0,0 +1,276 @@
+package edu.oswego.cs;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+
+public class OffHeapGrid {
+
+    // A single buffer is limited to 2GB, planes are split into chunks of whole rows no larger than this
+    private static final int MAX_CHUNK_BYTES = 1 << 30;
+
+    private final int height;
+    private final int width;
+    private final int rowsPerChunk;
+
+    // Precomputed effective conductance of each neighbor divided by the region's number of neighbors, the same weights
+    // as the metal alloy so both calculate identical temperatures, a missing neighbor has a weight of zero
+    private final Plane northWeights;
+    private final Plane southWeights;
+    private final Plane westWeights;
+    private final Plane eastWeights;
+    private Plane temperaturesUsedForCalculations;
+    private Plane temperaturesToStoreResults;
+
+    /**
+     * Creates a metal alloy whose neighbor weights and double buffered temperatures are stored outside the java heap,
+     * in direct buffers or in a memory mapped file. The composition of each region is generated once, reduced to its
+     * conductance and discarded, so the heap only holds the chunk handles no matter how large the grid is. The same
+     * seed generates the same composition as a metal alloy.
+     * Direct buffers count against -XX:MaxDirectMemorySize, which defaults to the maximum heap size, a backing file is
+     * only limited by the disk and the page cache.
+     * @param height the height of the metal alloy
+     * @param width the width of the metal alloy
+     * @param c1 the first metal of the alloy's thermal constant
+     * @param c2 the second metal of the alloy's thermal constant
+     * @param c3 the third metal of the alloy's thermal constant
+     * @param seed the seed of the composition, generated in parallel like that of the metal alloy
+     * @param backingFile the file the grid is mapped from, replaced if it exists, or null for direct buffers
+     */
+    public OffHeapGrid(int height, int width, double c1, double c2, double c3, long seed, Path backingFile) throws IOException {
+        if ((long) width * Double.BYTES > MAX_CHUNK_BYTES) {
+            throw new IllegalArgumentException("A row of " + width + " regions does not fit in a single chunk");
+        }
+        this.height = height;
+        this.width = width;
+        this.rowsPerChunk = Math.min(height, MAX_CHUNK_BYTES / (width * Double.BYTES));
+        if (backingFile == null) {
+            northWeights = new Plane(null, 0);
+            southWeights = new Plane(null, 0);
+            westWeights = new Plane(null, 0);
+            eastWeights = new Plane(null, 0);
+            temperaturesUsedForCalculations = new Plane(null, 0);
+            temperaturesToStoreResults = new Plane(null, 0);
+        } else {
+            long planeBytes = (long) height * width * Double.BYTES;
+            // the mappings stay valid after the channel is closed
+            try (FileChannel channel = FileChannel.open(backingFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                northWeights = new Plane(channel, 0);
+                southWeights = new Plane(channel, planeBytes);
+                westWeights = new Plane(channel, 2 * planeBytes);
+                eastWeights = new Plane(channel, 3 * planeBytes);
+                temperaturesUsedForCalculations = new Plane(channel, 4 * planeBytes);
+                temperaturesToStoreResults = new Plane(channel, 5 * planeBytes);
+            }
+        }
+        // the conductances are only needed to derive the weights, they borrow the plane of the next phase meanwhile
+        Plane conductances = temperaturesToStoreResults;
+        SplittableRandom[] randoms = AlloyComposition.splitRandoms(seed, height);
+        AlloyComposition.forEachRowBlock(height, block -> {
+            SplittableRandom random = randoms[block];
+            int rowEnd = Math.min(height, (block + 1) * AlloyComposition.ROWS_PER_BLOCK);
+            for (int row = block * AlloyComposition.ROWS_PER_BLOCK; row < rowEnd; row++) {
+                DoubleBuffer chunk = conductances.chunkOf(row);
+                int offset = conductances.offsetOf(row);
+                for (int col = 0; col < width; col++) {
+                    MetalAlloyRegion region = new MetalAlloyRegion(random);
+                    chunk.put(offset + col, c1 * region.getPercentOfMetal1() + c2 * region.getPercentOfMetal2() + c3 * region.getPercentOfMetal3());
+                }
+            }
+        });
+        AlloyComposition.forEachRowBlock(height, block -> calculateNeighborWeights(conductances, block * AlloyComposition.ROWS_PER_BLOCK,
+                Math.min(height, (block + 1) * AlloyComposition.ROWS_PER_BLOCK)));
+        AlloyComposition.forEachRowBlock(height, block -> {
+            int rowEnd = Math.min(height, (block + 1) * AlloyComposition.ROWS_PER_BLOCK);
+            for (int row = block * AlloyComposition.ROWS_PER_BLOCK; row < rowEnd; row++) {
+                DoubleBuffer chunk = conductances.chunkOf(row);
+                int offset = conductances.offsetOf(row);
+                for (int col = 0; col < width; col++) {
+                    chunk.put(offset + col, 0);
+                }
+            }
+        });
+    }
+
+    /**
+     * The weights of the metal alloy, see {@link AlloyComposition}: the conductance of each neighbor divided by the
+     * number of neighbors of the region.
+     */
+    private void calculateNeighborWeights(Plane conductances, int rowStart, int rowEnd) {
+        for (int row = rowStart; row < rowEnd; row++) {
+            boolean hasNorth = row > 0;
+            boolean hasSouth = row < height - 1;
+            DoubleBuffer conductance = conductances.chunkOf(row);
+            int offset = conductances.offsetOf(row);
+            DoubleBuffer northConductance = hasNorth ? conductances.chunkOf(row - 1) : null;
+            int northOffset = hasNorth ? conductances.offsetOf(row - 1) : 0;
+            DoubleBuffer southConductance = hasSouth ? conductances.chunkOf(row + 1) : null;
+            int southOffset = hasSouth ? conductances.offsetOf(row + 1) : 0;
+            DoubleBuffer north = northWeights.chunkOf(row);
+            DoubleBuffer south = southWeights.chunkOf(row);
+            DoubleBuffer west = westWeights.chunkOf(row);
+            DoubleBuffer east = eastWeights.chunkOf(row);
+            for (int col = 0; col < width; col++) {
+                int index = offset + col;
+                boolean hasWest = col > 0;
+                boolean hasEast = col < width - 1;
+                int numNeighbors = (hasNorth ? 1 : 0) + (hasSouth ? 1 : 0) + (hasWest ? 1 : 0) + (hasEast ? 1 : 0);
+                north.put(index, hasNorth ? northConductance.get(northOffset + col) / numNeighbors : 0);
+                south.put(index, hasSouth ? southConductance.get(southOffset + col) / numNeighbors : 0);
+                west.put(index, hasWest ? conductance.get(index - 1) / numNeighbors : 0);
+                east.put(index, hasEast ? conductance.get(index + 1) / numNeighbors : 0);
+            }
+        }
+    }
+
+    /**
+     * The off heap counterpart of the jacobi relaxation of the metal alloy, reads the temperatures of the last phase
+     * and writes those of the next one. Every region is calculated by the same branch free weighted sum as the metal
+     * alloy, a missing neighbor has a weight of zero and is read from the region itself, so the results are identical
+     * to those of a metal alloy generated from the same seed. The top left and bottom right corners keep their
+     * temperatures.
+     * @param rowStart Inclusive row start
+     * @param rowEnd Exclusive row end
+     * @param colStart Inclusive column start
+     * @param colEnd Exclusive column end
+     */
+    public void calculateNewTempsForRegions(int rowStart, int rowEnd, int colStart, int colEnd) {
+        Plane source = temperaturesUsedForCalculations;
+        Plane results = temperaturesToStoreResults;
+        for (int row = rowStart; row < rowEnd; row++) {
+            DoubleBuffer temps = source.chunkOf(row);
+            int offset = source.offsetOf(row);
+            // the rows above and below may live in other chunks, the edge rows read their own row instead
+            int northRow = row > 0 ? row - 1 : row;
+            int southRow = row < height - 1 ? row + 1 : row;
+            DoubleBuffer northTemps = source.chunkOf(northRow);
+            int northOffset = source.offsetOf(northRow) - offset;
+            DoubleBuffer southTemps = source.chunkOf(southRow);
+            int southOffset = source.offsetOf(southRow) - offset;
+            DoubleBuffer north = northWeights.chunkOf(row);
+            DoubleBuffer south = southWeights.chunkOf(row);
+            DoubleBuffer west = westWeights.chunkOf(row);
+            DoubleBuffer east = eastWeights.chunkOf(row);
+            DoubleBuffer resultTemps = results.chunkOf(row);
+            int col = colStart;
+            if (col == 0 && col < colEnd) {
+                resultTemps.put(offset, calculateWeightedSum(temps, northTemps, southTemps, north, south, west, east, offset, northOffset, southOffset, 0, width > 1 ? 1 : 0));
+                col++;
+            }
+            int interiorEnd = Math.min(colEnd, width - 1);
+            for (int index = offset + col; index < offset + interiorEnd; index++) {
+                resultTemps.put(index, north.get(index) * northTemps.get(index + northOffset)
+                        + south.get(index) * southTemps.get(index + southOffset)
+                        + west.get(index) * temps.get(index - 1)
+                        + east.get(index) * temps.get(index + 1));
+            }
+            col = Math.max(col, interiorEnd);
+            if (col < colEnd) {
+                int index = offset + col;
+                resultTemps.put(index, calculateWeightedSum(temps, northTemps, southTemps, north, south, west, east, index, northOffset, southOffset, 1, 0));
+            }
+        }
+        // Don't change the temperature of the top left and bottom right corners
+        if (rowStart == 0 && colStart == 0 && rowEnd > 0 && colEnd > 0) {
+            results.chunkOf(0).put(0, source.chunkOf(0).get(0));
+        }
+        if (rowEnd == height && colEnd == width && rowStart < rowEnd && colStart < colEnd) {
+            int offset = source.offsetOf(height - 1) + width - 1;
+            results.chunkOf(height - 1).put(offset, source.chunkOf(height - 1).get(offset));
+        }
+    }
+
+    private static double calculateWeightedSum(DoubleBuffer temps, DoubleBuffer northTemps, DoubleBuffer southTemps, DoubleBuffer north, DoubleBuffer south,
+                                               DoubleBuffer west, DoubleBuffer east, int index, int northOffset, int southOffset, int westOffset, int eastOffset) {
+        return north.get(index) * northTemps.get(index + northOffset)
+                + south.get(index) * southTemps.get(index + southOffset)
+                + west.get(index) * temps.get(index - westOffset)
+                + east.get(index) * temps.get(index + eastOffset);
+    }
+
+    /**
+     * @return The largest absolute difference between the temperatures of the last and the next phase.
+     */
+    public double calculateMaxTempDifference(int rowStart, int rowEnd, int colStart, int colEnd) {
+        double maxDifference = 0;
+        for (int row = rowStart; row < rowEnd; row++) {
+            DoubleBuffer temps = temperaturesUsedForCalculations.chunkOf(row);
+            DoubleBuffer resultTemps = temperaturesToStoreResults.chunkOf(row);
+            int offset = temperaturesUsedForCalculations.offsetOf(row);
+            for (int col = colStart; col < colEnd; col++) {
+                maxDifference = Math.max(maxDifference, Math.abs(resultTemps.get(offset + col) - temps.get(offset + col)));
+            }
+        }
+        return maxDifference;
+    }
+
+    /**
+     * Makes the temperatures of the next phase the ones the following phase is calculated from.
+     */
+    public void swapTemperatures() {
+        Plane results = temperaturesToStoreResults;
+        temperaturesToStoreResults = temperaturesUsedForCalculations;
+        temperaturesUsedForCalculations = results;
+    }
+
+    /**
+     * Sets the temperature of a region in both buffers, used for the initial corner temperatures.
+     */
+    public void setTempOfRegion(double newTemp, int row, int col) {
+        temperaturesUsedForCalculations.chunkOf(row).put(temperaturesUsedForCalculations.offsetOf(row) + col, newTemp);
+        temperaturesToStoreResults.chunkOf(row).put(temperaturesToStoreResults.offsetOf(row) + col, newTemp);
+    }
+
+    /**
+     * @return The temperature of a region after the most recently completed phase.
+     */
+    public double getTempOfRegion(int row, int col) {
+        return temperaturesUsedForCalculations.chunkOf(row).get(temperaturesUsedForCalculations.offsetOf(row) + col);
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * A row-major plane of doubles split into chunks of whole rows, so a row never spans two buffers.
+     */
+    private class Plane {
+        private final DoubleBuffer[] chunks;
+
+        /**
+         * @param channel the channel of the backing file to map the plane from, or null for direct buffers
+         * @param position the offset of the plane within the backing file
+         */
+        private Plane(FileChannel channel, long position) throws IOException {
+            int numChunks = (height + rowsPerChunk - 1) / rowsPerChunk;
+            chunks = new DoubleBuffer[numChunks];
+            for (int chunk = 0; chunk < numChunks; chunk++) {
+                int chunkRows = Math.min(rowsPerChunk, height - chunk * rowsPerChunk);
+                int chunkBytes = chunkRows * width * Double.BYTES;
+                ByteBuffer buffer = channel == null
+                        ? ByteBuffer.allocateDirect(chunkBytes)
+                        : channel.map(FileChannel.MapMode.READ_WRITE, position + (long) chunk * rowsPerChunk * width * Double.BYTES, chunkBytes);
+                chunks[chunk] = buffer.order(ByteOrder.nativeOrder()).asDoubleBuffer();
+            }
+        }
+
+        private DoubleBuffer chunkOf(int row) {
+            return chunks[row / rowsPerChunk];
+        }
+
+        private int offsetOf(int row) {
+            return (row % rowsPerChunk) * width;
+        }
+    }
+}
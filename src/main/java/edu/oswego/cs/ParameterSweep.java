@@ -0,0 +1,195 @@
+package edu.oswego.cs;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+public class ParameterSweep {
+
+    private static final String[] PARAMETERS = {"s", "t", "c1", "c2", "c3", "height", "width"};
+    private static final String CSV_HEADER = "job,height,width,c1,c2,c3,s,t,phases,converged,residual,runtimeMillis,minTemp,maxTemp,meanTemp";
+
+    private final List<double[]> jobs;
+    private final ForkJoinPool pool;
+    private final int maxConcurrentJobs;
+    private final LeafShape leafShape;
+    private final RelaxationKernel kernel;
+    private final int threshold;
+    private final double tolerance;
+    private final int checkInterval;
+    private final long seed;
+
+    /**
+     * Runs every combination of a parameter grid as an independent simulation. All simulations share one fork join
+     * pool, so the phases of many small alloys interleave on its threads and keep every core busy. At most
+     * maxConcurrentJobs simulations hold their alloys at once, the rest wait their turn in the order of the grid.
+     * @param jobs The parameters of each simulation in the order of {@link #PARAMETERS}.
+     * @param pool The fork join pool shared by every simulation.
+     * @param maxConcurrentJobs The number of simulations that run at the same time.
+     * @param leafShape The leaf shape of every simulation's engine.
+     * @param kernel The kernel of every simulation's engine.
+     * @param threshold The maximum number of phases of a simulation.
+     * @param tolerance The residual a simulation stops at, 0 runs every simulation for the maximum number of phases.
+     * @param checkInterval The number of phases between convergence checks.
+     * @param seed The seed the composition of every simulation is generated from.
+     */
+    public ParameterSweep(List<double[]> jobs, ForkJoinPool pool, int maxConcurrentJobs, LeafShape leafShape, RelaxationKernel kernel,
+                          int threshold, double tolerance, int checkInterval, long seed) {
+        if (checkInterval < 1) {
+            throw new IllegalArgumentException("The check interval must be at least 1 phase, got " + checkInterval);
+        }
+        this.jobs = jobs;
+        this.pool = pool;
+        this.maxConcurrentJobs = maxConcurrentJobs;
+        this.leafShape = leafShape;
+        this.kernel = kernel;
+        this.threshold = threshold;
+        this.tolerance = tolerance;
+        this.checkInterval = checkInterval;
+        this.seed = seed;
+    }
+
+    /**
+     * Reads a parameter grid with one parameter per line written as name=value1,value2,... and expands it into every
+     * combination of the values. Blank lines and lines starting with # are ignored, parameters that are not listed
+     * keep their default value. Heights and widths must be positive whole numbers.
+     * @param sweepFile The parameter grid.
+     * @param defaults The default value of each parameter in the order of {@link #PARAMETERS}.
+     * @return The parameters of each simulation.
+     */
+    public static List<double[]> readJobs(Path sweepFile, double[] defaults) throws IOException {
+        Map<Integer, double[]> values = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(sweepFile)) {
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            int separator = line.indexOf('=');
+            int parameter = separator < 0 ? -1 : List.of(PARAMETERS).indexOf(line.substring(0, separator).strip());
+            if (parameter < 0) {
+                throw new IllegalArgumentException("Expected one of " + String.join(", ", PARAMETERS) + " followed by =, got " + line);
+            }
+            String[] parameterValues = line.substring(separator + 1).split(",");
+            double[] parsedValues = new double[parameterValues.length];
+            for (int i = 0; i < parameterValues.length; i++) {
+                parsedValues[i] = Double.parseDouble(parameterValues[i].strip());
+                if (PARAMETERS[parameter].equals("height") || PARAMETERS[parameter].equals("width")) {
+                    checkDimension(PARAMETERS[parameter], parsedValues[i]);
+                }
+            }
+            values.put(parameter, parsedValues);
+        }
+        List<double[]> jobs = new ArrayList<>();
+        jobs.add(defaults.clone());
+        for (Map.Entry<Integer, double[]> entry : values.entrySet()) {
+            List<double[]> expandedJobs = new ArrayList<>();
+            for (double[] job : jobs) {
+                for (double value : entry.getValue()) {
+                    double[] expandedJob = job.clone();
+                    expandedJob[entry.getKey()] = value;
+                    expandedJobs.add(expandedJob);
+                }
+            }
+            jobs = expandedJobs;
+        }
+        return jobs;
+    }
+
+    private static void checkDimension(String parameter, double value) {
+        if (value < 1 || value > Integer.MAX_VALUE || value != Math.rint(value)) {
+            throw new IllegalArgumentException("The " + parameter + " must be a positive whole number of regions, got " + value);
+        }
+    }
+
+    /**
+     * Runs every simulation and writes a line of results per simulation to a CSV file as soon as it completes.
+     * @param resultsFile The CSV file, replaced if it exists.
+     */
+    public void run(Path resultsFile) throws IOException, InterruptedException {
+        ExecutorService jobService = Executors.newFixedThreadPool(maxConcurrentJobs);
+        try (BufferedWriter results = Files.newBufferedWriter(resultsFile)) {
+            results.write(CSV_HEADER);
+            results.newLine();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int job = 0; job < jobs.size(); job++) {
+                int jobIndex = job;
+                futures.add(jobService.submit(() -> {
+                    String line = runJob(jobIndex, jobs.get(jobIndex));
+                    synchronized (results) {
+                        try {
+                            results.write(line);
+                            results.newLine();
+                            results.flush();
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("A sweep job failed", e.getCause());
+                }
+            }
+        } finally {
+            jobService.shutdownNow();
+        }
+    }
+
+    private String runJob(int jobIndex, double[] parameters) {
+        long start = System.nanoTime();
+        double s = parameters[0];
+        double t = parameters[1];
+        double c1 = parameters[2];
+        double c2 = parameters[3];
+        double c3 = parameters[4];
+        int height = (int) parameters[5];
+        int width = (int) parameters[6];
+        MetalAlloy alloyA = new MetalAlloy(height, width, c1, c2, c3, seed);
+        alloyA.setTempOfRegion(s, 0, 0);
+        alloyA.setTempOfRegion(t, height - 1, width - 1);
+        MetalAlloy alloyB = new MetalAlloy(alloyA.getComposition());
+        alloyA.deepCopyRegionsTo(alloyB);
+        HeatPropagationEngine engine = new HeatPropagationEngine(alloyA, alloyB, pool, leafShape, kernel, false);
+        int phase = 0;
+        double residual = Double.NaN;
+        boolean converged = false;
+        while (phase < threshold && !converged) {
+            // run up to the next check so the jobs take turns on the pool a block of phases at a time
+            int steps = Math.min(checkInterval, threshold - phase);
+            residual = engine.runPhases(steps, true);
+            phase += steps;
+            converged = tolerance > 0 && residual < tolerance;
+        }
+        long runtimeMillis = (System.nanoTime() - start) / 1_000_000;
+        double[] temperatures = engine.getLatestAlloy().getTemperatures();
+        double minTemp = Double.POSITIVE_INFINITY;
+        double maxTemp = Double.NEGATIVE_INFINITY;
+        double totalTemp = 0;
+        for (double temperature : temperatures) {
+            minTemp = Math.min(minTemp, temperature);
+            maxTemp = Math.max(maxTemp, temperature);
+            totalTemp += temperature;
+        }
+        return String.format(Locale.ROOT, "%d,%d,%d,%s,%s,%s,%s,%s,%d,%b,%s,%d,%s,%s,%s", jobIndex, height, width, c1, c2, c3, s, t,
+                phase, converged, residual, runtimeMillis, minTemp, maxTemp, totalTemp / temperatures.length);
+    }
+
+    public int getNumJobs() {
+        return jobs.size();
+    }
+}
@@ -0,0 +1,50 @@
+package edu.oswego.cs;
+
+public class PrecisionAccuracyReport {
+
+    private final double maxAbsoluteError;
+    private final double maxRelativeError;
+    private final double rootMeanSquareError;
+
+    /**
+     * Compares the temperatures of a single precision run against a double precision reference run of the same alloy.
+     * @param reference The metal alloy holding the double precision temperatures.
+     * @param result The metal alloy holding the widened single precision temperatures.
+     */
+    public PrecisionAccuracyReport(MetalAlloy reference, MetalAlloy result) {
+        int numRegions = reference.getHeight() * reference.getWidth();
+        double maxAbsolute = 0;
+        double maxRelative = 0;
+        double squaredErrorSum = 0;
+        for (int index = 0; index < numRegions; index++) {
+            double expected = reference.getTemperature(index);
+            double error = Math.abs(result.getTemperature(index) - expected);
+            maxAbsolute = Math.max(maxAbsolute, error);
+            if (expected != 0) {
+                maxRelative = Math.max(maxRelative, error / Math.abs(expected));
+            }
+            squaredErrorSum += error * error;
+        }
+        maxAbsoluteError = maxAbsolute;
+        maxRelativeError = maxRelative;
+        rootMeanSquareError = Math.sqrt(squaredErrorSum / numRegions);
+    }
+
+    public double getMaxAbsoluteError() {
+        return maxAbsoluteError;
+    }
+
+    public double getMaxRelativeError() {
+        return maxRelativeError;
+    }
+
+    public double getRootMeanSquareError() {
+        return rootMeanSquareError;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Single precision accuracy: max absolute error %.6g, max relative error %.6g, RMS error %.6g",
+                maxAbsoluteError, maxRelativeError, rootMeanSquareError);
+    }
+}
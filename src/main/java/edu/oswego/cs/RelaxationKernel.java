@@ -0,0 +1,43 @@
+package edu.oswego.cs;
+
+public interface RelaxationKernel {
+
+    /**
+     * Calculates the new temperature of every region within the specified bounds using jacobi relaxation and stores
+     * the results in the target metal alloy.
+     * @param source Metal alloy that is treated as immutable and used for calculations
+     * @param results Metal alloy that is treated as mutable and used to store the results of the calculations.
+     * @param rowStart Inclusive row start
+     * @param rowEnd Exclusive row end
+     * @param colStart Inclusive column start
+     * @param colEnd Exclusive column end
+     */
+    void calculateNewTempsForRegions(MetalAlloy source, MetalAlloy results, int rowStart, int rowEnd, int colStart, int colEnd);
+
+    /**
+     * Calculates the new single precision temperature of every region within the specified bounds using jacobi
+     * relaxation.
+     * @param field The single precision field holding the weights of the regions.
+     * @param source The row-major temperatures used for calculations
+     * @param results The row-major temperatures used to store the results of the calculations.
+     * @param rowStart Inclusive row start
+     * @param rowEnd Exclusive row end
+     * @param colStart Inclusive column start
+     * @param colEnd Exclusive column end
+     */
+    void calculateNewTempsForRegions(SinglePrecisionField field, float[] source, float[] results, int rowStart, int rowEnd, int colStart, int colEnd);
+
+    /**
+     * @return The scalar kernel, or the vector kernel if it was requested and the jdk.incubator.vector module is
+     * available. Falls back to the scalar kernel when the module was not added to the JVM.
+     */
+    static RelaxationKernel select(boolean useVectorKernel) {
+        if (useVectorKernel) {
+            if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+                return new VectorRelaxationKernel();
+            }
+            System.out.println("The jdk.incubator.vector module is not available (run with --add-modules jdk.incubator.vector), falling back to the scalar kernel");
+        }
+        return new ScalarRelaxationKernel();
+    }
+}
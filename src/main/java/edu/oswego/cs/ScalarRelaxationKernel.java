@@ -0,0 +1,19 @@
+package edu.oswego.cs;
+
+public class ScalarRelaxationKernel implements RelaxationKernel {
+
+    @Override
+    public void calculateNewTempsForRegions(MetalAlloy source, MetalAlloy results, int rowStart, int rowEnd, int colStart, int colEnd) {
+        source.calculateNewTempsForRegions(results, rowStart, rowEnd, colStart, colEnd);
+    }
+
+    @Override
+    public void calculateNewTempsForRegions(SinglePrecisionField field, float[] source, float[] results, int rowStart, int rowEnd, int colStart, int colEnd) {
+        field.calculateNewTempsForRegions(source, results, rowStart, rowEnd, colStart, colEnd);
+    }
+
+    @Override
+    public String toString() {
+        return "scalar";
+    }
+}
@@ -0,0 +1,206 @@
+package edu.oswego.cs;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class Scenario {
+
+    private final FixedRegions fixedRegions;
+    // Row-major indices of the fixed regions in ascending order and the source that sets the temperature of each
+    private final int[] indices;
+    private final HeatSource[] sources;
+    // The subset of the fixed regions whose source follows a schedule, rewritten at the start of every block of phases
+    private final int[] scheduledIndices;
+    private final HeatSource[] scheduledSources;
+    private final double[] scheduledTemperatures;
+
+    private Scenario(int height, int width, Map<Integer, HeatSource> sourceOfRegion) {
+        int numFixed = sourceOfRegion.size();
+        indices = new int[numFixed];
+        sources = new HeatSource[numFixed];
+        int numScheduled = 0;
+        int position = 0;
+        for (Map.Entry<Integer, HeatSource> entry : sourceOfRegion.entrySet()) {
+            indices[position] = entry.getKey();
+            sources[position] = entry.getValue();
+            numScheduled += entry.getValue().isScheduled() ? 1 : 0;
+            position++;
+        }
+        scheduledIndices = new int[numScheduled];
+        scheduledSources = new HeatSource[numScheduled];
+        scheduledTemperatures = new double[numScheduled];
+        for (int i = 0, scheduled = 0; i < numFixed; i++) {
+            if (sources[i].isScheduled()) {
+                scheduledIndices[scheduled] = indices[i];
+                scheduledSources[scheduled] = sources[i];
+                scheduled++;
+            }
+        }
+        fixedRegions = new FixedRegions(height, width, indices);
+    }
+
+    /**
+     * Reads the heat sources, sinks and edges of a simulation, one per line. Blank lines and lines starting with # are
+     * ignored, rows and columns count from 0 at the top left and ranges such as 10-19 include both ends.
+     * <pre>
+     * source ROWS COLS TEMPERATURE             holds the regions at a temperature
+     * sink ROWS COLS TEMPERATURE               the same as a source, for readability
+     * source ROWS COLS PHASE:TEMPERATURE,...   follows a schedule, linearly interpolated and held after its last entry
+     * edge top|bottom|left|right TEMPERATURE   holds a whole edge at a temperature, a schedule works here as well
+     * edge top|bottom|left|right insulated     the default, no heat crosses the edge
+     * </pre>
+     * Regions covered by several sources take the temperature of the last one listed. The scenario replaces the fixed
+     * corners of the simulation.
+     * @param scenarioFile The scenario.
+     * @param height The height of the metal alloy.
+     * @param width The width of the metal alloy.
+     * @return The scenario.
+     */
+    public static Scenario read(Path scenarioFile, int height, int width) throws IOException {
+        // sorted by index, so the regions are listed in the order of the planes
+        Map<Integer, HeatSource> sourceOfRegion = new TreeMap<>();
+        for (String line : Files.readAllLines(scenarioFile)) {
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\\s+");
+            try {
+                if ((fields[0].equals("source") || fields[0].equals("sink")) && fields.length == 4) {
+                    int[] rows = parseRange(fields[1], height);
+                    int[] cols = parseRange(fields[2], width);
+                    addRegions(sourceOfRegion, width, rows[0], rows[1], cols[0], cols[1], HeatSource.parse(fields[3]));
+                } else if (fields[0].equals("edge") && fields.length == 3) {
+                    if (fields[2].equals("insulated")) {
+                        continue;
+                    }
+                    HeatSource source = HeatSource.parse(fields[2]);
+                    switch (fields[1]) {
+                        case "top" -> addRegions(sourceOfRegion, width, 0, 1, 0, width, source);
+                        case "bottom" -> addRegions(sourceOfRegion, width, height - 1, height, 0, width, source);
+                        case "left" -> addRegions(sourceOfRegion, width, 0, height, 0, 1, source);
+                        case "right" -> addRegions(sourceOfRegion, width, 0, height, width - 1, width, source);
+                        default -> throw new IllegalArgumentException("Unknown edge " + fields[1]);
+                    }
+                } else {
+                    throw new IllegalArgumentException("Expected source, sink or edge");
+                }
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid scenario line '" + line + "': " + e.getMessage(), e);
+            }
+        }
+        return new Scenario(height, width, sourceOfRegion);
+    }
+
+    /**
+     * @return The exclusive range of a row or column written as N or N-M.
+     */
+    private static int[] parseRange(String range, int length) {
+        int separator = range.indexOf('-');
+        int start = Integer.parseInt(separator < 0 ? range : range.substring(0, separator));
+        int end = (separator < 0 ? start : Integer.parseInt(range.substring(separator + 1))) + 1;
+        if (start < 0 || end > length || start >= end) {
+            throw new IllegalArgumentException(range + " does not lie within 0-" + (length - 1));
+        }
+        return new int[] {start, end};
+    }
+
+    private static void addRegions(Map<Integer, HeatSource> sourceOfRegion, int width, int rowStart, int rowEnd, int colStart, int colEnd, HeatSource source) {
+        for (int row = rowStart; row < rowEnd; row++) {
+            for (int col = colStart; col < colEnd; col++) {
+                sourceOfRegion.put(row * width + col, source);
+            }
+        }
+    }
+
+    /**
+     * Makes the regions of the scenario the fixed regions of the metal alloy and sets their temperatures for the given
+     * phase.
+     */
+    public void applyTo(MetalAlloy alloy, long phase) {
+        alloy.setFixedRegions(fixedRegions);
+        for (int i = 0; i < indices.length; i++) {
+            alloy.setTemperature(indices[i], sources[i].temperatureAt(phase));
+        }
+    }
+
+    /**
+     * Sets the temperatures the schedules of the scenario reach at the given phase in the temperatures the solver
+     * calculates the next phase from. Schedules are sampled once per block of phases. The solver has to keep the fixed
+     * regions, see {@link HeatPropagationSolver#supportsFixedRegions()}.
+     */
+    public void applySchedules(HeatPropagationSolver solver, long phase) throws IOException {
+        if (!solver.supportsFixedRegions()) {
+            throw new IllegalArgumentException("The solver only keeps the fixed corners, it can not hold the regions of a scenario");
+        }
+        for (int i = 0; i < scheduledIndices.length; i++) {
+            scheduledTemperatures[i] = scheduledSources[i].temperatureAt(phase);
+        }
+        solver.setTemperatures(scheduledIndices, scheduledTemperatures);
+    }
+
+    public boolean hasSchedules() {
+        return scheduledIndices.length > 0;
+    }
+
+    public FixedRegions getFixedRegions() {
+        return fixedRegions;
+    }
+
+    /**
+     * The temperature of a source, constant or interpolated between the entries of a schedule.
+     */
+    private static class HeatSource {
+        private final long[] phases;
+        private final double[] temperatures;
+
+        private HeatSource(long[] phases, double[] temperatures) {
+            this.phases = phases;
+            this.temperatures = temperatures;
+        }
+
+        /**
+         * Parses a temperature or a schedule of PHASE:TEMPERATURE entries in ascending order of their phases.
+         */
+        private static HeatSource parse(String value) {
+            if (value.indexOf(':') < 0) {
+                return new HeatSource(new long[] {0}, new double[] {Double.parseDouble(value)});
+            }
+            String[] entries = value.split(",");
+            long[] phases = new long[entries.length];
+            double[] temperatures = new double[entries.length];
+            for (int i = 0; i < entries.length; i++) {
+                String[] entry = entries[i].split(":");
+                phases[i] = Long.parseLong(entry[0]);
+                temperatures[i] = Double.parseDouble(entry[1]);
+                if (i > 0 && phases[i] <= phases[i - 1]) {
+                    throw new IllegalArgumentException("The phases of a schedule have to increase");
+                }
+            }
+            return new HeatSource(phases, temperatures);
+        }
+
+        private boolean isScheduled() {
+            return phases.length > 1;
+        }
+
+        private double temperatureAt(long phase) {
+            if (phase <= phases[0]) {
+                return temperatures[0];
+            }
+            int last = phases.length - 1;
+            if (phase >= phases[last]) {
+                return temperatures[last];
+            }
+            int entry = 1;
+            while (phases[entry] < phase) {
+                entry++;
+            }
+            double fraction = (double) (phase - phases[entry - 1]) / (phases[entry] - phases[entry - 1]);
+            return temperatures[entry - 1] + fraction * (temperatures[entry] - temperatures[entry - 1]);
+        }
+    }
+}
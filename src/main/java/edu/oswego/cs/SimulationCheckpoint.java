@@ -0,0 +1,148 @@
+package edu.oswego.cs;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The state of a simulation at the end of a phase, stored in a versioned little endian binary file:
+ * <pre>
+ * int magic, int version, int height, int width, double c1, double c2, double c3, long phase,
+ * double[height * width] percentsOfMetal1, percentsOfMetal2, percentsOfMetal3, temperatures
+ * </pre>
+ * The planes are written and read through memory mapped chunks of the file, so they move between the arrays of the
+ * metal alloy and the page cache without being staged in another buffer on the heap.
+ */
+public class SimulationCheckpoint {
+
+    private static final int MAGIC = 0x48504350; // "HPCP"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 * Integer.BYTES + 3 * Double.BYTES + Long.BYTES;
+    // A single mapping is limited to 2GB, planes larger than this are mapped one chunk at a time
+    private static final int MAX_CHUNK_BYTES = 1 << 30;
+
+    private final MetalAlloy alloy;
+    private final long phase;
+
+    private SimulationCheckpoint(MetalAlloy alloy, long phase) {
+        this.alloy = alloy;
+        this.phase = phase;
+    }
+
+    /**
+     * Writes a checkpoint to a temporary file next to the checkpoint and moves it over the checkpoint once it is on
+     * disk, so a crash during the write leaves the previous checkpoint intact.
+     * @param checkpoint The path of the checkpoint file.
+     * @param composition The metal alloy whose dimensions, thermal constants and composition are written.
+     * @param temperatures The row-major temperatures of the phase.
+     * @param phase The number of phases completed when the temperatures were captured.
+     */
+    public static void write(Path checkpoint, MetalAlloy composition, double[] temperatures, long phase) throws IOException {
+        int numRegions = composition.getHeight() * composition.getWidth();
+        Path temporary = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            header.order(ByteOrder.LITTLE_ENDIAN)
+                    .putInt(MAGIC)
+                    .putInt(VERSION)
+                    .putInt(composition.getHeight())
+                    .putInt(composition.getWidth())
+                    .putDouble(composition.getC1())
+                    .putDouble(composition.getC2())
+                    .putDouble(composition.getC3())
+                    .putLong(phase);
+            header.force();
+            long position = HEADER_BYTES;
+            position = writePlane(channel, position, composition.getPercentsOfMetal1(), numRegions);
+            position = writePlane(channel, position, composition.getPercentsOfMetal2(), numRegions);
+            position = writePlane(channel, position, composition.getPercentsOfMetal3(), numRegions);
+            writePlane(channel, position, temperatures, numRegions);
+        }
+        Files.move(temporary, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a checkpoint, the metal alloy is rebuilt from the stored composition instead of generating a new one.
+     * @param checkpoint The path of the checkpoint file.
+     * @return The checkpoint holding the restored metal alloy and its phase.
+     */
+    public static SimulationCheckpoint read(Path checkpoint) throws IOException {
+        try (FileChannel channel = FileChannel.open(checkpoint, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException(checkpoint + " is too short to be a checkpoint");
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != MAGIC) {
+                throw new IOException(checkpoint + " is not a checkpoint");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException(checkpoint + " has version " + version + ", expected " + VERSION);
+            }
+            int height = header.getInt();
+            int width = header.getInt();
+            double c1 = header.getDouble();
+            double c2 = header.getDouble();
+            double c3 = header.getDouble();
+            long phase = header.getLong();
+            int numRegions = Math.multiplyExact(height, width);
+            long expectedSize = HEADER_BYTES + 4L * numRegions * Double.BYTES;
+            if (channel.size() != expectedSize) {
+                throw new IOException(checkpoint + " holds " + channel.size() + " bytes, expected " + expectedSize + " for a " + height + "x" + width + " alloy");
+            }
+            double[] percentsOfMetal1 = new double[numRegions];
+            double[] percentsOfMetal2 = new double[numRegions];
+            double[] percentsOfMetal3 = new double[numRegions];
+            double[] temperatures = new double[numRegions];
+            long position = HEADER_BYTES;
+            position = readPlane(channel, position, percentsOfMetal1);
+            position = readPlane(channel, position, percentsOfMetal2);
+            position = readPlane(channel, position, percentsOfMetal3);
+            readPlane(channel, position, temperatures);
+            MetalAlloy alloy = new MetalAlloy(height, width, c1, c2, c3, percentsOfMetal1, percentsOfMetal2, percentsOfMetal3);
+            alloy.copyTemperaturesFrom(temperatures);
+            return new SimulationCheckpoint(alloy, phase);
+        }
+    }
+
+    private static long writePlane(FileChannel channel, long position, double[] plane, int length) throws IOException {
+        for (int offset = 0; offset < length; ) {
+            int chunkLength = Math.min(length - offset, MAX_CHUNK_BYTES / Double.BYTES);
+            MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_WRITE, position, (long) chunkLength * Double.BYTES);
+            chunk.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().put(plane, offset, chunkLength);
+            chunk.force();
+            offset += chunkLength;
+            position += (long) chunkLength * Double.BYTES;
+        }
+        return position;
+    }
+
+    private static long readPlane(FileChannel channel, long position, double[] plane) throws IOException {
+        for (int offset = 0; offset < plane.length; ) {
+            int chunkLength = Math.min(plane.length - offset, MAX_CHUNK_BYTES / Double.BYTES);
+            MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, position, (long) chunkLength * Double.BYTES);
+            chunk.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(plane, offset, chunkLength);
+            offset += chunkLength;
+            position += (long) chunkLength * Double.BYTES;
+        }
+        return position;
+    }
+
+    /**
+     * @return The restored metal alloy, holding the temperatures of the checkpointed phase.
+     */
+    public MetalAlloy getAlloy() {
+        return alloy;
+    }
+
+    public long getPhase() {
+        return phase;
+    }
+}
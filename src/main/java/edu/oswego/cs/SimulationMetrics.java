@@ -0,0 +1,152 @@
+package edu.oswego.cs;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SimulationMetrics implements SimulationMetricsMBean {
+
+    private static final double NANOS_PER_MICRO = 1_000;
+
+    private final long cellsPerPhase;
+    private final ForkJoinPoolStats poolStats;
+    private final LatencyHistogram phaseLatencies = new LatencyHistogram();
+    private final LatencyHistogram frameTimes = new LatencyHistogram();
+    private final AtomicLong phasesCompleted = new AtomicLong();
+    private final AtomicLong computeNanos = new AtomicLong();
+    private ScheduledExecutorService summaryService;
+    private long lastSummaryPhases;
+    private long lastSummaryComputeNanos;
+
+    /**
+     * Collects the timings of a simulation. The simulation only records into the metrics when they are enabled, so a
+     * disabled simulation pays nothing beyond a null check per block of phases.
+     * @param height the height of the metal alloy
+     * @param width the width of the metal alloy
+     * @param pool the fork join pool the simulation runs on
+     */
+    public SimulationMetrics(int height, int width, ForkJoinPool pool) {
+        this.cellsPerPhase = (long) height * width;
+        this.poolStats = new ForkJoinPoolStats(pool);
+    }
+
+    /**
+     * Records a block of phases that were run together.
+     * @param steps The number of phases in the block.
+     * @param nanos The time the block took, spread evenly over its phases.
+     */
+    public void recordPhases(int steps, long nanos) {
+        phaseLatencies.record(nanos / steps, steps);
+        phasesCompleted.addAndGet(steps);
+        computeNanos.addAndGet(nanos);
+    }
+
+    /**
+     * Records the time it took to render a frame of the display.
+     */
+    public void recordFrame(long nanos) {
+        frameTimes.record(nanos);
+    }
+
+    /**
+     * Registers the metrics and the fork join pool counters with the platform MBean server.
+     */
+    public void register() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        server.registerMBean(this, new ObjectName("edu.oswego.cs:type=SimulationMetrics"));
+        server.registerMBean(poolStats, new ObjectName("edu.oswego.cs:type=ForkJoinPool"));
+    }
+
+    /**
+     * Prints a summary line every interval on a background thread until {@link #stopSummaries()} is called.
+     */
+    public void startSummaries(int intervalSeconds) {
+        summaryService = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-summary");
+            thread.setDaemon(true);
+            return thread;
+        });
+        summaryService.scheduleAtFixedRate(() -> System.out.println(summarize()), intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public void stopSummaries() {
+        if (summaryService != null) {
+            summaryService.shutdownNow();
+        }
+    }
+
+    /**
+     * @return A single line with the throughput since the previous summary and the latencies and pool counters since
+     * the start of the simulation.
+     */
+    public synchronized String summarize() {
+        long phases = phasesCompleted.get();
+        long nanos = computeNanos.get();
+        long intervalNanos = nanos - lastSummaryComputeNanos;
+        double intervalCellUpdatesPerSecond = intervalNanos == 0 ? 0 : (phases - lastSummaryPhases) * cellsPerPhase * 1e9 / intervalNanos;
+        lastSummaryPhases = phases;
+        lastSummaryComputeNanos = nanos;
+        return String.format("phases=%d cells/s=%.3g phase p50=%.1fus p99=%.1fus max=%.1fus frames=%d frame p50=%.1fus p99=%.1fus"
+                        + " pool parallelism=%d size=%d active=%d queued=%d steals=%d",
+                phases, intervalCellUpdatesPerSecond, getPhaseLatencyP50Micros(), getPhaseLatencyP99Micros(), getPhaseLatencyMaxMicros(),
+                getFramesRendered(), getFrameTimeP50Micros(), getFrameTimeP99Micros(),
+                poolStats.getParallelism(), poolStats.getPoolSize(), poolStats.getActiveThreadCount(), poolStats.getQueuedTaskCount(), poolStats.getStealCount());
+    }
+
+    @Override
+    public long getPhasesCompleted() {
+        return phasesCompleted.get();
+    }
+
+    @Override
+    public double getCellUpdatesPerSecond() {
+        long nanos = computeNanos.get();
+        return nanos == 0 ? 0 : phasesCompleted.get() * cellsPerPhase * 1e9 / nanos;
+    }
+
+    @Override
+    public double getPhaseLatencyMeanMicros() {
+        return phaseLatencies.getMean() / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getPhaseLatencyP50Micros() {
+        return phaseLatencies.getValueAtPercentile(50) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getPhaseLatencyP99Micros() {
+        return phaseLatencies.getValueAtPercentile(99) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getPhaseLatencyMaxMicros() {
+        return phaseLatencies.getMax() / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public long getFramesRendered() {
+        return frameTimes.getCount();
+    }
+
+    @Override
+    public double getFrameTimeP50Micros() {
+        return frameTimes.getValueAtPercentile(50) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getFrameTimeP99Micros() {
+        return frameTimes.getValueAtPercentile(99) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getFrameTimeMaxMicros() {
+        return frameTimes.getMax() / NANOS_PER_MICRO;
+    }
+}
@@ -0,0 +1,24 @@
+package edu.oswego.cs;
+
+public interface SimulationMetricsMBean {
+
+    long getPhasesCompleted();
+
+    double getCellUpdatesPerSecond();
+
+    double getPhaseLatencyMeanMicros();
+
+    double getPhaseLatencyP50Micros();
+
+    double getPhaseLatencyP99Micros();
+
+    double getPhaseLatencyMaxMicros();
+
+    long getFramesRendered();
+
+    double getFrameTimeP50Micros();
+
+    double getFrameTimeP99Micros();
+
+    double getFrameTimeMaxMicros();
+}
@@ -0,0 +1,132 @@
+package edu.oswego.cs;
+
+public class SinglePrecisionField {
+
+    private final int height;
+    private final int width;
+
+    // Row-major planes like the ones of the metal alloy, narrowed to floats to halve the memory traffic of a phase
+    private final float[] temperaturesA;
+    private final float[] temperaturesB;
+    private final float[] northWeights;
+    private final float[] southWeights;
+    private final float[] westWeights;
+    private final float[] eastWeights;
+    private final FixedRegions fixedRegions;
+
+    /**
+     * Creates a single precision copy of the temperatures and neighbor weights of a metal alloy, double buffered the
+     * same way as the metal alloys of the simulation, with the same fixed regions.
+     * @param alloy The metal alloy holding the initial temperatures.
+     */
+    public SinglePrecisionField(MetalAlloy alloy) {
+        height = alloy.getHeight();
+        width = alloy.getWidth();
+        temperaturesA = narrow(alloy.getTemperatures());
+        temperaturesB = temperaturesA.clone();
+        northWeights = narrow(alloy.getNorthWeights());
+        southWeights = narrow(alloy.getSouthWeights());
+        westWeights = narrow(alloy.getWestWeights());
+        eastWeights = narrow(alloy.getEastWeights());
+        fixedRegions = alloy.getFixedRegions();
+    }
+
+    private static float[] narrow(double[] plane) {
+        float[] narrowed = new float[plane.length];
+        for (int index = 0; index < plane.length; index++) {
+            narrowed[index] = (float) plane[index];
+        }
+        return narrowed;
+    }
+
+    /**
+     * The scalar single precision jacobi relaxation kernel, the same weighted sum as the double precision kernel of the
+     * metal alloy.
+     */
+    public void calculateNewTempsForRegions(float[] source, float[] results, int rowStart, int rowEnd, int colStart, int colEnd) {
+        for (int row = rowStart; row < rowEnd; row++) {
+            int northOffset = row > 0 ? width : 0;
+            int southOffset = row < height - 1 ? width : 0;
+            int rowIndex = row * width;
+            for (int col = colStart; col < colEnd; col++) {
+                int westOffset = col > 0 ? 1 : 0;
+                int eastOffset = col < width - 1 ? 1 : 0;
+                results[rowIndex + col] = calculateWeightedSum(source, rowIndex + col, northOffset, southOffset, westOffset, eastOffset);
+            }
+        }
+        keepFixedTemps(source, results, rowStart, rowEnd, colStart, colEnd);
+    }
+
+    float calculateWeightedSum(float[] source, int index, int northOffset, int southOffset, int westOffset, int eastOffset) {
+        return northWeights[index] * source[index - northOffset]
+                + southWeights[index] * source[index + southOffset]
+                + westWeights[index] * source[index - westOffset]
+                + eastWeights[index] * source[index + eastOffset];
+    }
+
+    /**
+     * Don't change the temperature of the fixed regions
+     */
+    void keepFixedTemps(float[] source, float[] results, int rowStart, int rowEnd, int colStart, int colEnd) {
+        fixedRegions.keep(source, results, rowStart, rowEnd, colStart, colEnd);
+    }
+
+    /**
+     * @return The maximum absolute temperature difference between the two planes within the bounds.
+     */
+    public double calculateMaxTempDifference(float[] temperatures, float[] otherTemperatures, int rowStart, int rowEnd, int colStart, int colEnd) {
+        float maxDifference = 0;
+        for (int row = rowStart; row < rowEnd; row++) {
+            int rowIndex = row * width;
+            for (int index = rowIndex + colStart; index < rowIndex + colEnd; index++) {
+                maxDifference = Math.max(maxDifference, Math.abs(otherTemperatures[index] - temperatures[index]));
+            }
+        }
+        return maxDifference;
+    }
+
+    /**
+     * Widens the single precision temperatures within the bounds into the temperatures of a metal alloy.
+     */
+    public void widenInto(float[] temperatures, MetalAlloy alloy, int rowStart, int rowEnd, int colStart, int colEnd) {
+        double[] alloyTemperatures = alloy.getTemperatures();
+        for (int row = rowStart; row < rowEnd; row++) {
+            int rowIndex = row * width;
+            for (int index = rowIndex + colStart; index < rowIndex + colEnd; index++) {
+                alloyTemperatures[index] = temperatures[index];
+            }
+        }
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    float[] getTemperaturesA() {
+        return temperaturesA;
+    }
+
+    float[] getTemperaturesB() {
+        return temperaturesB;
+    }
+
+    float[] getNorthWeights() {
+        return northWeights;
+    }
+
+    float[] getSouthWeights() {
+        return southWeights;
+    }
+
+    float[] getWestWeights() {
+        return westWeights;
+    }
+
+    float[] getEastWeights() {
+        return eastWeights;
+    }
+}
@@ -0,0 +1,42 @@
+package edu.oswego.cs;
+
+public enum Solver {
+    // Double buffered jacobi relaxation
+    JACOBI("jacobi"),
+    // Red-black ordered gauss seidel in place on a single alloy
+    GAUSS_SEIDEL("gauss-seidel"),
+    // Red-black ordered successive over relaxation in place on a single alloy
+    SOR("sor"),
+    // Geometric multigrid cycles smoothed with red-black gauss seidel in place on a single alloy
+    MULTIGRID("multigrid");
+
+    private final String name;
+
+    Solver(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Finds the solver with the given command line name.
+     */
+    public static Solver parse(String name) {
+        for (Solver solver : values()) {
+            if (solver.name.equalsIgnoreCase(name)) {
+                return solver;
+            }
+        }
+        throw new IllegalArgumentException("Unknown solver " + name + ", expected jacobi, gauss-seidel, sor or multigrid");
+    }
+
+    /**
+     * @return Whether the solver updates a single alloy in place.
+     */
+    public boolean isInPlace() {
+        return this != JACOBI;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
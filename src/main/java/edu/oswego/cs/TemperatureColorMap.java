@@ -0,0 +1,36 @@
+package edu.oswego.cs;
+
+public class TemperatureColorMap {
+
+    // Number of quantised temperatures between the first and last temperature threshold, a quarter of a degree apart so
+    // the middle threshold falls on a step
+    private static final int LUT_SIZE = 6000;
+    private static final double LUT_SCALE = LUT_SIZE / (MetalAlloyRegion.TEMPTHRESHOLD3 - MetalAlloyRegion.TEMPTHRESHOLD1);
+    private static final int[] ARGB_LUT = new int[LUT_SIZE + 1];
+
+    static {
+        for (int i = 0; i <= LUT_SIZE; i++) {
+            double temperature = MetalAlloyRegion.TEMPTHRESHOLD1 + i / LUT_SCALE;
+            ARGB_LUT[i] = 0xFF000000 | MetalAlloyRegion.calcRGB(temperature);
+        }
+    }
+
+    private TemperatureColorMap() {
+    }
+
+    /**
+     * Maps a temperature to the color of a region through a precomputed lookup table, temperatures are quantised into
+     * quarter degree steps between the first and last temperature threshold.
+     * @param temperature the temperature of the region
+     * @return The opaque color of the region packed as 0xAARRGGBB.
+     */
+    public static int toARGB(double temperature) {
+        if (temperature <= MetalAlloyRegion.TEMPTHRESHOLD1) {
+            return ARGB_LUT[0];
+        }
+        if (temperature >= MetalAlloyRegion.TEMPTHRESHOLD3) {
+            return ARGB_LUT[LUT_SIZE];
+        }
+        return ARGB_LUT[(int) ((temperature - MetalAlloyRegion.TEMPTHRESHOLD1) * LUT_SCALE)];
+    }
+}
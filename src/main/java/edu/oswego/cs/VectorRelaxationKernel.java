@@ -0,0 +1,113 @@
+package edu.oswego.cs;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorSpecies;
+
+public class VectorRelaxationKernel implements RelaxationKernel {
+
+    private static final VectorSpecies<Double> DOUBLE_SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Float> FLOAT_SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    /**
+     * Processes the interior columns of every row a whole vector of regions at a time. The weighted sum is evaluated in
+     * the same order as the scalar kernel, without fused multiply adds, so the double precision results are identical
+     * to the scalar kernel. The first and last column of the alloy and the remainder of a row that does not fill a
+     * vector are calculated one region at a time. The fixed regions are restored once the bounds are calculated.
+     */
+    @Override
+    public void calculateNewTempsForRegions(MetalAlloy source, MetalAlloy results, int rowStart, int rowEnd, int colStart, int colEnd) {
+        int height = source.getHeight();
+        int width = source.getWidth();
+        double[] temperatures = source.getTemperatures();
+        double[] resultTemperatures = results.getTemperatures();
+        double[] northWeights = source.getNorthWeights();
+        double[] southWeights = source.getSouthWeights();
+        double[] westWeights = source.getWestWeights();
+        double[] eastWeights = source.getEastWeights();
+        int interiorColStart = Math.max(colStart, 1);
+        int interiorColEnd = Math.min(colEnd, width - 1);
+        for (int row = rowStart; row < rowEnd; row++) {
+            int northOffset = row > 0 ? width : 0;
+            int southOffset = row < height - 1 ? width : 0;
+            int rowIndex = row * width;
+            if (colStart == 0) {
+                resultTemperatures[rowIndex] = source.calculateNewTempForRegion(row, 0);
+            }
+            int index = rowIndex + interiorColStart;
+            int end = rowIndex + interiorColEnd;
+            int vectorEnd = index + DOUBLE_SPECIES.loopBound(Math.max(end - index, 0));
+            for (; index < vectorEnd; index += DOUBLE_SPECIES.length()) {
+                DoubleVector north = DoubleVector.fromArray(DOUBLE_SPECIES, northWeights, index)
+                        .mul(DoubleVector.fromArray(DOUBLE_SPECIES, temperatures, index - northOffset));
+                DoubleVector south = DoubleVector.fromArray(DOUBLE_SPECIES, southWeights, index)
+                        .mul(DoubleVector.fromArray(DOUBLE_SPECIES, temperatures, index + southOffset));
+                DoubleVector west = DoubleVector.fromArray(DOUBLE_SPECIES, westWeights, index)
+                        .mul(DoubleVector.fromArray(DOUBLE_SPECIES, temperatures, index - 1));
+                DoubleVector east = DoubleVector.fromArray(DOUBLE_SPECIES, eastWeights, index)
+                        .mul(DoubleVector.fromArray(DOUBLE_SPECIES, temperatures, index + 1));
+                north.add(south).add(west).add(east).intoArray(resultTemperatures, index);
+            }
+            for (; index < end; index++) {
+                resultTemperatures[index] = northWeights[index] * temperatures[index - northOffset]
+                        + southWeights[index] * temperatures[index + southOffset]
+                        + westWeights[index] * temperatures[index - 1]
+                        + eastWeights[index] * temperatures[index + 1];
+            }
+            if (colEnd == width && width > 1) {
+                resultTemperatures[rowIndex + width - 1] = source.calculateNewTempForRegion(row, width - 1);
+            }
+        }
+        source.keepFixedTemps(results, rowStart, rowEnd, colStart, colEnd);
+    }
+
+    /**
+     * The single precision version of the vector kernel, twice as many regions fit in a vector.
+     */
+    @Override
+    public void calculateNewTempsForRegions(SinglePrecisionField field, float[] source, float[] results, int rowStart, int rowEnd, int colStart, int colEnd) {
+        int height = field.getHeight();
+        int width = field.getWidth();
+        float[] northWeights = field.getNorthWeights();
+        float[] southWeights = field.getSouthWeights();
+        float[] westWeights = field.getWestWeights();
+        float[] eastWeights = field.getEastWeights();
+        int interiorColStart = Math.max(colStart, 1);
+        int interiorColEnd = Math.min(colEnd, width - 1);
+        for (int row = rowStart; row < rowEnd; row++) {
+            int northOffset = row > 0 ? width : 0;
+            int southOffset = row < height - 1 ? width : 0;
+            int rowIndex = row * width;
+            if (colStart == 0) {
+                results[rowIndex] = field.calculateWeightedSum(source, rowIndex, northOffset, southOffset, 0, width > 1 ? 1 : 0);
+            }
+            int index = rowIndex + interiorColStart;
+            int end = rowIndex + interiorColEnd;
+            int vectorEnd = index + FLOAT_SPECIES.loopBound(Math.max(end - index, 0));
+            for (; index < vectorEnd; index += FLOAT_SPECIES.length()) {
+                FloatVector north = FloatVector.fromArray(FLOAT_SPECIES, northWeights, index)
+                        .mul(FloatVector.fromArray(FLOAT_SPECIES, source, index - northOffset));
+                FloatVector south = FloatVector.fromArray(FLOAT_SPECIES, southWeights, index)
+                        .mul(FloatVector.fromArray(FLOAT_SPECIES, source, index + southOffset));
+                FloatVector west = FloatVector.fromArray(FLOAT_SPECIES, westWeights, index)
+                        .mul(FloatVector.fromArray(FLOAT_SPECIES, source, index - 1));
+                FloatVector east = FloatVector.fromArray(FLOAT_SPECIES, eastWeights, index)
+                        .mul(FloatVector.fromArray(FLOAT_SPECIES, source, index + 1));
+                north.add(south).add(west).add(east).intoArray(results, index);
+            }
+            for (; index < end; index++) {
+                results[index] = field.calculateWeightedSum(source, index, northOffset, southOffset, 1, 1);
+            }
+            if (colEnd == width && width > 1) {
+                int lastIndex = rowIndex + width - 1;
+                results[lastIndex] = field.calculateWeightedSum(source, lastIndex, northOffset, southOffset, 1, 0);
+            }
+        }
+        field.keepFixedTemps(source, results, rowStart, rowEnd, colStart, colEnd);
+    }
+
+    @Override
+    public String toString() {
+        return "vector (" + DOUBLE_SPECIES.length() + " doubles, " + FLOAT_SPECIES.length() + " floats per vector)";
+    }
+}
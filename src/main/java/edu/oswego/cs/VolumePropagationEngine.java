@@ -0,0 +1,85 @@
+package edu.oswego.cs;
+
+import java.util.concurrent.ForkJoinPool;
+
+public class VolumePropagationEngine {
+
+    // 16K regions, the temperatures of a brick and the layers around it stay in the L2 cache while it is calculated
+    public static final BrickShape DEFAULT_BRICK_SHAPE = new BrickShape(8, 16, 128);
+
+    private final ForkJoinPool pool;
+    private final BrickShape brickShape;
+    private final VolumePropagationTask rootTask;
+    private MetalVolume volumeUsedForCalculations;
+    private MetalVolume volumeToStoreResults;
+    private boolean measuringResidual;
+    private long phasesCompleted;
+
+    /**
+     * Creates an engine that runs phases of jacobi relaxation on a metal volume by double buffering between two
+     * volumes of the same dimensions, the three dimensional counterpart of {@link HeatPropagationEngine}. The fork join
+     * decomposition of the volume into bricks is built once and reused for every phase.
+     * @param volumeA The metal volume holding the initial temperatures.
+     * @param volumeB The metal volume used to store the results of the first phase.
+     * @param pool The fork join pool the phases are executed on.
+     * @param brickShape The maximum dimensions of the regions calculated by a single leaf.
+     */
+    public VolumePropagationEngine(MetalVolume volumeA, MetalVolume volumeB, ForkJoinPool pool, BrickShape brickShape) {
+        this.pool = pool;
+        this.brickShape = brickShape.clampTo(volumeA.getDepth(), volumeA.getHeight(), volumeA.getWidth());
+        this.volumeUsedForCalculations = volumeA;
+        this.volumeToStoreResults = volumeB;
+        this.rootTask = new VolumePropagationTask(this, 0, volumeA.getDepth(), 0, volumeA.getHeight(), 0, volumeA.getWidth());
+    }
+
+    /**
+     * Runs the given number of phases of jacobi relaxation, swapping the volumes after every phase. The caller blocks
+     * until the phases are complete.
+     * @param steps The number of phases to run.
+     * @param measureResidual Whether the largest temperature change of the last phase should be calculated.
+     * @return The largest temperature change of the last phase, or NaN if it was not measured.
+     */
+    public double runPhases(int steps, boolean measureResidual) {
+        double residual = Double.NaN;
+        for (int step = 0; step < steps; step++) {
+            measuringResidual = measureResidual && step == steps - 1;
+            rootTask.reinitialize();
+            pool.invoke(rootTask);
+            if (measuringResidual) {
+                residual = rootTask.getResidual();
+            }
+            MetalVolume results = volumeToStoreResults;
+            volumeToStoreResults = volumeUsedForCalculations;
+            volumeUsedForCalculations = results;
+        }
+        phasesCompleted += steps;
+        return residual;
+    }
+
+    /**
+     * @return The metal volume holding the results of the most recently completed phase.
+     */
+    public MetalVolume getLatestVolume() {
+        return volumeUsedForCalculations;
+    }
+
+    public BrickShape getBrickShape() {
+        return brickShape;
+    }
+
+    public long getPhasesCompleted() {
+        return phasesCompleted;
+    }
+
+    MetalVolume getVolumeUsedForCalculations() {
+        return volumeUsedForCalculations;
+    }
+
+    MetalVolume getVolumeToStoreResults() {
+        return volumeToStoreResults;
+    }
+
+    boolean isMeasuringResidual() {
+        return measuringResidual;
+    }
+}
@@ -0,0 +1,107 @@
+package edu.oswego.cs;
+
+import java.util.concurrent.RecursiveAction;
+
+public class VolumePropagationTask extends RecursiveAction {
+    private final VolumePropagationEngine engine;
+    private final int layerStart;
+    private final int layerEnd;
+    private final int rowStart;
+    private final int rowEnd;
+    private final int colStart;
+    private final int colEnd;
+    private final VolumePropagationTask[] subtasks;
+    private double residual;
+
+    /**
+     * The counterpart of {@link HeatPropagationTask} for metal volumes. The task tree is built once and reused by the
+     * engine for every phase. If the specified block of the volume fits within the brick shape of the engine the task is
+     * a leaf. Else every dimension that is larger than the brick is split in half, so a block is cut into two slabs,
+     * four columns or eight octants. Splits are aligned to multiples of the brick dimensions, so the leaves tile the
+     * volume in a regular grid of bricks.
+     * @param engine The engine that owns the task tree and the volumes of the current phase.
+     * @param layerStart Inclusive layer start
+     * @param layerEnd Exclusive layer end
+     * @param rowStart Inclusive row start
+     * @param rowEnd Exclusive row end
+     * @param colStart Inclusive column start
+     * @param colEnd Exclusive column end
+     */
+    VolumePropagationTask(VolumePropagationEngine engine, int layerStart, int layerEnd, int rowStart, int rowEnd, int colStart, int colEnd) {
+        this.engine = engine;
+        this.layerStart = layerStart;
+        this.layerEnd = layerEnd;
+        this.rowStart = rowStart;
+        this.rowEnd = rowEnd;
+        this.colStart = colStart;
+        this.colEnd = colEnd;
+        BrickShape brickShape = engine.getBrickShape();
+        int[] layerBounds = splitBounds(layerStart, layerEnd, brickShape.getLayers());
+        int[] rowBounds = splitBounds(rowStart, rowEnd, brickShape.getRows());
+        int[] colBounds = splitBounds(colStart, colEnd, brickShape.getCols());
+        int numSubtasks = (layerBounds.length - 1) * (rowBounds.length - 1) * (colBounds.length - 1);
+        if (numSubtasks == 1) {
+            subtasks = null;
+        } else {
+            subtasks = new VolumePropagationTask[numSubtasks];
+            int subtask = 0;
+            for (int layer = 0; layer < layerBounds.length - 1; layer++) {
+                for (int row = 0; row < rowBounds.length - 1; row++) {
+                    for (int col = 0; col < colBounds.length - 1; col++) {
+                        subtasks[subtask++] = new VolumePropagationTask(engine, layerBounds[layer], layerBounds[layer + 1],
+                                rowBounds[row], rowBounds[row + 1], colBounds[col], colBounds[col + 1]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The bounds of the halves of a dimension, or the dimension itself if it fits within the brick. The
+     * midpoint is rounded to a whole number of bricks so that both halves start on a brick boundary.
+     */
+    private static int[] splitBounds(int start, int end, int brickLength) {
+        int length = end - start;
+        if (length <= brickLength) {
+            return new int[] {start, end};
+        }
+        int numBricks = (length + brickLength - 1) / brickLength;
+        return new int[] {start, start + Math.max(1, numBricks >> 1) * brickLength, end};
+    }
+
+    /**
+     * Leaves calculate the temperature of every enclosed region of the volume and store the results in the other
+     * volume, other tasks fork all of their subtasks and join every one of them before completing. When the engine is
+     * measuring the residual each task also records the largest temperature change of its regions.
+     */
+    protected void compute() {
+        if (subtasks == null) {
+            MetalVolume volumeUsedForCalculations = engine.getVolumeUsedForCalculations();
+            MetalVolume volumeToStoreResults = engine.getVolumeToStoreResults();
+            volumeUsedForCalculations.calculateNewTempsForRegions(volumeToStoreResults, layerStart, layerEnd, rowStart, rowEnd, colStart, colEnd);
+            if (engine.isMeasuringResidual()) {
+                residual = volumeUsedForCalculations.calculateMaxTempDifference(volumeToStoreResults, layerStart, layerEnd, rowStart, rowEnd, colStart, colEnd);
+            }
+        } else {
+            // The subtasks completed in the previous phase, reinitialize them so they can be forked again
+            for (int i = subtasks.length - 1; i > 0; i--) {
+                subtasks[i].reinitialize();
+                subtasks[i].fork();
+            }
+            subtasks[0].compute();
+            double maxResidual = subtasks[0].residual;
+            for (int i = 1; i < subtasks.length; i++) {
+                subtasks[i].join();
+                maxResidual = Math.max(maxResidual, subtasks[i].residual);
+            }
+            residual = maxResidual;
+        }
+    }
+
+    /**
+     * @return The largest temperature change among the enclosed regions during the last phase that measured it.
+     */
+    double getResidual() {
+        return residual;
+    }
+}
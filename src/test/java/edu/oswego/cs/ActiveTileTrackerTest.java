@@ -0,0 +1,38 @@
+package edu.oswego.cs;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ActiveTileTrackerTest {
+
+    private static final int HEIGHT = 29;
+    private static final int WIDTH = 47;
+
+    @Test
+    void thresholdOfZeroMatchesUntrackedPhasesExactly() {
+        // leaves that do not divide the alloy evenly, so the tiles along the bottom and right edges are partial
+        HeatPropagationEngine untracked = TestEngines.newEngine(HEIGHT, WIDTH, 29, new LeafShape(6, 10));
+        HeatPropagationEngine tracked = TestEngines.newEngine(HEIGHT, WIDTH, 29, new LeafShape(6, 10));
+        ActiveTileTracker activeTiles = tracked.trackActiveTiles(0);
+        boolean skippedTiles = false;
+        for (int phase = 0; phase < 60; phase++) {
+            // drive a region far from the corners in a settled tile and one next to a tile edge
+            if (phase == 10 || phase == 35) {
+                int[] indices = {(HEIGHT - 3) * WIDTH + 2, 12 * WIDTH + 30};
+                double[] temperatures = {4000 + phase, 1500};
+                untracked.setTemperatures(indices, temperatures);
+                tracked.setTemperatures(indices, temperatures);
+            }
+            boolean measureResidual = phase % 5 == 4;
+            double untrackedResidual = untracked.runPhase(measureResidual);
+            double trackedResidual = tracked.runPhase(measureResidual);
+            assertEquals(untrackedResidual, trackedResidual);
+            skippedTiles |= activeTiles.getNumActiveTiles() < activeTiles.getNumTiles();
+        }
+        assertTrue(skippedTiles);
+        assertArrayEquals(TestEngines.temperaturesOf(untracked), TestEngines.temperaturesOf(tracked));
+    }
+}
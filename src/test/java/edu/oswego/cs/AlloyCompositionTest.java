@@ -0,0 +1,37 @@
+package edu.oswego.cs;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AlloyCompositionTest {
+
+    // several blocks of rows and a partial last one
+    private static final int HEIGHT = 5 * AlloyComposition.ROWS_PER_BLOCK + 7;
+    private static final int WIDTH = 13;
+
+    @Test
+    void seedGeneratesTheSameCompositionOnAnyNumberOfThreads() throws InterruptedException, ExecutionException {
+        AlloyComposition single = generateOn(1);
+        AlloyComposition parallel = generateOn(4);
+        assertTrue(AlloyComposition.numRowBlocks(HEIGHT) > 4);
+        assertArrayEquals(single.getPercentsOfMetal1(), parallel.getPercentsOfMetal1());
+        assertArrayEquals(single.getPercentsOfMetal2(), parallel.getPercentsOfMetal2());
+        assertArrayEquals(single.getPercentsOfMetal3(), parallel.getPercentsOfMetal3());
+        assertArrayEquals(single.getNorthWeights(), parallel.getNorthWeights());
+        assertArrayEquals(single.getEastWeights(), parallel.getEastWeights());
+    }
+
+    private static AlloyComposition generateOn(int parallelism) throws InterruptedException, ExecutionException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return pool.submit(() -> AlloyComposition.generate(HEIGHT, WIDTH, 0.75, 1.0, 1.25, 11)).get();
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
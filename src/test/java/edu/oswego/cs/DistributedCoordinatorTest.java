@@ -0,0 +1,60 @@
+package edu.oswego.cs;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DistributedCoordinatorTest {
+
+    private static final int HEIGHT = 31;
+    private static final int WIDTH = 43;
+    private static final long SEED = 23;
+
+    @Test
+    @Timeout(120)
+    void twoWorkersMatchASingleProcess() throws Exception {
+        assertWorkersMatchASingleProcess(2);
+    }
+
+    @Test
+    @Timeout(120)
+    void threeWorkersMatchASingleProcess() throws Exception {
+        assertWorkersMatchASingleProcess(3);
+    }
+
+    /**
+     * Runs the same phases on worker processes and on an engine in this process, gathering the field from the workers
+     * between blocks of phases so the halo exchange continues from gathered bands. Midway temperatures are set on the
+     * rows at and around the band edges, which the workers also hold as halo rows.
+     */
+    private static void assertWorkersMatchASingleProcess(int numWorkers) throws Exception {
+        HeatPropagationEngine single = TestEngines.newEngine(HEIGHT, WIDTH, SEED, new LeafShape(8, 16));
+
+        MetalAlloy distributedAlloy = TestEngines.newAlloy(HEIGHT, WIDTH, SEED);
+        DistributedCoordinator coordinator = new DistributedCoordinator(distributedAlloy, numWorkers, new LeafShape(8, 16), false);
+        try {
+            double singleResidual = Double.NaN;
+            double distributedResidual = Double.NaN;
+            for (int block = 0; block < 4; block++) {
+                if (block == 2) {
+                    int[] indices = {5 * WIDTH + 7, 10 * WIDTH + 20, 14 * WIDTH + 1, 15 * WIDTH + 30, 20 * WIDTH + 42};
+                    double[] temperatures = {2500, 1200, 800, 4000, 100};
+                    single.setTemperatures(indices, temperatures);
+                    coordinator.setTemperatures(indices, temperatures);
+                }
+                for (int phase = 0; phase < 5; phase++) {
+                    singleResidual = single.runPhase(phase == 4);
+                }
+                distributedResidual = coordinator.runPhases(5, true);
+                coordinator.publishLatest();
+            }
+            assertEquals(singleResidual, distributedResidual);
+            assertEquals(single.getPhasesCompleted(), coordinator.getPhasesCompleted());
+            assertArrayEquals(TestEngines.temperaturesOf(single), TestEngines.temperaturesOf(coordinator.getLatestAlloy()));
+        } finally {
+            coordinator.close();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package edu.oswego.cs;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FieldStreamWriterTest {
+
+    private static final int HEIGHT = 9;
+    private static final int WIDTH = 14;
+
+    @Test
+    void uncompressedStreamReadsBack() throws Exception {
+        assertStreamReadsBack(false);
+    }
+
+    @Test
+    void compressedStreamReadsBack() throws Exception {
+        assertStreamReadsBack(true);
+    }
+
+    @Test
+    void rejectsStreamsWithoutBuffers() throws Exception {
+        Path streamFile = Files.createTempDirectory("stream").resolve("fields.hpfs");
+        assertThrows(IllegalArgumentException.class, () -> new FieldStreamWriter(HEIGHT, WIDTH, streamFile, 0, true, false));
+    }
+
+    @Test
+    void rejectsFieldsLargerThanARecord() throws Exception {
+        Path streamFile = Files.createTempDirectory("stream").resolve("fields.hpfs");
+        assertThrows(IllegalArgumentException.class, () -> new FieldStreamWriter(20_000, 20_000, streamFile, 1, true, false));
+        assertFalse(Files.exists(streamFile));
+    }
+
+    /**
+     * Streams three fields, blocking so none are dropped, and parses the file back record by record.
+     */
+    private static void assertStreamReadsBack(boolean compress) throws Exception {
+        Path streamFile = Files.createTempDirectory("stream").resolve("fields.hpfs");
+        MetalAlloy alloy = new MetalAlloy(HEIGHT, WIDTH, 0.75, 1.0, 1.25, 2);
+        double[][] fields = new double[3][HEIGHT * WIDTH];
+        FieldStreamWriter writer = new FieldStreamWriter(HEIGHT, WIDTH, streamFile, 2, true, compress);
+        for (int snapshot = 0; snapshot < fields.length; snapshot++) {
+            for (int index = 0; index < HEIGHT * WIDTH; index++) {
+                alloy.setTemperature(index, snapshot * 1000 + index + 0.25);
+            }
+            alloy.copyTemperaturesTo(fields[snapshot]);
+            writer.offer(alloy, snapshot * 100L);
+        }
+        writer.close();
+        assertEquals(fields.length, writer.getSnapshotsWritten());
+
+        byte[] bytes;
+        try (InputStream input = compress ? new GZIPInputStream(Files.newInputStream(streamFile)) : Files.newInputStream(streamFile)) {
+            bytes = input.readAllBytes();
+        }
+        ByteBuffer stream = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(FieldStreamWriter.MAGIC, stream.getInt());
+        assertEquals(FieldStreamWriter.VERSION, stream.getInt());
+        assertEquals(HEIGHT, stream.getInt());
+        assertEquals(WIDTH, stream.getInt());
+        for (int snapshot = 0; snapshot < fields.length; snapshot++) {
+            assertEquals(snapshot * 100L, stream.getLong());
+            double[] temperatures = new double[HEIGHT * WIDTH];
+            stream.asDoubleBuffer().get(temperatures);
+            stream.position(stream.position() + temperatures.length * Double.BYTES);
+            assertArrayEquals(fields[snapshot], temperatures);
+        }
+        assertFalse(stream.hasRemaining());
+    }
+}
@@ -0,0 +1,42 @@
+package edu.oswego.cs;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FrameExporterTest {
+
+    @Test
+    void writesOneImagePerFrame() throws Exception {
+        Path frameDirectory = Files.createTempDirectory("frames");
+        MetalAlloy alloy = new MetalAlloy(12, 20, 0.75, 1.0, 1.25, 3);
+        FrameExporter exporter = new FrameExporter(12, 20, frameDirectory, 4);
+        assertTrue(exporter.offer(alloy, 0));
+        exporter.close();
+        assertEquals(1, exporter.getFramesWritten());
+        assertTrue(Files.exists(frameDirectory.resolve("frame-000000000.png")));
+    }
+
+    @Test
+    void failedWriteIsThrownFromClose() throws Exception {
+        Path frameDirectory = Files.createTempDirectory("frames");
+        FrameExporter exporter = new FrameExporter(12, 20, frameDirectory, 4);
+        Files.delete(frameDirectory);
+        exporter.offer(new MetalAlloy(12, 20, 0.75, 1.0, 1.25, 3), 0);
+        assertThrows(IOException.class, exporter::close);
+        assertEquals(0, exporter.getFramesWritten());
+    }
+
+    @Test
+    void rejectsZeroFrames() throws IOException {
+        Path frameDirectory = Files.createTempDirectory("frames");
+        assertThrows(IllegalArgumentException.class, () -> new FrameExporter(12, 20, frameDirectory, 0));
+        Files.delete(frameDirectory);
+    }
+}
@@ -0,0 +1,73 @@
+package edu.oswego.cs;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InPlaceRelaxationTest {
+
+    private static final int HEIGHT = 21;
+    private static final int WIDTH = 27;
+    private static final LeafShape LEAF_SHAPE = new LeafShape(8, 8);
+    private static final double TOLERANCE = 1e-11;
+    // both (red) corners, a run of neighbors that splits its row into segments and a lone black region
+    private static final int[] FIXED_INDICES = {
+            0, HEIGHT * WIDTH - 1,
+            10 * WIDTH + 5, 10 * WIDTH + 6, 10 * WIDTH + 7, 10 * WIDTH + 8, 10 * WIDTH + 9,
+            15 * WIDTH + 20
+    };
+
+    @Test
+    void gaussSeidelReachesTheJacobiSteadyState() {
+        assertReachesTheJacobiSteadyState(1);
+    }
+
+    @Test
+    void successiveOverRelaxationReachesTheJacobiSteadyState() {
+        assertReachesTheJacobiSteadyState(1.5);
+    }
+
+    private static void assertReachesTheJacobiSteadyState(double relaxationFactor) {
+        MetalAlloy alloyA = newAlloy();
+        MetalAlloy alloyB = new MetalAlloy(alloyA.getComposition());
+        alloyA.deepCopyRegionsTo(alloyB);
+        alloyB.setFixedRegions(alloyA.getFixedRegions());
+        HeatPropagationEngine jacobi = new HeatPropagationEngine(alloyA, alloyB, ForkJoinPool.commonPool(), LEAF_SHAPE);
+        double jacobiResidual = Double.POSITIVE_INFINITY;
+        for (int phase = 0; phase < 200_000 && jacobiResidual > TOLERANCE; phase += 100) {
+            jacobiResidual = jacobi.runPhases(100, true);
+        }
+        assertTrue(jacobiResidual <= TOLERANCE, "Jacobi did not converge, residual " + jacobiResidual);
+
+        MetalAlloy alloy = newAlloy();
+        double[] initial = TestEngines.temperaturesOf(alloy);
+        HeatPropagationEngine inPlace = new HeatPropagationEngine(alloy, ForkJoinPool.commonPool(), LEAF_SHAPE, relaxationFactor);
+        double residual = Double.POSITIVE_INFINITY;
+        for (int phase = 0; phase < 200_000 && residual > TOLERANCE; phase++) {
+            residual = inPlace.runPhase(true);
+            for (int index : FIXED_INDICES) {
+                assertEquals(initial[index], alloy.getTemperature(index), "Fixed region " + index + " was overwritten");
+            }
+        }
+        assertTrue(residual <= TOLERANCE, "In place relaxation did not converge, residual " + residual);
+
+        double[] expected = TestEngines.temperaturesOf(jacobi);
+        double[] actual = TestEngines.temperaturesOf(alloy);
+        for (int index = 0; index < expected.length; index++) {
+            assertEquals(expected[index], actual[index], 1e-6);
+        }
+    }
+
+    private static MetalAlloy newAlloy() {
+        MetalAlloy alloy = TestEngines.newAlloy(HEIGHT, WIDTH, 23);
+        alloy.setFixedRegions(new FixedRegions(HEIGHT, WIDTH, FIXED_INDICES));
+        for (int col = 5; col < 10; col++) {
+            alloy.setTempOfRegion(4500, 10, col);
+        }
+        alloy.setTempOfRegion(1000, 15, 20);
+        return alloy;
+    }
+}
@@ -0,0 +1,145 @@
+package edu.oswego.cs;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MonitorServerTest {
+
+    private static final int HEIGHT = 40;
+    private static final int WIDTH = 60;
+
+    @Test
+    @Timeout(60)
+    void servesEveryResourceOnTheLoopbackAddress() throws Exception {
+        HeatPropagationEngine engine = TestEngines.newEngine(HEIGHT, WIDTH, 3, new LeafShape(8, 16));
+        try (MonitorServer server = new MonitorServer(InetAddress.getLoopbackAddress(), 0, HEIGHT, WIDTH, 50, 32)) {
+            String base = server.getUrl();
+            assertEquals("http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + server.getPort() + "/", base);
+            HttpClient client = HttpClient.newHttpClient();
+            assertEquals(503L, get(client, base + "stats", HttpResponse.BodyHandlers.ofString()).statusCode());
+
+            List<ByteBuffer> messages = new CopyOnWriteArrayList<>();
+            WebSocket webSocket = client.newWebSocketBuilder()
+                    .buildAsync(URI.create(base.replace("http", "ws") + "stream"), new MessageCollector(messages))
+                    .join();
+            long phase = 0;
+            while (messages.size() < 4) {
+                double residual = engine.runPhase(phase % 10 == 0);
+                phase++;
+                server.offer(engine.getLatestAlloy(), phase, residual);
+                Thread.sleep(1);
+            }
+            webSocket.sendClose(WebSocket.NORMAL_CLOSURE, "").join();
+
+            HttpResponse<String> stats = get(client, base + "stats", HttpResponse.BodyHandlers.ofString());
+            assertEquals(200L, stats.statusCode());
+            assertEquals("application/json", stats.headers().firstValue("content-type").orElse(null));
+            assertTrue(stats.body().startsWith("{\"phase\":"));
+            assertTrue(stats.body().contains("\"height\":" + HEIGHT + ",\"width\":" + WIDTH));
+
+            HttpResponse<byte[]> png = get(client, base + "frame.png", HttpResponse.BodyHandlers.ofByteArray());
+            assertEquals(200L, png.statusCode());
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(png.body()));
+            assertEquals((long) WIDTH, image.getWidth());
+            assertEquals((long) HEIGHT, image.getHeight());
+
+            HttpResponse<byte[]> field = get(client, base + "field", HttpResponse.BodyHandlers.ofByteArray());
+            assertEquals(200L, field.statusCode());
+            ByteBuffer header;
+            try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(field.body()))) {
+                header = ByteBuffer.wrap(input.readAllBytes()).order(ByteOrder.LITTLE_ENDIAN);
+            }
+            assertEquals((long) FieldStreamWriter.MAGIC, header.getInt());
+            assertEquals((long) FieldStreamWriter.VERSION, header.getInt());
+            assertEquals((long) HEIGHT, header.getInt());
+            assertEquals((long) WIDTH, header.getInt());
+
+            assertEquals(404L, get(client, base + "missing", HttpResponse.BodyHandlers.ofString()).statusCode());
+
+            // the stream starts with a keyframe of the downsampled field, a delta always follows the previous sample and a
+            // viewer that fell behind gets a keyframe instead
+            ByteBuffer keyframe = messages.get(0);
+            assertEquals(0L, keyframe.get());
+            int sequence = keyframe.getInt();
+            keyframe.getLong();
+            assertEquals(HEIGHT / 2L, keyframe.getInt());
+            assertEquals(WIDTH / 2L, keyframe.getInt());
+            assertEquals((long) HEIGHT / 2 * WIDTH / 2 * Float.BYTES, keyframe.remaining());
+            int numDeltas = 0;
+            for (ByteBuffer message : messages.subList(1, messages.size())) {
+                byte type = message.get();
+                int nextSequence = message.getInt();
+                if (type == 1) {
+                    assertEquals(sequence + 1L, (long) nextSequence);
+                    numDeltas++;
+                } else {
+                    assertEquals(0L, type);
+                    assertTrue(nextSequence > sequence);
+                }
+                sequence = nextSequence;
+            }
+            assertTrue(numDeltas > 0);
+        }
+    }
+
+    @Test
+    void rejectsASampleIntervalOfZero() {
+        assertThrows(IllegalArgumentException.class, () -> new MonitorServer(InetAddress.getLoopbackAddress(), 0, HEIGHT, WIDTH, 0, 32));
+    }
+
+    @Test
+    void rejectsAStreamSizeOfZero() {
+        assertThrows(IllegalArgumentException.class, () -> new MonitorServer(InetAddress.getLoopbackAddress(), 0, HEIGHT, WIDTH, 50, 0));
+    }
+
+    private static <T> HttpResponse<T> get(HttpClient client, String url, HttpResponse.BodyHandler<T> bodyHandler) throws IOException, InterruptedException {
+        return client.send(HttpRequest.newBuilder(URI.create(url)).build(), bodyHandler);
+    }
+
+    /**
+     * Collects every complete binary message of the stream.
+     */
+    private static class MessageCollector implements WebSocket.Listener {
+        private final List<ByteBuffer> messages;
+        private ByteBuffer partial = ByteBuffer.allocate(0);
+
+        private MessageCollector(List<ByteBuffer> messages) {
+            this.messages = messages;
+        }
+
+        @Override
+        public CompletionStage<?> onBinary(WebSocket webSocket, ByteBuffer data, boolean last) {
+            ByteBuffer combined = ByteBuffer.allocate(partial.remaining() + data.remaining()).put(partial).put(data);
+            combined.flip();
+            if (last) {
+                messages.add(combined);
+                partial = ByteBuffer.allocate(0);
+            } else {
+                partial = combined;
+            }
+            webSocket.request(1);
+            return null;
+        }
+    }
+}
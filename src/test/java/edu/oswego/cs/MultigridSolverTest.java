@@ -0,0 +1,67 @@
+package edu.oswego.cs;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MultigridSolverTest {
+
+    private static final LeafShape LEAF_SHAPE = new LeafShape(4, 8);
+    private static final double TOLERANCE = 1e-9;
+
+    @Test
+    void vCyclesReachTheJacobiFixedPoint() {
+        assertReachesTheJacobiFixedPoint(16, 24, 1);
+    }
+
+    @Test
+    void wCyclesReachTheJacobiFixedPoint() {
+        assertReachesTheJacobiFixedPoint(16, 24, 2);
+    }
+
+    @Test
+    void oddDimensionsReachTheJacobiFixedPoint() {
+        // every coarser level has a last row and column covering a single fine row and column
+        assertReachesTheJacobiFixedPoint(17, 23, 1);
+        assertReachesTheJacobiFixedPoint(17, 23, 2);
+    }
+
+    private static void assertReachesTheJacobiFixedPoint(int height, int width, int cycleIndex) {
+        HeatPropagationEngine jacobi = TestEngines.newEngine(newUniformAlloy(height, width), LEAF_SHAPE);
+        double jacobiResidual = Double.POSITIVE_INFINITY;
+        for (int phase = 0; phase < 200_000 && jacobiResidual > TOLERANCE / 100; phase += 100) {
+            jacobiResidual = jacobi.runPhases(100, true);
+        }
+        assertTrue(jacobiResidual <= TOLERANCE / 100, "Jacobi did not converge, residual " + jacobiResidual);
+
+        MetalAlloy alloy = newUniformAlloy(height, width);
+        MultigridSolver multigrid = new MultigridSolver(alloy, ForkJoinPool.commonPool(), LEAF_SHAPE, cycleIndex, 2, 2);
+        assertTrue(multigrid.getNumLevels() > 2);
+        double residual = Double.POSITIVE_INFINITY;
+        for (int cycle = 0; cycle < 200 && residual > TOLERANCE; cycle++) {
+            residual = multigrid.runPhases(1, true);
+        }
+        assertTrue(residual <= TOLERANCE, "Multigrid did not converge, residual " + residual);
+
+        double[] expected = TestEngines.temperaturesOf(jacobi);
+        double[] actual = TestEngines.temperaturesOf(alloy);
+        for (int index = 0; index < expected.length; index++) {
+            assertEquals(expected[index], actual[index], 1e-4);
+        }
+        assertEquals(6000.0, alloy.getTempOfRegion(0, 0));
+        assertEquals(3000.0, alloy.getTempOfRegion(height - 1, width - 1));
+    }
+
+    private static MetalAlloy newUniformAlloy(int height, int width) {
+        double[] thirds = new double[height * width];
+        Arrays.fill(thirds, 1.0 / 3);
+        MetalAlloy alloy = new MetalAlloy(height, width, 0.75, 1.0, 1.25, thirds, thirds.clone(), thirds.clone());
+        alloy.setTempOfRegion(6000, 0, 0);
+        alloy.setTempOfRegion(3000, height - 1, width - 1);
+        return alloy;
+    }
+}
@@ -0,0 +1,79 @@
+package edu.oswego.cs;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class OffHeapGridTest {
+
+    private static final int HEIGHT = 37;
+    private static final int WIDTH = 53;
+    private static final long SEED = 11;
+
+    @Test
+    void directBuffersMatchTheMetalAlloyExactly() throws IOException {
+        assertMatchesMetalAlloy(null);
+    }
+
+    @Test
+    void mappedFileMatchesTheMetalAlloyExactly() throws IOException {
+        Path file = Files.createTempFile("grid", ".bin");
+        try {
+            assertMatchesMetalAlloy(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void singleRegionKeepsItsTemperature() throws IOException {
+        OffHeapGrid grid = new OffHeapGrid(1, 1, 0.75, 1.0, 1.25, SEED, null);
+        grid.setTempOfRegion(6000, 0, 0);
+        HeatPropagationEngine engine = new HeatPropagationEngine(grid, ForkJoinPool.commonPool(), new LeafShape(8, 16));
+        assertEquals(0.0, engine.runPhases(3, true));
+        assertEquals(6000.0, grid.getTempOfRegion(0, 0));
+        assertFalse(engine.supportsFixedRegions());
+    }
+
+    /**
+     * Runs the same phases on an off heap grid and a metal alloy of the same seed, with leaves that do not divide the
+     * alloy evenly, setting the temperatures of a few regions midway.
+     */
+    private static void assertMatchesMetalAlloy(Path backingFile) throws IOException {
+        OffHeapGrid grid = new OffHeapGrid(HEIGHT, WIDTH, 0.75, 1.0, 1.25, SEED, backingFile);
+        grid.setTempOfRegion(6000, 0, 0);
+        grid.setTempOfRegion(3000, HEIGHT - 1, WIDTH - 1);
+        HeatPropagationEngine offHeap = new HeatPropagationEngine(grid, ForkJoinPool.commonPool(), new LeafShape(8, 16));
+
+        HeatPropagationEngine onHeap = TestEngines.newEngine(HEIGHT, WIDTH, SEED, new LeafShape(8, 16));
+
+        double offHeapResidual = Double.NaN;
+        double onHeapResidual = Double.NaN;
+        for (int phase = 0; phase < 30; phase++) {
+            if (phase == 15) {
+                int[] indices = {8 * WIDTH + 16, (HEIGHT - 1) * WIDTH, 20 * WIDTH + WIDTH - 1};
+                double[] temperatures = {2500, 1200, 800};
+                offHeap.setTemperatures(indices, temperatures);
+                onHeap.setTemperatures(indices, temperatures);
+            }
+            offHeapResidual = offHeap.runPhase(true);
+            onHeapResidual = onHeap.runPhase(true);
+        }
+        assertEquals(onHeapResidual, offHeapResidual);
+        double[] expected = TestEngines.temperaturesOf(onHeap);
+        double[] actual = new double[HEIGHT * WIDTH];
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int col = 0; col < WIDTH; col++) {
+                actual[row * WIDTH + col] = grid.getTempOfRegion(row, col);
+            }
+        }
+        assertArrayEquals(expected, actual);
+    }
+}
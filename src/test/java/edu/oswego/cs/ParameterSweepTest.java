@@ -0,0 +1,77 @@
+package edu.oswego.cs;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ParameterSweepTest {
+
+    private static final double[] DEFAULTS = {6000, 3000, 0.75, 1.0, 1.25, 12, 16};
+
+    @Test
+    void expandsEveryCombinationOfTheGrid() throws IOException {
+        Path sweepFile = writeGrid("# two temperatures by three widths\n\ns=100,200\nwidth = 8, 9, 10\n");
+        try {
+            List<double[]> jobs = ParameterSweep.readJobs(sweepFile, DEFAULTS);
+            assertEquals(6L, jobs.size());
+            assertArrayEquals(new double[] {100, 3000, 0.75, 1.0, 1.25, 12, 8}, jobs.get(0));
+            assertArrayEquals(new double[] {100, 3000, 0.75, 1.0, 1.25, 12, 10}, jobs.get(2));
+            assertArrayEquals(new double[] {200, 3000, 0.75, 1.0, 1.25, 12, 9}, jobs.get(4));
+        } finally {
+            Files.delete(sweepFile);
+        }
+    }
+
+    @Test
+    void writesAResultLinePerJob() throws Exception {
+        Path sweepFile = writeGrid("c1=0.5,1.5\nheight=5,7\n");
+        Path resultsFile = Files.createTempFile("sweep", ".csv");
+        try {
+            List<double[]> jobs = ParameterSweep.readJobs(sweepFile, DEFAULTS);
+            ParameterSweep sweep = new ParameterSweep(jobs, ForkJoinPool.commonPool(), 2, new LeafShape(8, 16),
+                    RelaxationKernel.select(false), 20, 0, 5, 3);
+            sweep.run(resultsFile);
+            List<String> lines = Files.readAllLines(resultsFile);
+            assertEquals(1L + sweep.getNumJobs(), lines.size());
+            assertEquals(4L, sweep.getNumJobs());
+            for (String line : lines.subList(1, lines.size())) {
+                assertEquals(15L, line.split(",").length);
+            }
+        } finally {
+            Files.delete(sweepFile);
+            Files.deleteIfExists(resultsFile);
+        }
+    }
+
+    @Test
+    void rejectsDimensionsThatAreNotPositiveWholeNumbers() throws IOException {
+        for (String grid : new String[] {"height=10.5\n", "width=0\n", "height=-3\n"}) {
+            Path sweepFile = writeGrid(grid);
+            try {
+                assertThrows(IllegalArgumentException.class, () -> ParameterSweep.readJobs(sweepFile, DEFAULTS));
+            } finally {
+                Files.delete(sweepFile);
+            }
+        }
+    }
+
+    @Test
+    void rejectsACheckIntervalOfZero() {
+        assertThrows(IllegalArgumentException.class, () -> new ParameterSweep(List.of(DEFAULTS), ForkJoinPool.commonPool(), 1,
+                new LeafShape(8, 16), RelaxationKernel.select(false), 20, 0, 0, 3));
+    }
+
+    private static Path writeGrid(String grid) throws IOException {
+        Path sweepFile = Files.createTempFile("sweep", ".txt");
+        Files.writeString(sweepFile, grid);
+        return sweepFile;
+    }
+}
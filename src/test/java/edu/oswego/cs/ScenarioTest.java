@@ -0,0 +1,81 @@
+package edu.oswego.cs;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScenarioTest {
+
+    private static final int HEIGHT = 6;
+    private static final int WIDTH = 8;
+
+    @Test
+    void readsRangesEdgesAndOverlaps() throws Exception {
+        Scenario scenario = read("""
+                # a hot block with a cold spot, on an alloy whose left edge is held
+                edge left 100
+                edge top insulated
+
+                source 1-2 3-5 500
+                sink 2 4 -50
+                source 3 0 700
+                """);
+        // six regions of the left edge and six of the block, the spot and the overridden edge region are among them
+        assertEquals(12L, scenario.getFixedRegions().getNumFixed());
+        assertFalse(scenario.hasSchedules());
+
+        MetalAlloy alloy = newAlloy();
+        scenario.applyTo(alloy, 0);
+        assertEquals(100.0, alloy.getTempOfRegion(0, 0));
+        assertEquals(100.0, alloy.getTempOfRegion(HEIGHT - 1, 0));
+        assertEquals(500.0, alloy.getTempOfRegion(1, 3));
+        assertEquals(500.0, alloy.getTempOfRegion(2, 5));
+        // the last one listed wins
+        assertEquals(-50.0, alloy.getTempOfRegion(2, 4));
+        assertEquals(700.0, alloy.getTempOfRegion(3, 0));
+        // the insulated top edge and everything else is left alone
+        assertEquals(42.0, alloy.getTempOfRegion(0, 1));
+        assertEquals(42.0, alloy.getTempOfRegion(HEIGHT - 1, WIDTH - 1));
+        assertEquals(scenario.getFixedRegions(), alloy.getFixedRegions());
+    }
+
+    @Test
+    void interpolatesSchedulesAndHoldsTheirEnds() throws Exception {
+        Scenario scenario = read("source 4 6 10:1000,20:2000,40:0");
+        assertTrue(scenario.hasSchedules());
+        MetalAlloy alloy = newAlloy();
+        long[] phases = {0, 10, 15, 20, 35, 40, 1000};
+        double[] temperatures = {1000, 1000, 1500, 2000, 500, 0, 0};
+        for (int i = 0; i < phases.length; i++) {
+            scenario.applyTo(alloy, phases[i]);
+            assertEquals(temperatures[i], alloy.getTempOfRegion(4, 6), 1e-9);
+        }
+    }
+
+    @Test
+    void rejectsUnknownEdgesAndRegionsOutsideTheAlloy() throws Exception {
+        assertThrows(IllegalArgumentException.class, () -> read("edge middle 100"));
+        assertThrows(IllegalArgumentException.class, () -> read("source 0-" + HEIGHT + " 0 100"));
+        assertThrows(IllegalArgumentException.class, () -> read("source 0 0 20:100,10:200"));
+    }
+
+    private static Scenario read(String lines) throws Exception {
+        Path scenarioFile = Files.createTempFile("scenario", ".txt");
+        Files.writeString(scenarioFile, lines);
+        return Scenario.read(scenarioFile, HEIGHT, WIDTH);
+    }
+
+    private static MetalAlloy newAlloy() {
+        MetalAlloy alloy = new MetalAlloy(HEIGHT, WIDTH, 0.75, 1.0, 1.25, 3);
+        for (int index = 0; index < HEIGHT * WIDTH; index++) {
+            alloy.setTemperature(index, 42);
+        }
+        return alloy;
+    }
+}
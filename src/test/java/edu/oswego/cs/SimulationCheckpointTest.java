@@ -0,0 +1,42 @@
+package edu.oswego.cs;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SimulationCheckpointTest {
+
+    private static final int HEIGHT = 23;
+    private static final int WIDTH = 41;
+    private static final LeafShape LEAF_SHAPE = new LeafShape(8, 8);
+
+    @Test
+    void resumedRunMatchesUninterruptedRunExactly() throws Exception {
+        HeatPropagationEngine uninterrupted = TestEngines.newEngine(HEIGHT, WIDTH, 17, LEAF_SHAPE);
+        for (int phase = 0; phase < 30; phase++) {
+            uninterrupted.runPhase(false);
+        }
+
+        HeatPropagationEngine interrupted = TestEngines.newEngine(HEIGHT, WIDTH, 17, LEAF_SHAPE);
+        for (int phase = 0; phase < 12; phase++) {
+            interrupted.runPhase(false);
+        }
+        Path checkpoint = Files.createTempDirectory("checkpoint").resolve("simulation.ckpt");
+        CheckpointWriter writer = new CheckpointWriter(checkpoint, interrupted.getLatestAlloy());
+        writer.close(interrupted.getLatestAlloy(), interrupted.getPhasesCompleted());
+
+        SimulationCheckpoint restored = SimulationCheckpoint.read(checkpoint);
+        assertEquals(12, restored.getPhase());
+        assertEquals(HEIGHT, restored.getAlloy().getHeight());
+        assertEquals(WIDTH, restored.getAlloy().getWidth());
+        HeatPropagationEngine resumed = TestEngines.newEngine(restored.getAlloy(), LEAF_SHAPE);
+        for (long phase = restored.getPhase(); phase < 30; phase++) {
+            resumed.runPhase(false);
+        }
+        assertArrayEquals(TestEngines.temperaturesOf(uninterrupted), TestEngines.temperaturesOf(resumed));
+    }
+}
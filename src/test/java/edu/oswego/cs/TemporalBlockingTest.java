@@ -0,0 +1,30 @@
+package edu.oswego.cs;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TemporalBlockingTest {
+
+    private static final int HEIGHT = 45;
+    private static final int WIDTH = 71;
+
+    @Test
+    void blockedPhasesMatchSinglePhasesExactly() {
+        // leaves that do not divide the alloy evenly, so the blocks include partial leaves along both edges
+        HeatPropagationEngine single = TestEngines.newEngine(HEIGHT, WIDTH, 5, new LeafShape(8, 16));
+        HeatPropagationEngine blocked = TestEngines.newEngine(HEIGHT, WIDTH, 5, new LeafShape(8, 16));
+        double singleResidual = Double.NaN;
+        for (int phase = 0; phase < 40; phase++) {
+            singleResidual = single.runPhases(1, phase % 4 == 3);
+        }
+        double blockedResidual = Double.NaN;
+        for (int block = 0; block < 10; block++) {
+            blockedResidual = blocked.runPhases(4, true);
+        }
+        assertArrayEquals(TestEngines.temperaturesOf(single), TestEngines.temperaturesOf(blocked));
+        assertEquals(singleResidual, blockedResidual);
+        assertEquals(single.getPhasesCompleted(), blocked.getPhasesCompleted());
+    }
+}
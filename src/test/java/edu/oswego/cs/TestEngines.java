@@ -0,0 +1,45 @@
+package edu.oswego.cs;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Alloys and engines set up like the simulation sets them up, shared by the tests that compare runs exactly.
+ */
+final class TestEngines {
+
+    private TestEngines() {
+    }
+
+    /**
+     * @return A metal alloy of the given seed with its top left corner at 6000 and its bottom right corner at 3000.
+     */
+    static MetalAlloy newAlloy(int height, int width, long seed) {
+        MetalAlloy alloy = new MetalAlloy(height, width, 0.75, 1.0, 1.25, seed);
+        alloy.setTempOfRegion(6000, 0, 0);
+        alloy.setTempOfRegion(3000, height - 1, width - 1);
+        return alloy;
+    }
+
+    static HeatPropagationEngine newEngine(int height, int width, long seed, LeafShape leafShape) {
+        return newEngine(newAlloy(height, width, seed), leafShape);
+    }
+
+    /**
+     * An engine started like the simulation, the second alloy shares the composition of the first and copies it.
+     */
+    static HeatPropagationEngine newEngine(MetalAlloy alloyA, LeafShape leafShape) {
+        MetalAlloy alloyB = new MetalAlloy(alloyA.getComposition());
+        alloyA.deepCopyRegionsTo(alloyB);
+        return new HeatPropagationEngine(alloyA, alloyB, ForkJoinPool.commonPool(), leafShape);
+    }
+
+    static double[] temperaturesOf(MetalAlloy alloy) {
+        double[] temperatures = new double[alloy.getHeight() * alloy.getWidth()];
+        alloy.copyTemperaturesTo(temperatures);
+        return temperatures;
+    }
+
+    static double[] temperaturesOf(HeatPropagationEngine engine) {
+        return temperaturesOf(engine.getLatestAlloy());
+    }
+}
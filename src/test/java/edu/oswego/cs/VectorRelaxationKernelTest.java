@@ -0,0 +1,90 @@
+package edu.oswego.cs;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class VectorRelaxationKernelTest {
+
+    private static final int DOUBLE_LANES = DoubleVector.SPECIES_PREFERRED.length();
+    private static final int FLOAT_LANES = FloatVector.SPECIES_PREFERRED.length();
+
+    // single columns, widths narrower than a vector, widths that leave a tail after the last vector and exact multiples
+    private static final int[] WIDTHS = {1, 2, 3, DOUBLE_LANES + 1, 3 * DOUBLE_LANES - 1, FLOAT_LANES + 3, 4 * FLOAT_LANES + 2, 4 * FLOAT_LANES + 2 + 1, 64};
+    private static final int[] HEIGHTS = {1, 2, 7};
+
+    @Test
+    void doublePrecisionMatchesScalarKernelExactly() {
+        for (int height : HEIGHTS) {
+            for (int width : WIDTHS) {
+                MetalAlloy[] scalar = newAlloys(height, width);
+                MetalAlloy[] vector = newAlloys(height, width);
+                for (int phase = 0; phase < 12; phase++) {
+                    // whole alloy on even phases, bounds away from the edges with odd tails on odd phases
+                    int colStart = phase % 2 == 0 ? 0 : Math.min(1, width - 1);
+                    int colEnd = phase % 2 == 0 ? width : Math.max(colStart + 1, width - 2);
+                    runInBands(new ScalarRelaxationKernel(), scalar, colStart, colEnd);
+                    runInBands(new VectorRelaxationKernel(), vector, colStart, colEnd);
+                    assertArrayEquals(scalar[1].getTemperatures(), vector[1].getTemperatures(), height + "x" + width + " phase " + phase);
+                    swap(scalar);
+                    swap(vector);
+                }
+            }
+        }
+    }
+
+    @Test
+    void singlePrecisionMatchesScalarKernelExactly() {
+        for (int height : HEIGHTS) {
+            for (int width : WIDTHS) {
+                SinglePrecisionField field = new SinglePrecisionField(newAlloys(height, width)[0]);
+                float[] scalarSource = field.getTemperaturesA().clone();
+                float[] scalarResults = field.getTemperaturesB().clone();
+                float[] vectorSource = field.getTemperaturesA().clone();
+                float[] vectorResults = field.getTemperaturesB().clone();
+                for (int phase = 0; phase < 12; phase++) {
+                    new ScalarRelaxationKernel().calculateNewTempsForRegions(field, scalarSource, scalarResults, 0, height, 0, width);
+                    new VectorRelaxationKernel().calculateNewTempsForRegions(field, vectorSource, vectorResults, 0, height, 0, width);
+                    assertArrayEquals(scalarResults, vectorResults);
+                    float[] swap = scalarSource;
+                    scalarSource = scalarResults;
+                    scalarResults = swap;
+                    swap = vectorSource;
+                    vectorSource = vectorResults;
+                    vectorResults = swap;
+                }
+            }
+        }
+    }
+
+    /**
+     * Calculates the bounds one band of rows at a time like the leaves of an engine, the first band starting on the
+     * top edge and the last ending on the bottom edge.
+     */
+    private static void runInBands(RelaxationKernel kernel, MetalAlloy[] alloys, int colStart, int colEnd) {
+        int height = alloys[0].getHeight();
+        for (int rowStart = 0; rowStart < height; rowStart += 3) {
+            kernel.calculateNewTempsForRegions(alloys[0], alloys[1], rowStart, Math.min(height, rowStart + 3), colStart, colEnd);
+        }
+    }
+
+    private static MetalAlloy[] newAlloys(int height, int width) {
+        MetalAlloy alloyA = new MetalAlloy(height, width, 0.75, 1.0, 1.25, 11);
+        for (int index = 0; index < height * width; index++) {
+            alloyA.setTemperature(index, (index * 37) % 500);
+        }
+        alloyA.setTempOfRegion(6000, 0, 0);
+        alloyA.setTempOfRegion(3000, height - 1, width - 1);
+        MetalAlloy alloyB = new MetalAlloy(alloyA.getComposition());
+        alloyA.deepCopyRegionsTo(alloyB);
+        return new MetalAlloy[] {alloyA, alloyB};
+    }
+
+    private static void swap(MetalAlloy[] alloys) {
+        MetalAlloy results = alloys[1];
+        alloys[1] = alloys[0];
+        alloys[0] = results;
+    }
+}